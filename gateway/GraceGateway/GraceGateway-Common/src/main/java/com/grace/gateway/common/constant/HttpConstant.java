@@ -6,4 +6,6 @@ public interface HttpConstant {
 
     String HTTP_FORWARD_SEPARATOR = "X-Forwarded-For";
 
+    String RATE_LIMIT_SCOPE_HEADER = "X-RateLimit-Scope"; // 触发限流的层级
+
 }
@@ -16,4 +16,10 @@ public interface LoadBalanceConstant {
 
     String CLIENT_IP_CONSISTENT_HASH_LOAD_BALANCE_STRATEGY = "client_ip_consistent_hash_load_balance_strategy"; // 根据请求ip的一致性哈希策略
 
+    String LEAST_REQUEST_LOAD_BALANCE_STRATEGY = "least_request_load_balance_strategy"; // 最少在途请求策略，随机选两个实例取在途请求少的
+
+    String PEAK_EWMA_LOAD_BALANCE_STRATEGY = "peak_ewma_load_balance_strategy"; // 峰值EWMA策略，随机选两个实例取 延迟×在途请求 小的
+
+    String SMOOTH_WEIGHT_ROUND_ROBIN_LOAD_BALANCE_STRATEGY = "smooth_weight_round_robin_load_balance_strategy"; // 平滑加权轮询策略
+
 }
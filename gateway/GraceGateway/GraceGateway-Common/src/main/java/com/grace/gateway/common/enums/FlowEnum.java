@@ -4,7 +4,9 @@ public enum FlowEnum {
 
     SLIDING_WINDOW("滑动窗口"),
     TOKEN_BUCKET("令牌桶"),
-    LEAKY_BUCKET("漏桶")
+    LEAKY_BUCKET("漏桶"),
+    GCRA("通用信元速率算法"),
+    ADAPTIVE_CONCURRENCY("自适应并发")
     ;
 
     private final String des;
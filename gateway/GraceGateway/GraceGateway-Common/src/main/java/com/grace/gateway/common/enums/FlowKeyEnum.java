@@ -0,0 +1,17 @@
+package com.grace.gateway.common.enums;
+
+public enum FlowKeyEnum {
+
+    SERVICE("服务"),
+    CLIENT_IP("客户端IP"),
+    HEADER("请求头"),
+    QUERY("查询参数"),
+    COOKIE("Cookie")
+    ;
+
+    private final String des;
+
+    FlowKeyEnum(String des) {
+        this.des = des;
+    }
+}
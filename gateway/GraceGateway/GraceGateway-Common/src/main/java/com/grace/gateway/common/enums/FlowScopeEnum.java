@@ -0,0 +1,16 @@
+package com.grace.gateway.common.enums;
+
+public enum FlowScopeEnum {
+
+    GLOBAL("网关"),
+    ROUTE("路由"),
+    METHOD("请求方法"),
+    SERVICE("服务")
+    ;
+
+    private final String des;
+
+    FlowScopeEnum(String des) {
+        this.des = des;
+    }
+}
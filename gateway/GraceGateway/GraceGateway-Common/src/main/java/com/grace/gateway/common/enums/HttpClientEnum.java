@@ -0,0 +1,17 @@
+package com.grace.gateway.common.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum HttpClientEnum {
+
+    ASYNC_HTTP_CLIENT("AsyncHttpClient"),
+    NETTY("Netty原生客户端");
+
+    private final String des;
+
+    HttpClientEnum(String des) {
+        this.des = des;
+    }
+
+}
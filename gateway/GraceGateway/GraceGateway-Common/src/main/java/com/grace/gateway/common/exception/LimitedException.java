@@ -2,21 +2,44 @@ package com.grace.gateway.common.exception;
 
 
 import com.grace.gateway.common.enums.ResponseCode;
+import lombok.Getter;
 
 import java.io.Serial;
 
 /**
  * 限制异常，一般发生在流控
  */
+@Getter
 public class LimitedException extends GatewayException {
 
     @Serial
     private static final long serialVersionUID = -5975157585816767314L;
 
+    /**
+     * 建议客户端多久之后重试，单位 ms，小于等于0表示未知
+     */
+    private long retryAfterMillis;
+
+    /**
+     * 触发限流的层级，如网关、服务、路由，为null表示未知
+     */
+    private String scope;
+
     public LimitedException(ResponseCode code) {
         super(code.getMessage(), code);
     }
 
+    public LimitedException(ResponseCode code, long retryAfterMillis) {
+        super(code.getMessage(), code);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public LimitedException(ResponseCode code, long retryAfterMillis, String scope) {
+        super(code.getMessage(), code);
+        this.retryAfterMillis = retryAfterMillis;
+        this.scope = scope;
+    }
+
     public LimitedException(Throwable cause, ResponseCode code) {
         super(code.getMessage(), cause, code);
     }
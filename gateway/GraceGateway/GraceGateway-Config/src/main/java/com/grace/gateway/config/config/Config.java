@@ -31,7 +31,13 @@ public class Config {
     // http client
     private HttpClientConfig httpClient = new HttpClientConfig();
 
+    // 下游实例主动健康检查
+    private HealthCheckConfig healthCheck = new HealthCheckConfig();
+
     // 路由配置
     private List<RouteDefinition> routes = new ArrayList<>();
 
+    // 网关全局限流，所有未关闭流控过滤器的路由共用，为null表示不限
+    private RouteDefinition.LimitConfig globalLimit;
+
 }
@@ -0,0 +1,22 @@
+package com.grace.gateway.config.config;
+
+import lombok.Data;
+
+@Data
+public class HealthCheckConfig {
+
+    private boolean enabled = false; // 是否开启主动健康检查
+
+    private String path = "/health"; // 探测路径，返回2xx视为健康
+
+    private long intervalMillis = 1000; // 探测间隔
+
+    private int jitterPercent = 20; // 探测间隔的随机抖动比例（百分比），避免大量实例同时探测
+
+    private long timeoutMillis = 500; // 探测超时时间
+
+    private int healthyThreshold = 2; // 不健康实例连续探测成功多少次后恢复
+
+    private int unhealthyThreshold = 2; // 健康实例连续探测失败多少次后标记为不健康
+
+}
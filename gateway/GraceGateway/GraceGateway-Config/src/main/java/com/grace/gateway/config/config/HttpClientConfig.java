@@ -1,10 +1,13 @@
 package com.grace.gateway.config.config;
 
+import com.grace.gateway.common.enums.HttpClientEnum;
 import lombok.Data;
 
 @Data
 public class HttpClientConfig {
 
+    private HttpClientEnum type = HttpClientEnum.ASYNC_HTTP_CLIENT; // 客户端实现，NETTY为基于Netty Bootstrap的原生客户端，与下游连接共用同一个EventLoop
+
     private int eventLoopGroupWorkerNum = Runtime.getRuntime().availableProcessors() * 2; // worker数量
 
     private int httpConnectTimeout = 30 * 1000; // 连接超时时间
@@ -0,0 +1,266 @@
+package com.grace.gateway.config.helper;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import lombok.AllArgsConstructor;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 路由前缀树
+ * 路由URI按 "/" 切分为路径段后构建成树，请求只需沿树按段匹配，不再逐个路由做正则匹配
+ * 支持的路径段：
+ * 1. 普通字面量，如 /user/info
+ * 2. *、{变量名}：匹配任意一个非空路径段
+ * 3. **：匹配一个或多个路径段（路径段可以为空），与原先 "**" 替换为 ".*" 的正则语义一致，如 /user/** 匹配 /user/ 和 /user/a/b，不匹配 /user
+ * 4. 含通配符的路径段，如 *.json、user-{id}：编译为单段正则
+ * 路径段中间出现 ** 的路由（如 /user/a**）无法按段切分，退化为预编译的整段正则匹配
+ * 多个路由同时匹配时，与原逻辑一致：order 小的优先，order 相同时URI更长的优先
+ * 树构建完成后只读，路由更新时整体重建并替换
+ */
+public class RouteTrie {
+
+    private static final String MULTI_WILDCARD = "**";
+
+    private static final String SINGLE_WILDCARD = "*";
+
+    /**
+     * 路由优先级：order 升序，order 相同时URI长度降序
+     */
+    private static final Comparator<RouteDefinition> PRIORITY = Comparator.comparingInt(RouteDefinition::getOrder)
+            .thenComparing(route -> route.getUri().length(), Comparator.reverseOrder());
+
+    private final Node root = new Node();
+
+    /**
+     * 无法按段切分的路由，保存预编译的正则
+     */
+    private final List<RegexRoute> regexRoutes = new ArrayList<>();
+
+    private RouteTrie() {
+    }
+
+    /**
+     * 根据路由集合构建前缀树
+     *
+     * @param routes 路由定义集合
+     * @return 前缀树
+     */
+    public static RouteTrie build(Collection<RouteDefinition> routes) {
+        RouteTrie trie = new RouteTrie();
+        for (RouteDefinition route : routes) {
+            if (route == null || route.getUri() == null) continue;
+            trie.insert(route);
+        }
+        return trie;
+    }
+
+    /**
+     * 匹配请求路径（不含查询参数）
+     *
+     * @param path 请求路径
+     * @return 优先级最高的路由，没有匹配的路由返回null
+     */
+    public RouteDefinition match(String path) {
+        RouteDefinition best = null;
+        if (path.startsWith("/")) {
+            best = match(root, path, 1, null);
+        }
+        for (RegexRoute regexRoute : regexRoutes) {
+            if (regexRoute.pattern.matcher(path).matches()) {
+                best = better(best, regexRoute.route);
+            }
+        }
+        return best;
+    }
+
+    private void insert(RouteDefinition route) {
+        String uri = route.getUri();
+        List<String> segments = uri.startsWith("/") ? split(uri) : null;
+        if (segments == null || segments.stream().anyMatch(s -> s.contains(MULTI_WILDCARD) && !s.equals(MULTI_WILDCARD))) {
+            regexRoutes.add(new RegexRoute(Pattern.compile(uri.replace(MULTI_WILDCARD, ".*")), route));
+            return;
+        }
+        Node node = root;
+        for (String segment : segments) {
+            node = node.child(segment);
+        }
+        node.route = better(node.route, route);
+    }
+
+    /**
+     * 从 pos 位置开始匹配剩余路径段
+     *
+     * @param node 当前节点
+     * @param path 请求路径
+     * @param pos  当前路径段起始下标，-1 表示路径段已全部匹配完
+     * @param best 目前找到的最优路由
+     */
+    private RouteDefinition match(Node node, String path, int pos, RouteDefinition best) {
+        if (pos < 0) {
+            return better(best, node.route);
+        }
+        int end = path.indexOf('/', pos);
+        if (end < 0) end = path.length();
+        int next = end < path.length() ? end + 1 : -1;
+
+        if (node.literals != null) {
+            Node child = node.literals.get(path.substring(pos, end));
+            if (child != null) {
+                best = match(child, path, next, best);
+            }
+        }
+        if (node.single != null && end > pos) {
+            best = match(node.single, path, next, best);
+        }
+        if (node.globs != null) {
+            String segment = path.substring(pos, end);
+            for (GlobChild glob : node.globs) {
+                if (glob.pattern.matcher(segment).matches()) {
+                    best = match(glob.node, path, next, best);
+                }
+            }
+        }
+        if (node.multi != null) {
+            // ** 依次尝试吞掉 1..n 个路径段
+            while (true) {
+                if (next < 0) {
+                    best = match(node.multi, path, -1, best);
+                    break;
+                }
+                if (node.multi.hasChildren()) {
+                    best = match(node.multi, path, next, best);
+                }
+                end = path.indexOf('/', next);
+                if (end < 0) end = path.length();
+                next = end < path.length() ? end + 1 : -1;
+            }
+        }
+        return best;
+    }
+
+    private static RouteDefinition better(RouteDefinition current, RouteDefinition candidate) {
+        if (candidate == null) return current;
+        if (current == null) return candidate;
+        return PRIORITY.compare(candidate, current) < 0 ? candidate : current;
+    }
+
+    /**
+     * 按 "/" 切分路径，去掉开头的 "/"，保留空路径段（如 "/a/" 切分为 ["a", ""]），与请求路径的切分方式一致
+     */
+    private static List<String> split(String uri) {
+        List<String> segments = new ArrayList<>();
+        int pos = 1;
+        while (true) {
+            int end = uri.indexOf('/', pos);
+            if (end < 0) {
+                segments.add(uri.substring(pos));
+                return segments;
+            }
+            segments.add(uri.substring(pos, end));
+            pos = end + 1;
+        }
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}")
+                && segment.indexOf('{', 1) < 0;
+    }
+
+    private static boolean isGlob(String segment) {
+        return segment.contains(SINGLE_WILDCARD) || segment.contains("{");
+    }
+
+    /**
+     * 将单个路径段编译为正则，* 匹配任意字符，{变量名} 匹配一个或多个字符，其余字符按字面量匹配
+     */
+    private static Pattern compileSegment(String segment) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < segment.length()) {
+            char c = segment.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+                i++;
+            } else if (c == '{' && segment.indexOf('}', i) > i) {
+                regex.append(".+");
+                i = segment.indexOf('}', i) + 1;
+            } else {
+                int j = i;
+                while (j < segment.length() && segment.charAt(j) != '*' && segment.charAt(j) != '{') j++;
+                if (j == i) j++;
+                regex.append(Pattern.quote(segment.substring(i, j)));
+                i = j;
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static class Node {
+
+        /**
+         * 字面量子节点
+         */
+        private Map<String, Node> literals;
+
+        /**
+         * * 和 {变量名} 子节点
+         */
+        private Node single;
+
+        /**
+         * 单段正则子节点
+         */
+        private List<GlobChild> globs;
+
+        /**
+         * ** 子节点
+         */
+        private Node multi;
+
+        /**
+         * 在该节点结束的路由
+         */
+        private RouteDefinition route;
+
+        private Node child(String segment) {
+            if (MULTI_WILDCARD.equals(segment)) {
+                if (multi == null) multi = new Node();
+                return multi;
+            }
+            if (SINGLE_WILDCARD.equals(segment) || isVariable(segment)) {
+                if (single == null) single = new Node();
+                return single;
+            }
+            if (isGlob(segment)) {
+                if (globs == null) globs = new ArrayList<>();
+                for (GlobChild glob : globs) {
+                    if (glob.segment.equals(segment)) return glob.node;
+                }
+                GlobChild glob = new GlobChild(segment, compileSegment(segment), new Node());
+                globs.add(glob);
+                return glob.node;
+            }
+            if (literals == null) literals = new HashMap<>();
+            return literals.computeIfAbsent(segment, key -> new Node());
+        }
+
+        private boolean hasChildren() {
+            return literals != null || single != null || globs != null || multi != null;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class GlobChild {
+        private final String segment;
+        private final Pattern pattern;
+        private final Node node;
+    }
+
+    @AllArgsConstructor
+    private static class RegexRoute {
+        private final Pattern pattern;
+        private final RouteDefinition route;
+    }
+
+}
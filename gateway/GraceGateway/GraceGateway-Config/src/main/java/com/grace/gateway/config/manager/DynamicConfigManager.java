@@ -1,10 +1,12 @@
 package com.grace.gateway.config.manager;
 
+import com.grace.gateway.config.helper.RouteTrie;
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.pojo.ServiceDefinition;
 import com.grace.gateway.config.pojo.ServiceInstance;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,20 +27,16 @@ public class DynamicConfigManager {
     // 用于在路由发生变化时通知相关监听器
     private final ConcurrentHashMap<String /* 服务名 */, List<RouteListener>> routeListenerMap = new ConcurrentHashMap<>();
 
-    // 路由ID与路由定义的映射：路由ID -> 路由定义
-    private final ConcurrentHashMap<String /* 路由id */, RouteDefinition> routeId2RouteMap = new ConcurrentHashMap<>();
-
-    // 服务名与路由定义的映射：服务名 -> 路由定义
-    private final ConcurrentHashMap<String /* 服务名 */, RouteDefinition> serviceName2RouteMap = new ConcurrentHashMap<>();
-
-    // URI路径与路由定义的映射：URI路径 -> 路由定义
-    private final ConcurrentHashMap<String /* URI路径 */, RouteDefinition> uri2RouteMap = new ConcurrentHashMap<>();
+    // 路由表快照（路由ID、服务名、URI三个映射以及路由前缀树），更新时在旁路构建新快照后一次性替换
+    // 读请求无需加锁，且总能看到完整一致的路由表，不会在配置推送过程中看到空表或半更新的表
+    private volatile RouteTable routeTable = RouteTable.EMPTY;
 
     // 服务名与服务定义的映射：服务名 -> 服务定义
     private final ConcurrentHashMap<String /* 服务名 */, ServiceDefinition> serviceDefinitionMap = new ConcurrentHashMap<>();
 
-    // 服务实例映射：服务名 -> (实例ID -> 服务实例)
-    private final ConcurrentHashMap<String /* 服务名 */, ConcurrentHashMap<String /* 实例id */, ServiceInstance>> serviceInstanceMap = new ConcurrentHashMap<>();
+    // 服务实例映射：服务名 -> 服务实例快照
+    // 实例变化时基于旧快照构建新快照，再原子替换，读请求不会看到被清空或更新到一半的实例列表
+    private final ConcurrentHashMap<String /* 服务名 */, InstanceSnapshot> serviceInstanceMap = new ConcurrentHashMap<>();
 
     /*********   单例模式实现   *********/
     // 私有构造方法，防止外部实例化
@@ -57,8 +55,8 @@ public class DynamicConfigManager {
      * @param id 路由ID
      * @param routeDefinition 路由定义对象
      */
-    public void updateRouteByRouteId(String id, RouteDefinition routeDefinition) {
-        routeId2RouteMap.put(id, routeDefinition);
+    public synchronized void updateRouteByRouteId(String id, RouteDefinition routeDefinition) {
+        routeTable = routeTable.withRouteId(id, routeDefinition);
     }
 
     /**
@@ -74,23 +72,11 @@ public class DynamicConfigManager {
      * @param routes 路由定义集合
      * @param clear 是否先清空现有路由
      */
-    public void updateRoutes(Collection<RouteDefinition> routes, boolean clear) {
+    public synchronized void updateRoutes(Collection<RouteDefinition> routes, boolean clear) {
         if (routes == null || routes.isEmpty()) return;
 
-        // 如果需要清空，先清除所有路由映射
-        if (clear) {
-            routeId2RouteMap.clear();
-            serviceName2RouteMap.clear();
-            uri2RouteMap.clear();
-        }
-
-        // 遍历路由集合，更新所有映射
-        for (RouteDefinition route : routes) {
-            if (route == null) continue;
-            routeId2RouteMap.put(route.getId(), route);
-            serviceName2RouteMap.put(route.getServiceName(), route);
-            uri2RouteMap.put(route.getUri(), route);
-        }
+        // 基于当前快照构建新快照（clear时从空表开始），构建完成后一次性发布
+        routeTable = routeTable.merge(routes, clear);
     }
 
     /**
@@ -99,7 +85,7 @@ public class DynamicConfigManager {
      * @return 路由定义对象，不存在则返回null
      */
     public RouteDefinition getRouteById(String id) {
-        return routeId2RouteMap.get(id);
+        return routeTable.getRouteId2RouteMap().get(id);
     }
 
     /**
@@ -108,7 +94,7 @@ public class DynamicConfigManager {
      * @return 路由定义对象，不存在则返回null
      */
     public RouteDefinition getRouteByServiceName(String serviceName) {
-        return serviceName2RouteMap.get(serviceName);
+        return routeTable.getServiceName2RouteMap().get(serviceName);
     }
 
     /**
@@ -116,7 +102,23 @@ public class DynamicConfigManager {
      * @return 包含所有URI-路由映射的Entry集合
      */
     public Set<Map.Entry<String, RouteDefinition>> getAllUriEntry() {
-        return uri2RouteMap.entrySet();
+        return routeTable.getUri2RouteMap().entrySet();
+    }
+
+    /**
+     * 获取当前的路由表快照，需要多次读取路由信息时应只获取一次快照，保证读到的是同一版本
+     * @return 路由表快照
+     */
+    public RouteTable getRouteTable() {
+        return routeTable;
+    }
+
+    /**
+     * 获取当前的路由前缀树
+     * @return 路由前缀树
+     */
+    public RouteTrie getRouteTrie() {
+        return routeTable.getRouteTrie();
     }
 
     /*********   服务相关操作   *********/
@@ -146,9 +148,9 @@ public class DynamicConfigManager {
      * @param instance 服务实例对象
      */
     public void addServiceInstance(String serviceName, ServiceInstance instance) {
-        // 若服务名对应的实例映射不存在则创建，然后添加实例
-        serviceInstanceMap.computeIfAbsent(serviceName, k -> new ConcurrentHashMap<>())
-                .put(instance.getInstanceId(), instance);
+        // 若服务名对应的快照不存在则创建，否则在旧快照基础上生成新快照
+        serviceInstanceMap.compute(serviceName, (k, v) ->
+                v == null ? InstanceSnapshot.of(1, List.of(instance)) : v.with(instance));
     }
 
     /**
@@ -157,15 +159,9 @@ public class DynamicConfigManager {
      * @param newInstances 新的服务实例集合
      */
     public void updateInstances(ServiceDefinition serviceDefinition, Set<ServiceInstance> newInstances) {
-        // 获取或创建服务对应的实例映射
-        ConcurrentHashMap<String, ServiceInstance> oldInstancesMap = serviceInstanceMap
-                .computeIfAbsent(serviceDefinition.getServiceName(), k -> new ConcurrentHashMap<>());
-
-        // 清空旧实例，添加新实例
-        oldInstancesMap.clear();
-        for (ServiceInstance newInstance : newInstances) {
-            oldInstancesMap.put(newInstance.getInstanceId(), newInstance);
-        }
+        // 构建新快照后整体替换旧快照，已存在的实例沿用首次发现时间
+        serviceInstanceMap.compute(serviceDefinition.getServiceName(), (k, v) ->
+                v == null ? InstanceSnapshot.of(1, newInstances) : v.withAll(newInstances));
     }
 
     /**
@@ -174,24 +170,41 @@ public class DynamicConfigManager {
      * @param instance 要移除的服务实例
      */
     public void removeServiceInstance(String serviceName, ServiceInstance instance) {
-        serviceInstanceMap.compute(serviceName, (k, v) -> {
-            // 若实例映射不存在或实例不存在，则直接返回
-            if (v == null || v.get(instance.getInstanceId()) == null) return v;
+        serviceInstanceMap.computeIfPresent(serviceName, (k, v) -> {
+            // 若实例不存在，则直接返回
+            if (v.getInstanceMap().get(instance.getInstanceId()) == null) return v;
             // 移除指定实例
-            v.remove(instance.getInstanceId());
-            return v;
+            return v.without(instance.getInstanceId());
         });
     }
 
     /**
      * 根据服务名获取所有服务实例
      * @param serviceName 服务名
-     * @return 该服务的所有实例映射，不存在则返回null
+     * @return 该服务的所有实例映射（只读），不存在则返回null
      */
     public Map<String, ServiceInstance> getInstancesByServiceName(String serviceName) {
+        InstanceSnapshot snapshot = serviceInstanceMap.get(serviceName);
+        return snapshot == null ? null : snapshot.getInstanceMap();
+    }
+
+    /**
+     * 根据服务名获取服务实例快照
+     * @param serviceName 服务名
+     * @return 该服务的实例快照，不存在则返回null
+     */
+    public InstanceSnapshot getInstanceSnapshot(String serviceName) {
         return serviceInstanceMap.get(serviceName);
     }
 
+    /**
+     * 获取所有服务的实例快照
+     * @return 服务名 -> 实例快照（只读）
+     */
+    public Map<String, InstanceSnapshot> getInstanceSnapshots() {
+        return Collections.unmodifiableMap(serviceInstanceMap);
+    }
+
     /*********   路由监听相关操作   *********/
 
     /**
@@ -0,0 +1,148 @@
+package com.grace.gateway.config.manager;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * 服务实例快照
+ * 某个服务在某一版本下的全部实例，创建后不可变，实例变化时整体替换
+ * 按请求类型预先分好组（启用、灰度、非灰度），并预先算好灰度比例之和，负载均衡时直接使用，无需每次过滤、汇总
+ */
+@Getter
+public class InstanceSnapshot {
+
+    /**
+     * 版本号，每次实例变化递增
+     */
+    private final long version;
+
+    /**
+     * 实例ID -> 服务实例
+     */
+    private final Map<String /* 实例id */, ServiceInstance> instanceMap;
+
+    /**
+     * 全部实例
+     */
+    private final List<ServiceInstance> instances;
+
+    /**
+     * 启用的实例
+     */
+    private final List<ServiceInstance> enabledInstances;
+
+    /**
+     * 启用的灰度实例
+     */
+    private final List<ServiceInstance> grayInstances;
+
+    /**
+     * 启用的非灰度实例
+     */
+    private final List<ServiceInstance> nonGrayInstances;
+
+    /**
+     * 全部实例的灰度比例之和
+     */
+    private final double totalThreshold;
+
+    private InstanceSnapshot(long version, Map<String, ServiceInstance> instanceMap) {
+        this.version = version;
+        this.instanceMap = Collections.unmodifiableMap(instanceMap);
+
+        ServiceInstance[] all = instanceMap.values().toArray(new ServiceInstance[0]);
+        List<ServiceInstance> enabled = new ArrayList<>(all.length);
+        List<ServiceInstance> gray = new ArrayList<>();
+        List<ServiceInstance> nonGray = new ArrayList<>(all.length);
+        double threshold = 0;
+        for (ServiceInstance instance : all) {
+            threshold += instance.getThreshold();
+            if (!instance.isEnabled()) continue;
+            enabled.add(instance);
+            if (instance.isGray()) {
+                gray.add(instance);
+            } else {
+                nonGray.add(instance);
+            }
+        }
+        // List.of 基于数组实现、不可变，按下标访问没有额外开销
+        this.instances = List.of(all);
+        this.enabledInstances = List.copyOf(enabled);
+        this.grayInstances = List.copyOf(gray);
+        this.nonGrayInstances = List.copyOf(nonGray);
+        this.totalThreshold = threshold;
+    }
+
+    /**
+     * 创建快照，服务的第一个快照中的实例视为一直存在（首次发现时间为0），网关重启时不会触发慢启动
+     *
+     * @param version   版本号
+     * @param instances 服务实例集合
+     * @return 快照
+     */
+    public static InstanceSnapshot of(long version, Collection<ServiceInstance> instances) {
+        Map<String, ServiceInstance> instanceMap = new LinkedHashMap<>();
+        for (ServiceInstance instance : instances) {
+            instanceMap.put(instance.getInstanceId(), instance);
+        }
+        return new InstanceSnapshot(version, instanceMap);
+    }
+
+    /**
+     * 在当前快照的基础上全量替换实例，生成新快照
+     * 已存在的实例沿用首次发现时间，新出现的实例以当前时间作为首次发现时间
+     */
+    public InstanceSnapshot withAll(Collection<ServiceInstance> instances) {
+        long now = System.currentTimeMillis();
+        Map<String, ServiceInstance> newInstanceMap = new LinkedHashMap<>();
+        for (ServiceInstance instance : instances) {
+            inheritFirstSeenTime(instance, now);
+            newInstanceMap.put(instance.getInstanceId(), instance);
+        }
+        return new InstanceSnapshot(version + 1, newInstanceMap);
+    }
+
+    /**
+     * 在当前快照的基础上新增或替换一个实例，生成新快照
+     */
+    public InstanceSnapshot with(ServiceInstance instance) {
+        inheritFirstSeenTime(instance, System.currentTimeMillis());
+        Map<String, ServiceInstance> newInstanceMap = new LinkedHashMap<>(instanceMap);
+        newInstanceMap.put(instance.getInstanceId(), instance);
+        return new InstanceSnapshot(version + 1, newInstanceMap);
+    }
+
+    /**
+     * 在当前快照的基础上移除一个实例，生成新快照
+     */
+    public InstanceSnapshot without(String instanceId) {
+        Map<String, ServiceInstance> newInstanceMap = new LinkedHashMap<>(instanceMap);
+        newInstanceMap.remove(instanceId);
+        return new InstanceSnapshot(version + 1, newInstanceMap);
+    }
+
+    /**
+     * 设置实例的首次发现时间：当前快照中已有该实例时沿用，否则为当前时间
+     */
+    private void inheritFirstSeenTime(ServiceInstance instance, long now) {
+        ServiceInstance previous = instanceMap.get(instance.getInstanceId());
+        instance.setFirstSeenTime(previous != null ? previous.getFirstSeenTime() : now);
+    }
+
+    /**
+     * 是否存在启用的灰度实例
+     */
+    public boolean hasGrayInstances() {
+        return !grayInstances.isEmpty();
+    }
+
+    /**
+     * 是否存在启用的非灰度实例
+     */
+    public boolean hasNonGrayInstances() {
+        return !nonGrayInstances.isEmpty();
+    }
+
+}
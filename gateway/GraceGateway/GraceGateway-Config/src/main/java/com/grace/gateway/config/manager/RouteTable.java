@@ -0,0 +1,94 @@
+package com.grace.gateway.config.manager;
+
+import com.grace.gateway.config.helper.RouteTrie;
+import com.grace.gateway.config.pojo.RouteDefinition;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 路由表快照
+ * 包含某一版本下的全部路由映射和编译好的路由前缀树，创建后不可变
+ * 路由更新时在旁路构建新快照，再整体替换，读请求总能看到完整一致的路由表
+ */
+@Getter
+public class RouteTable {
+
+    /**
+     * 空路由表
+     */
+    public static final RouteTable EMPTY = new RouteTable(0, new HashMap<>(), new HashMap<>(), new HashMap<>(),
+            RouteTrie.build(Collections.emptyList()));
+
+    /**
+     * 版本号，每次更新递增
+     */
+    private final long version;
+
+    /**
+     * 路由ID -> 路由定义
+     */
+    private final Map<String /* 路由id */, RouteDefinition> routeId2RouteMap;
+
+    /**
+     * 服务名 -> 路由定义
+     */
+    private final Map<String /* 服务名 */, RouteDefinition> serviceName2RouteMap;
+
+    /**
+     * URI路径 -> 路由定义
+     */
+    private final Map<String /* URI路径 */, RouteDefinition> uri2RouteMap;
+
+    /**
+     * 由 uri2RouteMap 编译的路由前缀树
+     */
+    private final RouteTrie routeTrie;
+
+    private RouteTable(long version, Map<String, RouteDefinition> routeId2RouteMap,
+                       Map<String, RouteDefinition> serviceName2RouteMap, Map<String, RouteDefinition> uri2RouteMap,
+                       RouteTrie routeTrie) {
+        this.version = version;
+        this.routeId2RouteMap = Collections.unmodifiableMap(routeId2RouteMap);
+        this.serviceName2RouteMap = Collections.unmodifiableMap(serviceName2RouteMap);
+        this.uri2RouteMap = Collections.unmodifiableMap(uri2RouteMap);
+        this.routeTrie = routeTrie;
+    }
+
+    /**
+     * 在当前快照的基础上合并路由，生成新快照
+     *
+     * @param routes 路由定义集合
+     * @param clear  是否丢弃当前快照中的路由
+     * @return 新快照
+     */
+    public RouteTable merge(Collection<RouteDefinition> routes, boolean clear) {
+        Map<String, RouteDefinition> routeIdMap = clear ? new HashMap<>() : new HashMap<>(routeId2RouteMap);
+        Map<String, RouteDefinition> serviceNameMap = clear ? new HashMap<>() : new HashMap<>(serviceName2RouteMap);
+        Map<String, RouteDefinition> uriMap = clear ? new HashMap<>() : new HashMap<>(uri2RouteMap);
+        for (RouteDefinition route : routes) {
+            if (route == null) continue;
+            routeIdMap.put(route.getId(), route);
+            serviceNameMap.put(route.getServiceName(), route);
+            uriMap.put(route.getUri(), route);
+        }
+        return new RouteTable(version + 1, routeIdMap, serviceNameMap, uriMap, RouteTrie.build(uriMap.values()));
+    }
+
+    /**
+     * 只更新路由ID映射，生成新快照，URI映射不变，复用当前的路由前缀树
+     *
+     * @param id              路由ID
+     * @param routeDefinition 路由定义
+     * @return 新快照
+     */
+    public RouteTable withRouteId(String id, RouteDefinition routeDefinition) {
+        Map<String, RouteDefinition> routeIdMap = new HashMap<>(routeId2RouteMap);
+        routeIdMap.put(id, routeDefinition);
+        return new RouteTable(version + 1, routeIdMap, serviceName2RouteMap, uri2RouteMap, routeTrie);
+    }
+
+}
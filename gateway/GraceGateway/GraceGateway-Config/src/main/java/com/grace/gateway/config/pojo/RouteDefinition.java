@@ -2,6 +2,7 @@ package com.grace.gateway.config.pojo;
 
 import com.grace.gateway.common.enums.CircuitBreakerEnum;
 import com.grace.gateway.common.enums.FlowEnum;
+import com.grace.gateway.common.enums.FlowKeyEnum;
 import com.grace.gateway.common.enums.ResilienceEnum;
 import lombok.Data;
 
@@ -13,6 +14,7 @@ import static com.grace.gateway.common.constant.GrayConstant.THRESHOLD_GRAY_STRA
 import static com.grace.gateway.common.constant.LoadBalanceConstant.ROUND_ROBIN_LOAD_BALANCE_STRATEGY;
 import static com.grace.gateway.common.constant.LoadBalanceConstant.VIRTUAL_NODE_NUM;
 import static com.grace.gateway.common.enums.FlowEnum.TOKEN_BUCKET;
+import static com.grace.gateway.common.enums.FlowKeyEnum.SERVICE;
 import static com.grace.gateway.common.enums.ResilienceEnum.*;
 
 @Data
@@ -30,6 +32,9 @@ public class RouteDefinition {
     // 路由顺序，当请求匹配到多个路由时，选择顺序小的
     private int order = 0;
 
+    // 是否开启流式代理，开启后请求体和响应体不再整体聚合，而是按块边读边转发，适合大文件上传下载、SSE等场景
+    private boolean streaming = false;
+
     // 系统弹性配置，熔断、降级、重试等
     private ResilienceConfig resilience = new ResilienceConfig();
 
@@ -52,6 +57,8 @@ public class RouteDefinition {
         // Retry
         private int maxAttempts = 3; // 重试次数
         private int waitDuration = 500; // 重试间隔
+        private boolean retryNonIdempotent = false; // 是否重试非幂等请求（POST、PATCH），默认只重试GET、HEAD、OPTIONS、TRACE、PUT、DELETE
+        private int retryBudgetPercent = 20; // 重试请求数占请求数的最大百分比，防止下游故障时重试放大流量
 
         // CircuitBreaker
         private int failureRateThreshold = 50; // 以百分比配置失败率阈值。当失败率大于等于阈值时，进行熔断，并进行服务降级
@@ -74,9 +81,14 @@ public class RouteDefinition {
         private boolean fairCallHandlingEnabled = false; // 是否公平竞争信号量
 
         // ThreadPoolBulkhead
-        private int coreThreadPoolSize = 5; // 核心线程数
-        private int maxThreadPoolSize = 10; // 最大线程数
-        private int queueCapacity = 100; // 队列容量
+        private int coreThreadPoolSize = 5; // 核心线程数，异步隔离不占用线程，已不再使用
+        private int maxThreadPoolSize = 10; // 最大线程数，即单个服务的最大在途请求数
+        private int queueCapacity = 100; // 队列容量，在途请求数达到上限后最多排队的请求数
+
+        // Hedge
+        private boolean hedgeEnabled = false; // 是否开启对冲请求，只对没有请求体的GET、HEAD请求生效
+        private int hedgeDelay = 0; // 发出对冲请求前等待的时间，单位ms，0表示使用该服务最近请求耗时的p95
+        private int hedgeBudgetPercent = 10; // 对冲请求数占请求数的最大百分比
 
     }
 
@@ -135,6 +147,22 @@ public class RouteDefinition {
          */
         private int virtualNodeNum = VIRTUAL_NODE_NUM;
 
+        /**
+         * 慢启动时长（毫秒），新发现的实例在该时长内权重从最小比例逐渐升到配置的权重，0 表示不开启
+         * 对按权重选择实例的策略生效
+         */
+        private long slowStartMillis = 0;
+
+        /**
+         * 慢启动的最小权重比例（百分比），刚上线的实例至少按该比例分配流量
+         */
+        private int slowStartMinWeightPercent = 10;
+
+        /**
+         * 被动异常实例检测配置
+         */
+        private OutlierDetectionConfig outlierDetection = new OutlierDetectionConfig();
+
     }
 
     @Data
@@ -152,6 +180,7 @@ public class RouteDefinition {
 
         /**
          * 容量
+         * 如果是自适应并发，则是并发上限的最大值
          */
         private int capacity = 1000;
 
@@ -159,10 +188,149 @@ public class RouteDefinition {
          * 速率
          * 如果是滑动窗口则是窗口大小，单位 ms
          * 如果是令牌桶，则是令牌桶生成速率，单位 个/s
-         * 如果是漏桶，则是漏桶速率，单位 ms/个
+         * 如果是漏桶，则是漏桶出水速率，单位 个/s
+         * 如果是GCRA，则是请求的平均速率，单位 个/s
+         */
+        private int rate = 500;
+
+        /**
+         * GCRA允许的突发请求数，即空闲时最多可以连续放行的请求数
+         */
+        private int burst = 500;
+
+        /**
+         * 漏桶中请求的最大等待时间，单位 ms，预计等待超过该时间的请求直接拒绝
+         */
+        private int maxWaitMillis = 1000;
+
+        /**
+         * 自适应并发的初始并发上限，之后根据下游响应耗时自动调整
+         */
+        private int initialLimit = 20;
+
+        /**
+         * 路由级限流，同一路由的所有请求共用，为null表示不限
+         */
+        private LimitConfig routeLimit;
+
+        /**
+         * 请求方法级限流，请求方法（大写，如 GET） -> 限流配置，同一路由同一请求方法的所有请求共用
+         */
+        private Map<String, LimitConfig> methodLimits;
+
+        /**
+         * 滑动窗口的子窗口个数，窗口按时间均分为多个子窗口计数，个数越多越接近按请求时间戳滑动的效果
+         */
+        private int precision = 10;
+
+        /**
+         * 限流维度，默认整个服务共用一个限流器
+         */
+        private FlowKeyEnum keyType = SERVICE;
+
+        /**
+         * 限流维度为请求头、查询参数、Cookie时，对应的名称
+         */
+        private String keyName;
+
+        /**
+         * 每个服务最多保存的限流器个数，按键限流时生效；超过时淘汰最近未访问且访问频率低于新键的限流器，未准入的键按哈希分到16个溢出限流器上共用
+         */
+        private int maxKeys = 10000;
+
+    }
+
+    /**
+     * 分层限流中某一层的限流配置
+     * 多层限流需要在某一层拒绝时归还其它层已占用的额度，因此只支持令牌桶、滑动窗口、GCRA，其它类型按令牌桶处理
+     */
+    @Data
+    public static class LimitConfig {
+
+        /**
+         * 流控类型
+         */
+        private FlowEnum type = TOKEN_BUCKET;
+
+        /**
+         * 容量，含义同 FlowFilterConfig.capacity
+         */
+        private int capacity = 1000;
+
+        /**
+         * 速率，含义同 FlowFilterConfig.rate
          */
         private int rate = 500;
 
+        /**
+         * GCRA允许的突发请求数
+         */
+        private int burst = 500;
+
+        /**
+         * 滑动窗口的子窗口个数
+         */
+        private int precision = 10;
+
+    }
+
+    /**
+     * 被动异常实例检测配置
+     * 根据实际转发结果发现持续出错的实例，将其暂时移出负载均衡候选列表
+     */
+    @Data
+    public static class OutlierDetectionConfig {
+
+        /**
+         * 是否开启异常实例检测
+         */
+        private boolean enabled = false;
+
+        /**
+         * 连续返回5xx的次数达到该值时驱逐实例，0 表示不检测
+         */
+        private int consecutive5xx = 5;
+
+        /**
+         * 连续连接失败（连接被拒绝、超时等）的次数达到该值时驱逐实例，0 表示不检测
+         */
+        private int consecutiveConnectFailure = 5;
+
+        /**
+         * 成功率检测周期（毫秒）
+         */
+        private long intervalMillis = 10000;
+
+        /**
+         * 成功率低于服务中位数的该比例时驱逐实例，0 表示不检测成功率
+         */
+        private double successRateRatio = 0.9;
+
+        /**
+         * 一个检测周期内请求数达到该值的实例才参与成功率检测
+         */
+        private int successRateRequestVolume = 100;
+
+        /**
+         * 参与成功率检测的实例数达到该值时才检测成功率
+         */
+        private int successRateMinimumHosts = 5;
+
+        /**
+         * 基础驱逐时长（毫秒），实例每多被驱逐一次，驱逐时长翻倍
+         */
+        private long baseEjectionMillis = 30000;
+
+        /**
+         * 最大驱逐时长（毫秒）
+         */
+        private long maxEjectionMillis = 300000;
+
+        /**
+         * 同一服务最多同时驱逐的实例比例（百分比），至少允许驱逐一个实例，且不会驱逐全部实例
+         */
+        private int maxEjectionPercent = 10;
+
     }
 }
 
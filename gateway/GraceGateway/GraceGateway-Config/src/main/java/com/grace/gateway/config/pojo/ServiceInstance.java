@@ -1,6 +1,7 @@
 package com.grace.gateway.config.pojo;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -54,4 +55,11 @@ public class ServiceInstance implements Serializable {
      */
     private double threshold;
 
+    /**
+     * 网关首次发现该实例的时间（毫秒），由实例快照维护，实例信息更新时沿用，0 表示网关启动时就已存在
+     * 用于新实例的慢启动预热，不参与实例比较
+     */
+    @EqualsAndHashCode.Exclude
+    private long firstSeenTime;
+
 }
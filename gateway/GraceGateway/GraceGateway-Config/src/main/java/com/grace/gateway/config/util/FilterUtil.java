@@ -1,6 +1,7 @@
 package com.grace.gateway.config.util;
 
-import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.grace.gateway.config.pojo.RouteDefinition;
 
@@ -42,9 +43,23 @@ public class FilterUtil {
         if (filterConfig == null) {
             return null;
         }
-        // 3. 将原始配置中的配置信息（通常是 Map 或 JSON 结构）转换为目标类对象
-        // BeanUtil.toBean：工具方法，将一种数据结构（如 Map）映射为指定类的实例
-        return BeanUtil.toBean(filterConfig.getConfig(), clazz);
+        // 3. 将原始配置中的 JSON 配置转换为目标类对象
+        return JSONUtil.toBean(filterConfig.getConfig(), clazz);
+    }
+
+    /**
+     * 将过滤器的原始配置解析为目标类型，未配置或配置为空时返回目标类型的默认实例
+     *
+     * @param filterConfig 过滤器原始配置，可以为 null
+     * @param clazz        目标转换类型
+     * @param <T>          泛型类型
+     * @return 解析后的配置对象，非空
+     */
+    public static <T> T parseFilterConfig(RouteDefinition.FilterConfig filterConfig, Class<T> clazz) {
+        if (filterConfig == null || StrUtil.isBlank(filterConfig.getConfig())) {
+            return ReflectUtil.newInstance(clazz);
+        }
+        return JSONUtil.toBean(filterConfig.getConfig(), clazz);
     }
 
     public static RouteDefinition.FilterConfig buildDefaultGrayFilterConfig() {
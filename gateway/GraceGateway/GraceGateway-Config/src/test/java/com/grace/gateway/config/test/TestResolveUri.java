@@ -2,10 +2,14 @@ package com.grace.gateway.config.test;
 
 import com.grace.gateway.config.config.Config;
 import com.grace.gateway.config.helper.RouteResolver;
+import com.grace.gateway.config.helper.RouteTrie;
 import com.grace.gateway.config.loader.ConfigLoader;
 import com.grace.gateway.config.manager.DynamicConfigManager;
+import com.grace.gateway.config.pojo.RouteDefinition;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -41,4 +45,31 @@ public class TestResolveUri {
         System.out.println(RouteResolver.matchingRouteByUri("/order/cancel/hello"));
     }
 
+    @Test
+    public void testRouteTrie() {
+        RouteTrie trie = RouteTrie.build(Arrays.asList(
+                route("/user/**", 0),
+                route("/user/info", 5),
+                route("/order/**", 0),
+                route("/order/cancel/**", 0),
+                route("/item/{id}/detail", 0),
+                route("/file/*.json", 0),
+                route("/**", 9)
+        ));
+        Assert.assertEquals("/user/**", trie.match("/user/register").getUri());
+        Assert.assertEquals("/user/**", trie.match("/user/info").getUri()); // order小的优先
+        Assert.assertEquals("/**", trie.match("/user").getUri()); // ** 至少匹配一个路径段
+        Assert.assertEquals("/order/cancel/**", trie.match("/order/cancel/hello").getUri()); // order相同，URI长的优先
+        Assert.assertEquals("/item/{id}/detail", trie.match("/item/3/detail").getUri());
+        Assert.assertEquals("/file/*.json", trie.match("/file/a.json").getUri());
+        Assert.assertNull(RouteTrie.build(Arrays.asList(route("/user/**", 0))).match("/order/hello"));
+    }
+
+    private RouteDefinition route(String uri, int order) {
+        RouteDefinition route = new RouteDefinition();
+        route.setUri(uri);
+        route.setOrder(order);
+        return route;
+    }
+
 }
@@ -0,0 +1,140 @@
+package com.grace.gateway.core.algorithm;
+
+import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.common.exception.LimitedException;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.flow.RateLimiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发限流器（Gradient2算法）
+ * 核心思想：不配置固定的速率，而是限制同时在途的请求数，并根据下游响应耗时持续调整并发上限
+ * 1. 长期耗时：响应耗时的指数移动平均，代表下游无排队时的耗时水平
+ * 2. 梯度 = 容忍系数 × 长期耗时 / 本次耗时，限制在 [0.5, 1] 之间：耗时上升说明下游开始排队，梯度小于1，上限随之收缩
+ * 3. 新上限 = 当前上限 × 梯度 + 排队余量，再与当前上限做平滑，避免抖动
+ * 4. 在途请求数不到上限一半时说明流量本身不大，不调整上限，避免上限在空闲时无限增长
+ */
+public class AdaptiveConcurrencyLimiter implements RateLimiter {
+
+    // 本次耗时超过长期耗时的容忍系数
+    private static final double RTT_TOLERANCE = 1.5;
+
+    // 新旧上限的平滑系数
+    private static final double SMOOTHING = 0.2;
+
+    // 长期耗时的移动平均窗口（样本数）
+    private static final int LONG_WINDOW = 600;
+
+    // 预热样本数，预热期间长期耗时取算术平均
+    private static final int WARMUP_WINDOW = 10;
+
+    // 最小并发上限
+    private static final int MIN_LIMIT = 1;
+
+    // 最大并发上限
+    private final int maxLimit;
+
+    // 当前在途请求数
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    // 当前并发上限，只在 onSample 中修改
+    private volatile double estimatedLimit;
+
+    // 长期耗时（纳秒）
+    private double longRtt;
+
+    // 已统计的样本数
+    private int sampleCount;
+
+    /**
+     * 构造自适应并发限流器
+     * @param initialLimit 初始并发上限
+     * @param maxLimit 最大并发上限
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.estimatedLimit = Math.max(MIN_LIMIT, Math.min(initialLimit, this.maxLimit));
+    }
+
+    /**
+     * 尝试占用一个并发额度，占用成功后在请求结束时归还并统计耗时
+     * @param context 网关请求上下文
+     * @throws LimitedException 在途请求数达到上限时抛出限流异常
+     */
+    @Override
+    public void tryConsume(GatewayContext context) {
+        int inflightAtStart = tryAcquire();
+        if (inflightAtStart < 0) {
+            throw new LimitedException(ResponseCode.TOO_MANY_REQUESTS);
+        }
+        long startNanos = System.nanoTime();
+        context.addCompletionListener(() -> {
+            inflight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inflightAtStart);
+        });
+        context.doFilter();
+    }
+
+    /**
+     * 尝试占用一个并发额度
+     * @return 占用后的在途请求数，-1 表示已达上限
+     */
+    private int tryAcquire() {
+        int limit = (int) estimatedLimit;
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return -1;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * 统计一次请求耗时并调整并发上限
+     * @param rttNanos 请求耗时（纳秒）
+     * @param inflightAtStart 请求开始时的在途请求数
+     */
+    private synchronized void onSample(long rttNanos, int inflightAtStart) {
+        double shortRtt = Math.max(1, rttNanos);
+        // 更新长期耗时
+        sampleCount++;
+        if (sampleCount <= WARMUP_WINDOW) {
+            longRtt += (shortRtt - longRtt) / sampleCount;
+        } else {
+            longRtt += (shortRtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        // 下游从高延迟中恢复时，长期耗时向本次耗时快速回落，避免长时间不收缩
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // 流量本身不大时不调整上限
+        double limit = estimatedLimit;
+        if (inflightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        // 排队余量随上限增长，保证上限有增长空间
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+}
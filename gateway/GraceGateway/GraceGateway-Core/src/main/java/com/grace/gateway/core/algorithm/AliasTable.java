@@ -0,0 +1,125 @@
+package com.grace.gateway.core.algorithm;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 别名表（Vose Alias Method）
+ * 用于按权重随机选择，构造时 O(n) 预处理，之后每次选择只需一个随机下标和一次比较，时间 O(1)，不分配对象
+ * 核心思想：把 n 个权重拉平成 n 个等高的格子，每个格子最多由两个元素组成（自身和一个“别名”），
+ * 随机选一个格子后再掷一次硬币决定取自身还是别名
+ * 构造后只读，可在多线程间共享
+ */
+public class AliasTable {
+    /**
+     * 每个格子取自身的概率
+     */
+    private final double[] prob;
+    /**
+     * 每个格子的别名（另一个元素的下标）
+     */
+    private final int[] alias;
+    /**
+     * 权重之和
+     */
+    private final double totalWeight;
+
+    /**
+     * 构造别名表
+     * @param weights 各元素的权重，不能为负，权重为0的元素不会被选中
+     */
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        this.prob = new double[n];
+        this.alias = new int[n];
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(0, weight);
+        }
+        this.totalWeight = total;
+        if (n == 0 || total <= 0) {
+            return;
+        }
+        // 按平均值归一化，小于1的放入small，其余放入large（用数组模拟栈，避免装箱）
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = Math.max(0, weights[i]) * n / total;
+            if (scaled[i] < 1) {
+                small[smallSize++] = i;
+            } else {
+                large[largeSize++] = i;
+            }
+        }
+        // 每次用一个大元素补齐一个小元素的格子，大元素剩余部分按大小重新归类
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+            prob[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+        // 剩余的格子（包括浮点误差导致的残留）都是满的
+        while (largeSize > 0) {
+            prob[large[--largeSize]] = 1;
+        }
+        while (smallSize > 0) {
+            prob[small[--smallSize]] = 1;
+        }
+    }
+
+    /**
+     * 是否没有可选元素（没有元素或权重之和不大于0）
+     */
+    public boolean isEmpty() {
+        return totalWeight <= 0;
+    }
+
+    /**
+     * 按权重随机选择一个元素
+     * @return 元素下标，没有可选元素时返回-1
+     */
+    public int next() {
+        if (isEmpty()) {
+            return -1;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return select(random.nextInt(prob.length), random.nextDouble());
+    }
+
+    /**
+     * 根据哈希值按权重选择一个元素，相同的哈希值总是选中相同的元素
+     * @param hash 哈希值
+     * @return 元素下标，没有可选元素时返回-1
+     */
+    public int select(int hash) {
+        if (isEmpty()) {
+            return -1;
+        }
+        // 先打散哈希值，高位决定格子，低位决定取自身还是别名
+        long mixed = mix(hash);
+        int column = (int) ((mixed >>> 32) % prob.length);
+        double coin = (mixed & 0xFFFFFFFFL) / (double) (1L << 32);
+        return select(column, coin);
+    }
+
+    private int select(int column, double coin) {
+        return coin < prob[column] ? column : alias[column];
+    }
+
+    /**
+     * 64位哈希打散（SplitMix64的终结函数）
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return (value ^ (value >>> 31)) >>> 1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.grace.gateway.core.algorithm;
+
+import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.common.exception.LimitedException;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.flow.RefundableRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 通用信元速率算法（GCRA）限流器
+ * 核心思想：只记录下一个请求的“理论到达时间”（TAT），请求按 1/速率 的间隔均匀放行，
+ * 请求早于理论到达时间的部分不超过突发容忍度时放行，否则拒绝，并可以精确算出还需等待多久
+ * 效果等同于令牌桶，但状态只有一个 long，每个请求一次CAS，适合按客户端等高基数维度限流
+ */
+public class GcraRateLimiter implements RefundableRateLimiter {
+
+    // 请求之间的理论间隔（纳秒），即 1/速率
+    private final long emissionIntervalNanos;
+    // 突发容忍度（纳秒），理论到达时间最多可以领先当前时刻的时长，等于 突发请求数 × 理论间隔
+    private final long toleranceNanos;
+    // 理论到达时间（纳秒）
+    private final AtomicLong tat;
+
+    /**
+     * 构造GCRA限流器
+     * @param ratePerSecond 请求的平均速率（个/s）
+     * @param burst 突发请求数，空闲时最多可以连续放行的请求数
+     */
+    public GcraRateLimiter(int ratePerSecond, int burst) {
+        this.emissionIntervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / Math.max(1, ratePerSecond));
+        this.toleranceNanos = Math.max(1, burst) * emissionIntervalNanos;
+        this.tat = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 尝试处理请求
+     * @param context 网关请求上下文
+     * @throws LimitedException 超过速率时抛出限流异常，携带建议的重试等待时间
+     */
+    @Override
+    public void tryConsume(GatewayContext context) {
+        tryAcquire(context);
+        context.doFilter();
+    }
+
+    /**
+     * 放行一个请求，不继续执行过滤链
+     * @param context 网关请求上下文
+     * @throws LimitedException 超过速率时抛出限流异常，携带建议的重试等待时间
+     */
+    @Override
+    public long tryAcquire(GatewayContext context) {
+        long waitNanos = acquire();
+        if (waitNanos > 0) {
+            throw new LimitedException(ResponseCode.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1);
+        }
+        return 0;
+    }
+
+    /**
+     * 归还放行的请求：理论到达时间回退一个理论间隔，与放行的时刻无关，不需要凭证
+     */
+    @Override
+    public void refund(long permit) {
+        tat.addAndGet(-emissionIntervalNanos);
+    }
+
+    /**
+     * 尝试放行一个请求
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    private long acquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = tat.get();
+            // 理论到达时间已经过去时从当前时刻开始计算
+            long next = (current - now > 0 ? current : now) + emissionIntervalNanos;
+            long waitNanos = next - now - toleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -1,87 +1,173 @@
 package com.grace.gateway.core.algorithm;
 
 import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.common.exception.GatewayException;
 import com.grace.gateway.common.exception.LimitedException;
 import com.grace.gateway.core.context.GatewayContext;
 import com.grace.gateway.core.filter.flow.RateLimiter;
-import io.netty.channel.EventLoopGroup;
+import com.grace.gateway.core.helper.ResponseHelper;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.FullHttpResponse;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 漏桶算法实现类，用于网关的流量控制
  * 漏桶算法核心思想：水（请求）先进入桶，桶以固定速率出水（处理请求），桶满则拒绝水进入
  * 适用于平滑突发流量，保证下游服务按稳定速率处理请求
+ * 实现方式：不维护全局等待队列和常驻的漏水任务，而是记录“下一个请求的出水时刻”，出水时刻间隔 1/速率，
+ * 需要等待的请求在客户端连接所在的EventLoop上定时继续执行，等待队列天然按EventLoop分片；
+ * 排队时长超过最大等待时间的请求直接拒绝，不会在桶里等到客户端超时
+ * 速率超过 1000个/s 时，每个线程（EventLoop）一次CAS领取一批约1ms的出水时刻，之后在本线程内依次分配，
+ * 全局出水时刻的竞争降为每毫秒每个线程一次；长期速率不变，每个线程最多多放行一批未用完的出水时刻
  */
+@Slf4j
 public class LeakyBucketRateLimiter implements RateLimiter {
 
     // 漏桶的容量，即桶最多能容纳的请求数
     private final int bucketCapacity;
-    // 漏水的时间间隔（单位：毫秒），决定桶处理请求的速率
-    private final long leakInterval;
-    // 当前桶中的请求数量（水量）， AtomicInteger 保证线程安全
-    private final AtomicInteger currentWaterLevel;
-    // 等待队列，用于暂存无法立即处理的请求（桶未满时先入队，等待漏水后处理）
-    private final Queue<GatewayContext> waitingQueue;
+    // 漏水的时间间隔（纳秒），即 1/速率
+    private final long leakIntervalNanos;
+    // 请求在桶中的最大等待时间（纳秒）
+    private final long maxWaitNanos;
+    // 每次领取的出水时刻个数，约为1ms的速率，不超过桶的容量
+    private final int batchSize;
+    // 下一个未被领取的出水时刻（纳秒）
+    private final AtomicLong nextLeakTime;
+    // 线程 -> 该线程已领取、尚未分配的出水时刻，只被对应的线程读写
+    private final Map<Thread, Batch> batches = new ConcurrentHashMap<>();
 
     /**
      * 构造漏桶限流器
      * @param capacity 桶的容量
-     * @param leakInterval 漏水时间间隔（毫秒）
-     * @param eventLoopGroup Netty 的事件循环组，用于定时执行漏水任务
+     * @param ratePerSecond 出水速率（个/s）
+     * @param maxWaitMillis 请求在桶中的最大等待时间（毫秒）
      */
-    public LeakyBucketRateLimiter(int capacity, long leakInterval, EventLoopGroup eventLoopGroup) {
-        this.bucketCapacity = capacity;
-        this.leakInterval = leakInterval;
-        this.currentWaterLevel = new AtomicInteger(0);
-        this.waitingQueue = new ConcurrentLinkedQueue<>();
-        // 启动定时漏水任务，按固定间隔处理队列中的请求
-        startLeakTask(eventLoopGroup);
-    }
-
-    /**
-     * 启动定时漏水任务
-     * 作用：以固定速率从桶中取出请求，提交给 Netty 事件循环处理
-     * @param eventLoopGroup Netty 事件循环组，提供定时任务和请求处理的线程池
-     */
-    private void startLeakTask(EventLoopGroup eventLoopGroup) {
-        // 使用 Netty 的定时任务，按 leakInterval 间隔执行
-        eventLoopGroup.scheduleAtFixedRate(() -> {
-            // 队列非空且桶中有请求时，处理一个请求
-            if (!waitingQueue.isEmpty() && currentWaterLevel.get() > 0) {
-                // 从队列取出最早进入的请求上下文
-                GatewayContext gatewayContext = waitingQueue.poll();
-                if (gatewayContext != null) {
-                    // 将请求重新提交到 Netty 事件循环执行（保证线程模型正确）
-                    gatewayContext.getNettyCtx().executor().execute(() -> {
-                        // 处理请求前，桶中请求数减 1（漏水）
-                        currentWaterLevel.decrementAndGet();
-                        // 继续执行网关的过滤链（处理请求）
-                        gatewayContext.doFilter();
-                    });
-                }
-            }
-        }, leakInterval, leakInterval, TimeUnit.MILLISECONDS); // 初次延迟、间隔、时间单位
+    public LeakyBucketRateLimiter(int capacity, int ratePerSecond, long maxWaitMillis) {
+        this.bucketCapacity = Math.max(1, capacity);
+        this.leakIntervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / Math.max(1, ratePerSecond));
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWaitMillis));
+        this.batchSize = (int) Math.min(bucketCapacity, Math.max(1, TimeUnit.MILLISECONDS.toNanos(1) / leakIntervalNanos));
+        this.nextLeakTime = new AtomicLong(System.nanoTime());
     }
 
     /**
      * 尝试消耗桶的容量（处理请求）
      * 实现 RateLimiter 接口，网关在处理请求前会调用此方法
      * @param context 网关请求上下文，包含请求处理所需的信息
-     * @throws LimitedException 桶满时抛出异常，拒绝请求
+     * @throws LimitedException 桶满或等待时间超过上限时抛出异常，拒绝请求
      */
     @Override
     public void tryConsume(GatewayContext context) {
-        if (currentWaterLevel.get() < bucketCapacity) {
-            // 桶未满：请求入队，桶中请求数加 1
-            currentWaterLevel.incrementAndGet();
-            waitingQueue.offer(context);
+        long now = System.nanoTime();
+        long waitNanos = reserve(now) - now;
+        if (waitNanos <= 0) {
+            // 无需等待，直接继续执行过滤链
+            context.doFilter();
+            return;
+        }
+        // 到达出水时刻后在当前连接的EventLoop上继续执行过滤链
+        context.getNettyCtx().executor().schedule(() -> leak(context), waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 为一个请求领取出水时刻
+     * @param now 当前时刻（纳秒）
+     * @return 请求的出水时刻（纳秒），不晚于当前时刻表示无需等待
+     * @throws LimitedException 桶已满或等待时间超过上限时抛出，携带建议的重试等待时间
+     */
+    public long reserve(long now) {
+        if (batchSize == 1) {
+            return claim(now, 1);
+        }
+        Batch batch = batches.get(Thread.currentThread());
+        if (batch == null) {
+            batch = batches.computeIfAbsent(Thread.currentThread(), thread -> new Batch());
+        }
+        if (batch.remaining == 0) {
+            batch.next = claim(now, batchSize);
+            batch.remaining = batchSize;
         } else {
-            // 桶已满：直接拒绝请求，抛出限流异常
-            throw new LimitedException(ResponseCode.TOO_MANY_REQUESTS);
+            // 本线程剩余的出水时刻排得太远时拒绝，留给之后的请求
+            check(batch.next, now);
+        }
+        long leakTime = batch.next;
+        batch.next += leakIntervalNanos;
+        batch.remaining--;
+        return leakTime;
+    }
+
+    /**
+     * 从全局时间线上领取连续的 count 个出水时刻
+     * @return 第一个出水时刻
+     */
+    private long claim(long now, int count) {
+        while (true) {
+            long current = nextLeakTime.get();
+            // 桶空闲时从当前时刻开始出水
+            long leakTime = current - now > 0 ? current : now;
+            check(leakTime, now);
+            if (nextLeakTime.compareAndSet(current, leakTime + count * leakIntervalNanos)) {
+                return leakTime;
+            }
+        }
+    }
+
+    /**
+     * 排在前面的请求数（等待时长 / 漏水间隔）达到桶容量，或等待时间超过上限时拒绝，并告知客户端多久后桶里会空出位置
+     */
+    private void check(long leakTime, long now) {
+        long waitNanos = Math.max(0, leakTime - now);
+        if (waitNanos > maxWaitNanos || waitNanos / leakIntervalNanos >= bucketCapacity) {
+            long retryAfterNanos = Math.max(leakIntervalNanos, waitNanos - maxWaitNanos);
+            throw new LimitedException(ResponseCode.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos) + 1);
+        }
+    }
+
+    /**
+     * 出水：继续执行过滤链，排队期间客户端已断开时直接丢弃
+     */
+    private void leak(GatewayContext context) {
+        if (!context.getNettyCtx().channel().isActive()) {
+            discard(context, new IllegalStateException("client closed while waiting in leaky bucket"));
+            return;
+        }
+        try {
+            context.doFilter();
+        } catch (Throwable t) {
+            // 已脱离 NettyCoreProcessor 的调用栈，需要自己写回错误响应
+            log.error("漏桶出水后处理请求失败", t);
+            FullHttpResponse httpResponse = t instanceof GatewayException e
+                    ? ResponseHelper.buildHttpResponse(e) : ResponseHelper.buildHttpResponse(ResponseCode.INTERNAL_ERROR);
+            discard(context, t);
+            context.getNettyCtx().writeAndFlush(httpResponse).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * 丢弃请求：结束请求，终止流式请求体，释放请求缓冲区
+     */
+    private static void discard(GatewayContext context, Throwable cause) {
+        context.complete();
+        if (context.getRequest().isStreaming()) {
+            context.getRequest().getStreamingBody().abort(cause);
         }
+        context.getRequest().release();
+    }
+
+    /**
+     * 某个线程已领取的一批出水时刻
+     */
+    private static class Batch {
+
+        // 下一个可分配的出水时刻
+        private long next;
+
+        // 剩余可分配的个数
+        private int remaining;
     }
 }
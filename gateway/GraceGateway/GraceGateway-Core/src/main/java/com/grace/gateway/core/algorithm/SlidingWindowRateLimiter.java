@@ -3,77 +3,159 @@ package com.grace.gateway.core.algorithm;
 import com.grace.gateway.common.enums.ResponseCode;
 import com.grace.gateway.common.exception.LimitedException;
 import com.grace.gateway.core.context.GatewayContext;
-import com.grace.gateway.core.filter.flow.RateLimiter;
+import com.grace.gateway.core.filter.flow.RefundableRateLimiter;
 
-import java.time.Instant;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * 基于 “请求时间戳队列” 的固定窗口滑动限流算法实现类
+ * 基于环形计数数组的滑动窗口限流算法实现类
  * 核心思想：在一个时间窗口内控制请求数量，窗口随时间滑动，保证流量的平滑控制
  * 适用于需要限制单位时间内请求频率的场景（如接口限流）
+ * 实现方式：窗口按时间均分为 precision 个子窗口，每个子窗口一个计数槽，组成固定大小的环形数组；
+ * 每个槽用一个 long 同时保存子窗口编号（高32位）和计数（低32位），槽被新的子窗口复用时计数自动清零，
+ * 内存占用固定，计数通过CAS更新，不加锁
  */
-public class SlidingWindowRateLimiter implements RateLimiter {
+public class SlidingWindowRateLimiter implements RefundableRateLimiter {
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
 
     // 窗口内最大允许的请求数量（容量）
     private final int capacity;
-    // 时间窗口大小（毫秒），如 1000 表示 1 秒的窗口
-    private final int windowSizeInMillis;
-    // 存储请求时间戳的双端队列，用于维护滑动窗口内的请求记录
-    // LinkedList 实现 Deque 接口，支持高效的首尾操作
-    private final Deque<Long> requestTimestamps;
+    // 子窗口个数
+    private final int precision;
+    // 子窗口大小（纳秒）
+    private final long bucketNanos;
+    // 计时起点（纳秒），子窗口编号 = (当前时刻 - 计时起点) / 子窗口大小
+    private final long startNanos;
+    // 环形计数数组，槽位 = 子窗口编号 % 子窗口个数
+    private final AtomicLongArray buckets;
 
     /**
      * 构造滑动窗口限流器
      * @param capacity 窗口内最大允许的请求数
      * @param windowSizeInMillis 时间窗口大小（毫秒）
+     * @param precision 子窗口个数
      */
-    public SlidingWindowRateLimiter(int capacity, int windowSizeInMillis) {
+    public SlidingWindowRateLimiter(int capacity, int windowSizeInMillis, int precision) {
         this.capacity = capacity;
-        this.windowSizeInMillis = windowSizeInMillis;
-        // 初始化双端队列，用于存储请求时间戳
-        this.requestTimestamps = new LinkedList<>();
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, windowSizeInMillis));
+        this.precision = (int) Math.min(Math.max(1, precision), windowNanos);
+        this.bucketNanos = windowNanos / this.precision;
+        this.startNanos = System.nanoTime();
+        this.buckets = new AtomicLongArray(this.precision);
     }
 
     /**
      * 尝试处理请求，执行限流逻辑
-     * 注意：方法用 synchronized 保证线程安全，多线程下确保窗口内请求计数准确
      * @param context 网关请求上下文，包含请求处理所需的信息
      * @throws LimitedException 当超过限流阈值时抛出异常
      */
     @Override
-    public synchronized void tryConsume(GatewayContext context) {
-        // 获取当前时间戳（毫秒），作为滑动窗口的时间基准
-        long now = Instant.now().toEpochMilli();
-        // 清理窗口外的旧请求（保持队列中仅保留当前窗口内的请求）
-        cleanOldRequests(now);
-
-        // 判断当前窗口内的请求数量是否未超过容量
-        if (requestTimestamps.size() < capacity) {
-            // 将当前请求的时间戳加入队列
-            requestTimestamps.addLast(now);
-            // 继续执行网关的过滤链（请求通过限流，处理后续逻辑）
-            context.doFilter();
-        } else {
+    public void tryConsume(GatewayContext context) {
+        tryAcquire(context);
+        // 继续执行网关的过滤链（请求通过限流，处理后续逻辑）
+        context.doFilter();
+    }
+
+    /**
+     * 在当前窗口内记录一次请求，不继续执行过滤链
+     * @param context 网关请求上下文
+     * @return 记录请求的子窗口编号，归还时据此撤销
+     * @throws LimitedException 当超过限流阈值时抛出异常
+     */
+    @Override
+    public long tryAcquire(GatewayContext context) {
+        int epoch = currentEpoch();
+        if (!acquire(epoch)) {
             // 窗口内请求数已达上限，抛出限流异常
             throw new LimitedException(ResponseCode.TOO_MANY_REQUESTS);
         }
+        return epoch;
+    }
+
+    /**
+     * 撤销记录在子窗口 permit 中的请求
+     * 该子窗口已经滑出窗口时，它的计数不再参与统计，无需撤销
+     */
+    @Override
+    public void refund(long permit) {
+        int epoch = (int) permit;
+        int age = currentEpoch() - epoch;
+        if (age >= 0 && age < precision) {
+            decrement(Math.floorMod(epoch, precision), epoch);
+        }
+    }
+
+    /**
+     * 尝试在子窗口 epoch 内记录一次请求
+     * 先在该子窗口计数加一，再统计整个窗口的请求数，超过容量则撤销计数并拒绝，
+     * 并发时可能多拒绝个别请求，但窗口内通过的请求数不会超过容量
+     * @return 是否通过
+     */
+    private boolean acquire(int epoch) {
+        int index = Math.floorMod(epoch, precision);
+        increment(index, epoch);
+        if (count(epoch) <= capacity) {
+            return true;
+        }
+        decrement(index, epoch);
+        return false;
     }
 
     /**
-     * 清理时间窗口外的旧请求
-     * 保证队列中仅保留当前时间窗口内的请求时间戳
-     * @param currentTime 当前时间戳（毫秒）
+     * 当前子窗口计数加一，槽位中还是旧子窗口时重置为当前子窗口
      */
-    private void cleanOldRequests(long currentTime) {
-        // 循环检查队列头部（最旧的请求）是否在窗口外
-        // 队列为空时终止循环，避免 peekFirst() 空指针
-        while (!requestTimestamps.isEmpty()
-                // 计算最旧请求与当前时间的差值
-                && (currentTime - requestTimestamps.peekFirst()) > windowSizeInMillis) {
-            // 移除窗口外的旧请求时间戳（从队列头部弹出）
-            requestTimestamps.pollFirst();
+    private void increment(int index, int epoch) {
+        while (true) {
+            long current = buckets.get(index);
+            long next = epochOf(current) == epoch ? current + 1 : pack(epoch, 1);
+            if (buckets.compareAndSet(index, current, next)) {
+                return;
+            }
         }
     }
+
+    /**
+     * 撤销子窗口 epoch 的计数，槽位已被新的子窗口复用时无需撤销
+     */
+    private void decrement(int index, int epoch) {
+        while (true) {
+            long current = buckets.get(index);
+            if (epochOf(current) != epoch || (current & COUNT_MASK) == 0) {
+                return;
+            }
+            if (buckets.compareAndSet(index, current, current - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 统计以 epoch 结尾的 precision 个子窗口内的请求总数
+     */
+    private long count(int epoch) {
+        long total = 0;
+        for (int i = 0; i < precision; i++) {
+            long value = buckets.get(i);
+            // 子窗口编号按 int 回绕比较，落在 (epoch - precision, epoch] 内的才属于当前窗口
+            int age = epoch - epochOf(value);
+            if (age >= 0 && age < precision) {
+                total += value & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+
+    private int currentEpoch() {
+        return (int) ((System.nanoTime() - startNanos) / bucketNanos);
+    }
+
+    private static int epochOf(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static long pack(int epoch, long count) {
+        return ((long) epoch << 32) | count;
+    }
 }
@@ -0,0 +1,97 @@
+package com.grace.gateway.core.algorithm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 平滑加权轮询（与nginx的smooth weighted round-robin一致）
+ * 每轮选择时所有元素的当前值加上各自权重，选出当前值最大的元素，再把它的当前值减去权重之和；
+ * 这样高权重的元素不会被连续选中，而是均匀穿插在一个周期内，例如权重 {5, 1, 1} 的顺序为 a a b a c a a
+ * 实现方式：构造时预先算出一个完整周期的选择顺序，选择时只需一次原子自增和一次数组访问，时间 O(1)，不分配对象
+ */
+public class SmoothWeightedRoundRobin {
+    /**
+     * 一个周期的最大长度，权重之和（约去最大公约数后）超过该值时按比例缩小权重
+     */
+    private static final int MAX_SEQUENCE_LENGTH = 1 << 16;
+    /**
+     * 一个周期内的选择顺序（元素下标）
+     */
+    private final int[] sequence;
+    /**
+     * 轮询位置
+     */
+    private final AtomicInteger position = new AtomicInteger();
+
+    /**
+     * 构造平滑加权轮询
+     * @param weights 各元素的权重，不能为负，权重为0的元素不会被选中
+     */
+    public SmoothWeightedRoundRobin(int[] weights) {
+        int n = weights.length;
+        int[] effective = new int[n];
+        // 约去最大公约数，缩短周期
+        int gcd = 0;
+        for (int i = 0; i < n; i++) {
+            effective[i] = Math.max(0, weights[i]);
+            gcd = gcd(gcd, effective[i]);
+        }
+        long total = 0;
+        for (int i = 0; i < n && gcd > 0; i++) {
+            effective[i] /= gcd;
+            total += effective[i];
+        }
+        if (total > MAX_SEQUENCE_LENGTH) {
+            // 周期过长时按比例缩小权重，权重为正的元素至少保留1
+            long scaledTotal = 0;
+            for (int i = 0; i < n; i++) {
+                if (effective[i] > 0) {
+                    effective[i] = (int) Math.max(1, effective[i] * (long) MAX_SEQUENCE_LENGTH / total);
+                    scaledTotal += effective[i];
+                }
+            }
+            total = scaledTotal;
+        }
+        this.sequence = new int[(int) total];
+        long[] current = new long[n];
+        for (int k = 0; k < sequence.length; k++) {
+            int best = -1;
+            for (int i = 0; i < n; i++) {
+                if (effective[i] == 0) continue;
+                current[i] += effective[i];
+                if (best < 0 || current[i] > current[best]) {
+                    best = i;
+                }
+            }
+            current[best] -= total;
+            sequence[k] = best;
+        }
+    }
+
+    /**
+     * 是否没有可选元素（没有元素或权重之和为0）
+     */
+    public boolean isEmpty() {
+        return sequence.length == 0;
+    }
+
+    /**
+     * 按平滑加权轮询选择下一个元素
+     * @return 元素下标，没有可选元素时返回-1
+     */
+    public int next() {
+        if (isEmpty()) {
+            return -1;
+        }
+        // 自增溢出为负数后取模仍落在 [0, 周期长度) 内
+        return sequence[Math.floorMod(position.getAndIncrement(), sequence.length)];
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -1,9 +1,15 @@
 package com.grace.gateway.core.config;
 
+import com.grace.gateway.common.enums.HttpClientEnum;
 import com.grace.gateway.config.config.Config;
+import com.grace.gateway.core.filter.flow.GlobalRateLimiter;
+import com.grace.gateway.core.filter.loadbalance.HealthChecker;
+import com.grace.gateway.core.filter.loadbalance.OutlierDetector;
+import com.grace.gateway.core.netty.NativeNettyHttpClient;
 import com.grace.gateway.core.netty.NettyHttpClient;
 import com.grace.gateway.core.netty.NettyHttpServer;
 import com.grace.gateway.core.netty.processor.NettyCoreProcessor;
+import io.netty.channel.EventLoopGroup;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 /**
@@ -20,9 +26,9 @@ public class Container implements LifeCycle {
 
     /**
      * Netty HTTP客户端实例
-     * 负责网关向后端服务发起请求（如反向代理时调用上游服务）
+     * 负责网关向后端服务发起请求（如反向代理时调用上游服务），实现由 HttpClientConfig.type 决定
      */
-    private final NettyHttpClient nettyHttpClient;
+    private final LifeCycle nettyHttpClient;
 
     /**
      * 启动状态标记（原子布尔值，保证多线程环境下的线程安全）
@@ -36,10 +42,25 @@ public class Container implements LifeCycle {
      * @param config 网关全局配置对象（包含端口、超时时间等配置信息）
      */
     public Container(Config config) {
+        // 初始化网关全局限流器
+        GlobalRateLimiter.getInstance().initialized(config.getGlobalLimit());
         // 初始化Netty HTTP服务器，传入配置和核心处理器（负责请求处理逻辑）
         this.nettyHttpServer = new NettyHttpServer(config, new NettyCoreProcessor());
         // 初始化Netty HTTP客户端，传入配置（如连接池大小、超时设置等）
-        this.nettyHttpClient = new NettyHttpClient(config);
+        EventLoopGroup clientEventLoopGroup;
+        if (config.getHttpClient().getType() == HttpClientEnum.NETTY) {
+            // 原生客户端复用服务器的Worker线程组，下游连接与客户端连接绑定在同一个EventLoop上
+            clientEventLoopGroup = nettyHttpServer.getEventLoopGroupWorker();
+            this.nettyHttpClient = new NativeNettyHttpClient(config, clientEventLoopGroup);
+        } else {
+            NettyHttpClient asyncHttpClient = new NettyHttpClient(config);
+            clientEventLoopGroup = asyncHttpClient.getEventLoopGroupWorker();
+            this.nettyHttpClient = asyncHttpClient;
+        }
+        // 初始化下游实例主动健康检查，探测在下游客户端的EventLoop上执行
+        HealthChecker.getInstance().initialized(config.getHealthCheck(), clientEventLoopGroup);
+        // 初始化被动异常实例检测，定时检查在下游客户端的EventLoop上执行
+        OutlierDetector.getInstance().initialized(clientEventLoopGroup);
     }
 
     /**
@@ -56,6 +77,10 @@ public class Container implements LifeCycle {
         nettyHttpServer.start();
         // 启动Netty HTTP客户端（初始化连接池等资源，准备向后端服务发起请求）
         nettyHttpClient.start();
+        // 启动下游实例主动健康检查（未开启时不执行任何操作）
+        HealthChecker.getInstance().start();
+        // 启动被动异常实例检测的定时检查
+        OutlierDetector.getInstance().start();
     }
 
     /**
@@ -67,6 +92,10 @@ public class Container implements LifeCycle {
         // 仅当容器已启动（start为true）时执行关闭操作
         if (!start.get()) return;
 
+        // 停止下游实例主动健康检查
+        HealthChecker.getInstance().shutdown();
+        // 停止被动异常实例检测
+        OutlierDetector.getInstance().shutdown();
         // 关闭Netty HTTP服务器（停止监听，释放端口和线程资源）
         nettyHttpServer.shutdown();
         // 关闭Netty HTTP客户端（释放连接池、关闭空闲连接等）
@@ -1,18 +1,28 @@
 package com.grace.gateway.core.context;
 
 import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
 import com.grace.gateway.core.filter.FilterChain;
 import com.grace.gateway.core.helper.ContextHelper;
 import com.grace.gateway.core.request.GatewayRequest;
 import com.grace.gateway.core.response.GatewayResponse;
 import io.netty.channel.ChannelHandlerContext;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 网关上下文类
  * 封装请求处理过程中的所有关键信息，作为过滤器链执行的载体
  * 负责协调过滤器的前置/后置处理流程，贯穿请求处理的全生命周期
  */
+@Slf4j
 @Data // Lombok注解，自动生成getter、setter、toString等方法
 public class GatewayContext {
 
@@ -46,6 +56,12 @@ public class GatewayContext {
      */
     private RouteDefinition route;
 
+    /**
+     * 负载均衡选中的服务实例
+     * 由负载均衡过滤器设置，供路由阶段统计实例的响应耗时
+     */
+    private ServiceInstance serviceInstance;
+
     /**
      * 是否保持长连接
      * 由请求头Connection: keep-alive决定，用于控制响应后是否关闭通道
@@ -70,6 +86,21 @@ public class GatewayContext {
      */
     private boolean isDoPreFilter = true;
 
+    /**
+     * 请求完成回调
+     * 请求结束（响应写回或出错）时依次执行，用于归还并发额度、统计耗时等
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Runnable> completionListeners;
+
+    /**
+     * 请求是否已结束，保证完成回调只执行一次
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+
     /**
      * 构造方法：初始化网关上下文
      *
@@ -120,4 +151,48 @@ public class GatewayContext {
         }
     }
 
+    /**
+     * 注册请求完成回调
+     * 重试、对冲请求会在其它线程上重新选择实例并注册回调；请求已结束时回调立即执行
+     *
+     * @param listener 完成回调
+     */
+    public void addCompletionListener(Runnable listener) {
+        synchronized (completed) {
+            if (!completed.get()) {
+                if (completionListeners == null) {
+                    completionListeners = new ArrayList<>(2);
+                }
+                completionListeners.add(listener);
+                return;
+            }
+        }
+        runCompletionListener(listener);
+    }
+
+    /**
+     * 标记请求结束并执行完成回调，重复调用只生效一次
+     * 由写回响应（包括错误响应）的地方调用
+     */
+    public void complete() {
+        List<Runnable> listeners;
+        synchronized (completed) {
+            if (!completed.compareAndSet(false, true) || completionListeners == null) {
+                return;
+            }
+            listeners = completionListeners;
+        }
+        for (Runnable listener : listeners) {
+            runCompletionListener(listener);
+        }
+    }
+
+    private void runCompletionListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            log.error("请求完成回调执行异常", t);
+        }
+    }
+
 }
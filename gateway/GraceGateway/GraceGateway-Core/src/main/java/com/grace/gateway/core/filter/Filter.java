@@ -1,5 +1,6 @@
 package com.grace.gateway.core.filter;
 
+import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.core.context.GatewayContext;
 
 public interface Filter {
@@ -12,4 +13,25 @@ public interface Filter {
 
     int getOrder();
 
+    /**
+     * 解析路由中该过滤器的配置，构建过滤器链时只调用一次，结果保存在过滤器链中，请求时通过 FilterChain.getFilterConfig 获取
+     *
+     * @param filterConfig 路由中该过滤器的原始配置，未配置时为null
+     * @return 解析后的配置对象，没有配置的过滤器返回null
+     */
+    default Object parseConfig(RouteDefinition.FilterConfig filterConfig) {
+        return null;
+    }
+
+    /**
+     * 该过滤器在路由上是否启用，未启用的过滤器在构建过滤器链时直接剔除
+     *
+     * @param filterConfig 路由中该过滤器的原始配置，未配置时为null
+     * @param config       parseConfig 解析后的配置对象
+     * @return 是否启用
+     */
+    default boolean isEnabled(RouteDefinition.FilterConfig filterConfig, Object config) {
+        return filterConfig == null || filterConfig.isEnable();
+    }
+
 }
@@ -1,16 +1,17 @@
 package com.grace.gateway.core.filter;
 
+import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.core.context.GatewayContext;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 /**
  * 过滤器链
  * 管理一组过滤器的集合，负责过滤器的添加、排序和按顺序执行
  * 支持前置过滤（请求处理前）和后置过滤（请求处理后）逻辑
+ * 每条路由编译出一条过滤器链，同时保存各过滤器预先解析好的配置，请求时无需再解析
  */
 @Slf4j // Lombok注解，自动生成日志对象
 public class FilterChain {
@@ -18,6 +19,23 @@ public class FilterChain {
      * 存储过滤器的列表，按执行顺序维护
      */
     private final List<Filter> filters = new ArrayList<>();
+    /**
+     * 过滤器预先解析好的配置（key:过滤器标识，value:配置对象）
+     */
+    private final Map<String, Object> filterConfigs = new HashMap<>();
+    /**
+     * 编译该过滤器链所用的路由定义，路由更新后对象会变化，用于判断过滤器链是否过期
+     */
+    @Getter
+    private final RouteDefinition route;
+
+    public FilterChain() {
+        this(null);
+    }
+
+    public FilterChain(RouteDefinition route) {
+        this.route = route;
+    }
     /**
      * 向过滤器链添加单个过滤器
      *
@@ -28,6 +46,20 @@ public class FilterChain {
         filters.add(filter);
         return this;
     }
+    /**
+     * 向过滤器链添加单个过滤器及其预先解析好的配置
+     *
+     * @param filter 要添加的过滤器实例
+     * @param config 过滤器配置，可以为null
+     * @return 当前过滤器链对象（支持链式调用）
+     */
+    public FilterChain add(Filter filter, Object config) {
+        filters.add(filter);
+        if (config != null) {
+            filterConfigs.put(filter.mark(), config);
+        }
+        return this;
+    }
     /**
      * 向过滤器链批量添加过滤器
      *
@@ -46,6 +78,17 @@ public class FilterChain {
         // 使用Comparator比较过滤器的order值，实现排序
         filters.sort(Comparator.comparingInt(Filter::getOrder));
     }
+    /**
+     * 获取过滤器预先解析好的配置
+     *
+     * @param name 过滤器标识
+     * @param <T>  配置类型
+     * @return 配置对象，过滤器没有配置时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getFilterConfig(String name) {
+        return (T) filterConfigs.get(name);
+    }
     /**
      * 获取过滤器链中过滤器的数量
      *
@@ -1,17 +1,20 @@
 package com.grace.gateway.core.filter.flow;
 
 import cn.hutool.core.collection.ConcurrentHashSet;
+import com.grace.gateway.common.enums.FlowKeyEnum;
+import com.grace.gateway.common.enums.FlowScopeEnum;
+import com.grace.gateway.common.exception.LimitedException;
 import com.grace.gateway.config.manager.DynamicConfigManager;
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.util.FilterUtil;
-import com.grace.gateway.core.algorithm.LeakyBucketRateLimiter;
-import com.grace.gateway.core.algorithm.SlidingWindowRateLimiter;
-import com.grace.gateway.core.algorithm.TokenBucketRateLimiter;
 import com.grace.gateway.core.context.GatewayContext;
 import com.grace.gateway.core.filter.Filter;
-import io.netty.channel.EventLoop;
+import com.grace.gateway.core.request.GatewayRequest;
+import io.netty.handler.codec.http.cookie.Cookie;
 
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,41 +23,69 @@ import static com.grace.gateway.common.constant.FilterConstant.FLOW_FILTER_ORDER
 
 /**
  * 流量控制过滤器（限流过滤器）
- * 基于不同的限流算法（令牌桶、滑动窗口、漏桶）实现请求限流，
+ * 基于不同的限流算法（令牌桶、滑动窗口、漏桶、GCRA、自适应并发）实现请求限流，
  * 保证后端服务不被过量请求压垮，保护服务稳定性。
  * 核心逻辑：
  * 1. 从路由配置中读取限流规则
- * 2. 为每个服务动态创建/复用限流算法实例
+ * 2. 为每个服务、每个限流键（客户端IP、请求头、查询参数、Cookie）动态创建/复用限流算法实例
  * 3. 拦截请求时执行限流判断，决定是否放行或拒绝
+ * 分层限流：依次检查网关全局、路由、请求方法、服务四层，任意一层拒绝时归还已占用的额度，
+ * 保证一个请求要么计入所有层，要么都不计入，并在限流异常中标明触发限流的层级
  */
 public class FlowFilter implements Filter {
-    // 存储“服务名 -> 限流算法实例”的映射，保证线程安全（ConcurrentHashMap）
-    // 每个服务独立维护限流逻辑，避免不同服务流量互相影响
-    private final ConcurrentHashMap<String /* 服务名 */, RateLimiter> rateLimiterMap = new ConcurrentHashMap<>();
+
+    // 存储“服务名 -> 服务级限流器”的映射，保证线程安全（ConcurrentHashMap）
+    // 每个服务独立维护限流逻辑，避免不同服务流量互相影响；服务内再按限流键（客户端IP、请求头等）区分限流器
+    private final ConcurrentHashMap<String /* 服务名 */, ServiceRateLimiters> rateLimiterMap = new ConcurrentHashMap<>();
+
+    // 存储“路由ID -> 路由级、请求方法级限流器”的映射，路由的流控配置变化（重新解析）时重建
+    private final ConcurrentHashMap<String /* 路由id */, RouteRateLimiters> routeRateLimiterMap = new ConcurrentHashMap<>();
 
     // 记录已添加路由监听器的服务名，避免重复添加监听器
     private final Set<String> addListener = new ConcurrentHashSet<>();
 
     @Override
     public void doPreFilter(GatewayContext context) {
-        // 从路由配置中查找流量控制过滤器的配置（FlowFilterConfig）
-        // FilterUtil.findFilterConfigByClass：根据过滤器名称和类型，从路由配置中提取配置
-        RouteDefinition.FlowFilterConfig flowFilterConfig = Optional
-                .ofNullable(FilterUtil.findFilterConfigByClass(
-                        context.getRoute().getFilterConfigs(),
-                        FLOW_FILTER_NAME,
-                        RouteDefinition.FlowFilterConfig.class
-                ))
-                .orElse(new RouteDefinition.FlowFilterConfig()); // 无配置时用默认配置
-        // 如果限流功能未启用，直接执行后续过滤器逻辑
+        // 取过滤器链中预先解析好的流控配置
+        RouteDefinition.FlowFilterConfig flowFilterConfig = context.getFilterChain().getFilterConfig(FLOW_FILTER_NAME);
+
+        // 1. 网关全局、路由、请求方法三层限流，依次占用额度，某一层拒绝时按相反顺序归还前面各层的额度
+        RefundableRateLimiter globalRateLimiter = GlobalRateLimiter.getInstance().getRateLimiter();
+        RefundableRateLimiter routeRateLimiter = null;
+        RefundableRateLimiter methodRateLimiter = null;
+        if (flowFilterConfig.isEnabled()) {
+            RouteRateLimiters routeRateLimiters = getRouteRateLimiters(context.getRoute().getId(), flowFilterConfig);
+            routeRateLimiter = routeRateLimiters.routeRateLimiter;
+            methodRateLimiter = routeRateLimiters.methodRateLimiters.get(context.getRequest().getMethod().name());
+        }
+        long globalPermit = acquire(globalRateLimiter, context, FlowScopeEnum.GLOBAL);
+        long routePermit;
+        try {
+            routePermit = acquire(routeRateLimiter, context, FlowScopeEnum.ROUTE);
+        } catch (LimitedException e) {
+            refund(globalRateLimiter, globalPermit);
+            throw e;
+        }
+        long methodPermit;
+        try {
+            methodPermit = acquire(methodRateLimiter, context, FlowScopeEnum.METHOD);
+        } catch (LimitedException e) {
+            refund(routeRateLimiter, routePermit);
+            refund(globalRateLimiter, globalPermit);
+            throw e;
+        }
+
+        // 只配置了全局限流，路由本身未开启流控
         if (!flowFilterConfig.isEnabled()) {
             context.doFilter();
             return;
         }
+
+        // 2. 服务级限流
         // 获取当前请求的服务名（服务维度做限流）
         String serviceName = context.getRequest().getServiceDefinition().getServiceName();
-        // 为服务创建/复用限流算法实例（computeIfAbsent：不存在则创建，存在则直接获取）
-        RateLimiter rateLimiter = rateLimiterMap.computeIfAbsent(serviceName, name -> {
+        // 为服务创建/复用限流器（computeIfAbsent：不存在则创建，存在则直接获取）
+        ServiceRateLimiters serviceRateLimiters = rateLimiterMap.computeIfAbsent(serviceName, name -> {
             // 为服务添加路由配置变更监听器，配置变更时删除旧的限流实例（下次请求会重建）
             if (!addListener.contains(name)) {
                 DynamicConfigManager.getInstance().addRouteListener(name, newRoute -> {
@@ -62,11 +93,35 @@ public class FlowFilter implements Filter {
                 });
                 addListener.add(name); // 标记已添加监听器
             }
-            // 根据配置初始化限流算法（令牌桶、滑动窗口、漏桶）
-            return initRateLimiter(flowFilterConfig, context.getNettyCtx().channel().eventLoop());
+            return new ServiceRateLimiters(flowFilterConfig);
         });
+        // 按服务限流时直接使用服务唯一的限流器，否则按限流键从限流器存储中获取
+        RateLimiter rateLimiter = serviceRateLimiters.serviceRateLimiter != null
+                ? serviceRateLimiters.serviceRateLimiter
+                : serviceRateLimiters.rateLimiterStore.get(resolveKey(context, flowFilterConfig),
+                        key -> RateLimiterFactory.create(flowFilterConfig));
         // 执行限流判断：尝试获取令牌/检查流量是否超限
-        rateLimiter.tryConsume(context);
+        if (rateLimiter instanceof RefundableRateLimiter refundableRateLimiter) {
+            try {
+                refundableRateLimiter.tryAcquire(context);
+            } catch (LimitedException e) {
+                refund(methodRateLimiter, methodPermit);
+                refund(routeRateLimiter, routePermit);
+                refund(globalRateLimiter, globalPermit);
+                throw scoped(e, FlowScopeEnum.SERVICE);
+            }
+            context.doFilter();
+        } else {
+            // 漏桶、自适应并发的拒绝在继续执行过滤链之前抛出，流控之后的过滤器不会抛出限流异常
+            try {
+                rateLimiter.tryConsume(context);
+            } catch (LimitedException e) {
+                refund(methodRateLimiter, methodPermit);
+                refund(routeRateLimiter, routePermit);
+                refund(globalRateLimiter, globalPermit);
+                throw scoped(e, FlowScopeEnum.SERVICE);
+            }
+        }
     }
 
     @Override
@@ -74,6 +129,23 @@ public class FlowFilter implements Filter {
         context.doFilter();
     }
 
+    /**
+     * 解析流控配置，未配置时使用默认配置
+     */
+    @Override
+    public Object parseConfig(RouteDefinition.FilterConfig filterConfig) {
+        return FilterUtil.parseFilterConfig(filterConfig, RouteDefinition.FlowFilterConfig.class);
+    }
+
+    /**
+     * 流控默认关闭，只有配置中开启，或配置了网关全局限流时才加入过滤器链
+     */
+    @Override
+    public boolean isEnabled(RouteDefinition.FilterConfig filterConfig, Object config) {
+        return (filterConfig == null || filterConfig.isEnable())
+                && (((RouteDefinition.FlowFilterConfig) config).isEnabled() || GlobalRateLimiter.getInstance().isEnabled());
+    }
+
     @Override
     public String mark() {
         // 返回过滤器名称，用于在过滤器链中标识和查找
@@ -86,38 +158,111 @@ public class FlowFilter implements Filter {
         return FLOW_FILTER_ORDER;
     }
 
-    @SuppressWarnings("DuplicateBranchesInSwitch")//抑制警告注解
-    private RateLimiter initRateLimiter(
-            RouteDefinition.FlowFilterConfig flowFilterConfig,
-            EventLoop eventLoop
-    ) {
-        // 根据配置的限流算法类型，初始化对应的限流实例
-        switch (flowFilterConfig.getType()) {
-            case TOKEN_BUCKET:
-                // 令牌桶算法：按固定速率生成令牌，请求需获取令牌才能通过
-                return new TokenBucketRateLimiter(
-                        flowFilterConfig.getCapacity(), // 令牌桶容量
-                        flowFilterConfig.getRate()      // 令牌生成速率（单位时间生成多少令牌）
-                );
-            case SLIDING_WINDOW:
-                // 滑动窗口算法：统计单位时间内的请求数，超过阈值则限流
-                return new SlidingWindowRateLimiter(
-                        flowFilterConfig.getCapacity(), // 窗口内允许的最大请求数
-                        flowFilterConfig.getRate()      // 窗口时间（如 1 秒）
-                );
-            case LEAKY_BUCKET:
-                // 漏桶算法：请求先进入桶，按固定速率流出，桶满则拒绝
-                return new LeakyBucketRateLimiter(
-                        flowFilterConfig.getCapacity(), // 漏桶容量
-                        flowFilterConfig.getRate(),     // 漏桶流出速率
-                        eventLoop                       // Netty 的 EventLoop，用于定时任务
-                );
-            default:
-                // 默认使用令牌桶算法
-                return new TokenBucketRateLimiter(
-                        flowFilterConfig.getCapacity(),
-                        flowFilterConfig.getRate()
-                );
+    /**
+     * 解析请求的限流键，按服务限流时不经过限流器存储，不需要解析
+     * 请求中没有对应的请求头、查询参数、Cookie时，退化为按客户端IP限流
+     */
+    private String resolveKey(GatewayContext context, RouteDefinition.FlowFilterConfig flowFilterConfig) {
+        GatewayRequest request = context.getRequest();
+        String key = switch (flowFilterConfig.getKeyType()) {
+            case SERVICE, CLIENT_IP -> request.getClientIp();
+            case HEADER -> request.getHeaders().get(flowFilterConfig.getKeyName());
+            case QUERY -> {
+                List<String> values = request.getQueryStringDecoder().parameters().get(flowFilterConfig.getKeyName());
+                yield values == null || values.isEmpty() ? null : values.get(0);
+            }
+            case COOKIE -> {
+                Cookie cookie = request.getCookie(flowFilterConfig.getKeyName());
+                yield cookie == null ? null : cookie.value();
+            }
+        };
+        return key != null ? key : request.getClientIp();
+    }
+
+    /**
+     * 获取路由级、请求方法级限流器，流控配置对象变化（路由更新后重新解析）时重建
+     */
+    private RouteRateLimiters getRouteRateLimiters(String routeId, RouteDefinition.FlowFilterConfig flowFilterConfig) {
+        RouteRateLimiters routeRateLimiters = routeRateLimiterMap.get(routeId);
+        if (routeRateLimiters != null && routeRateLimiters.flowFilterConfig == flowFilterConfig) {
+            return routeRateLimiters;
         }
+        return routeRateLimiterMap.compute(routeId, (id, current) ->
+                current != null && current.flowFilterConfig == flowFilterConfig ? current : new RouteRateLimiters(flowFilterConfig));
     }
+
+    /**
+     * 在某一层占用额度，该层未配置限流时不占用
+     * @return 额度凭证，归还时传回
+     */
+    private static long acquire(RefundableRateLimiter rateLimiter, GatewayContext context, FlowScopeEnum scope) {
+        if (rateLimiter == null) {
+            return 0;
+        }
+        try {
+            return rateLimiter.tryAcquire(context);
+        } catch (LimitedException e) {
+            throw scoped(e, scope);
+        }
+    }
+
+    /**
+     * 归还某一层占用的额度
+     */
+    private static void refund(RefundableRateLimiter rateLimiter, long permit) {
+        if (rateLimiter != null) {
+            rateLimiter.refund(permit);
+        }
+    }
+
+    /**
+     * 在限流异常中标明触发限流的层级
+     */
+    private static LimitedException scoped(LimitedException e, FlowScopeEnum scope) {
+        return new LimitedException(e.getCode(), e.getRetryAfterMillis(), scope.name());
+    }
+
+    /**
+     * 某个服务的服务级限流器
+     * 按服务限流时所有请求共用一个限流器，不经过限流器存储；按限流键限流时每个键一个限流器，保存在有界的限流器存储中
+     */
+    private static class ServiceRateLimiters {
+
+        private final RateLimiter serviceRateLimiter;
+
+        private final RateLimiterStore rateLimiterStore;
+
+        ServiceRateLimiters(RouteDefinition.FlowFilterConfig flowFilterConfig) {
+            if (flowFilterConfig.getKeyType() == FlowKeyEnum.SERVICE) {
+                this.serviceRateLimiter = RateLimiterFactory.create(flowFilterConfig);
+                this.rateLimiterStore = null;
+            } else {
+                this.serviceRateLimiter = null;
+                this.rateLimiterStore = new RateLimiterStore(flowFilterConfig.getMaxKeys());
+            }
+        }
+    }
+
+    /**
+     * 某个路由的路由级、请求方法级限流器
+     */
+    private static class RouteRateLimiters {
+
+        private final RouteDefinition.FlowFilterConfig flowFilterConfig;
+
+        private final RefundableRateLimiter routeRateLimiter;
+
+        private final Map<String /* 请求方法 */, RefundableRateLimiter> methodRateLimiters = new HashMap<>();
+
+        RouteRateLimiters(RouteDefinition.FlowFilterConfig flowFilterConfig) {
+            this.flowFilterConfig = flowFilterConfig;
+            this.routeRateLimiter = flowFilterConfig.getRouteLimit() == null
+                    ? null : RateLimiterFactory.createRefundable(flowFilterConfig.getRouteLimit());
+            if (flowFilterConfig.getMethodLimits() != null) {
+                flowFilterConfig.getMethodLimits().forEach((method, limitConfig) ->
+                        methodRateLimiters.put(method.toUpperCase(), RateLimiterFactory.createRefundable(limitConfig)));
+            }
+        }
+    }
+
 }
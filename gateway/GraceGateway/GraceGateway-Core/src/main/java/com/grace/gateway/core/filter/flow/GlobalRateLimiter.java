@@ -0,0 +1,49 @@
+package com.grace.gateway.core.filter.flow;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+
+/**
+ * 网关全局限流器
+ * 由网关静态配置 Config.globalLimit 创建，所有未关闭流控过滤器的路由共用，保护网关进程本身
+ * 单例，启动阶段初始化
+ */
+public class GlobalRateLimiter {
+
+    private static final GlobalRateLimiter INSTANCE = new GlobalRateLimiter();
+
+    /**
+     * 全局限流器，为null表示不限
+     */
+    private volatile RefundableRateLimiter rateLimiter;
+
+    private GlobalRateLimiter() {
+    }
+
+    public static GlobalRateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 初始化全局限流器
+     * @param limitConfig 全局限流配置，为null表示不限
+     */
+    public void initialized(RouteDefinition.LimitConfig limitConfig) {
+        this.rateLimiter = limitConfig == null ? null : RateLimiterFactory.createRefundable(limitConfig);
+    }
+
+    /**
+     * 获取全局限流器
+     * @return 全局限流器，为null表示不限
+     */
+    public RefundableRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 是否配置了全局限流
+     */
+    public boolean isEnabled() {
+        return rateLimiter != null;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.grace.gateway.core.filter.flow;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.core.algorithm.*;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 限流器工厂类
+ * 根据流控配置创建对应算法的限流器
+ */
+@Slf4j
+public class RateLimiterFactory {
+
+    /**
+     * 根据服务级流控配置创建限流器
+     * @param flowFilterConfig 流控配置
+     * @return 限流器
+     */
+    @SuppressWarnings("DuplicateBranchesInSwitch")//抑制警告注解
+    public static RateLimiter create(RouteDefinition.FlowFilterConfig flowFilterConfig) {
+        // 根据配置的限流算法类型，初始化对应的限流实例
+        switch (flowFilterConfig.getType()) {
+            case TOKEN_BUCKET:
+                // 令牌桶算法：按固定速率生成令牌，请求需获取令牌才能通过
+                return new TokenBucketRateLimiter(
+                        flowFilterConfig.getCapacity(), // 令牌桶容量
+                        flowFilterConfig.getRate()      // 令牌生成速率（单位时间生成多少令牌）
+                );
+            case SLIDING_WINDOW:
+                // 滑动窗口算法：统计单位时间内的请求数，超过阈值则限流
+                return new SlidingWindowRateLimiter(
+                        flowFilterConfig.getCapacity(), // 窗口内允许的最大请求数
+                        flowFilterConfig.getRate(),     // 窗口时间（如 1 秒）
+                        flowFilterConfig.getPrecision() // 子窗口个数
+                );
+            case LEAKY_BUCKET:
+                // 漏桶算法：请求先进入桶，按固定速率流出，桶满则拒绝
+                return new LeakyBucketRateLimiter(
+                        flowFilterConfig.getCapacity(), // 漏桶容量
+                        flowFilterConfig.getRate(),     // 漏桶流出速率（个/s）
+                        flowFilterConfig.getMaxWaitMillis() // 请求在桶中的最大等待时间
+                );
+            case GCRA:
+                // GCRA算法：按理论到达时间均匀放行请求，允许一定数量的突发请求
+                return new GcraRateLimiter(
+                        flowFilterConfig.getRate(),     // 平均速率（个/s）
+                        flowFilterConfig.getBurst()     // 突发请求数
+                );
+            case ADAPTIVE_CONCURRENCY:
+                // 自适应并发：限制在途请求数，并根据下游响应耗时自动调整并发上限
+                return new AdaptiveConcurrencyLimiter(
+                        flowFilterConfig.getInitialLimit(), // 初始并发上限
+                        flowFilterConfig.getCapacity()      // 最大并发上限
+                );
+            default:
+                // 默认使用令牌桶算法
+                return new TokenBucketRateLimiter(
+                        flowFilterConfig.getCapacity(),
+                        flowFilterConfig.getRate()
+                );
+        }
+    }
+
+    /**
+     * 根据分层限流配置创建限流器
+     * 分层限流需要归还额度，只支持令牌桶、滑动窗口、GCRA，其它类型按令牌桶处理
+     * @param limitConfig 某一层的限流配置
+     * @return 支持归还额度的限流器
+     */
+    public static RefundableRateLimiter createRefundable(RouteDefinition.LimitConfig limitConfig) {
+        switch (limitConfig.getType()) {
+            case SLIDING_WINDOW:
+                return new SlidingWindowRateLimiter(limitConfig.getCapacity(), limitConfig.getRate(), limitConfig.getPrecision());
+            case GCRA:
+                return new GcraRateLimiter(limitConfig.getRate(), limitConfig.getBurst());
+            case TOKEN_BUCKET:
+                return new TokenBucketRateLimiter(limitConfig.getCapacity(), limitConfig.getRate());
+            default:
+                log.warn("flow type {} can not be used in hierarchical limits, use TOKEN_BUCKET instead", limitConfig.getType());
+                return new TokenBucketRateLimiter(limitConfig.getCapacity(), limitConfig.getRate());
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.grace.gateway.core.filter.flow;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * 有界的限流器存储
+ * 按限流键（客户端IP、请求头等）保存限流器，键的个数有硬上限，大量不同的客户端不会撑爆堆内存
+ * 读取：每段是一个 ConcurrentHashMap，命中时不加锁，只设置访问标记
+ * 淘汰：新键加入已满的段时，段内按 CLOCK 扫描，跳过最近访问过的限流器，找到淘汰候选；
+ * 准入：用 TinyLFU 频率草图比较新键与候选的访问频率，新键更频繁时才替换候选，否则不保存新键，
+ * 未准入的键按哈希分到固定个数的溢出限流器上。大量只出现一两次的键（如伪造的IP、随机请求头）无法挤掉常用键的限流器，
+ * 也无法靠不断换键重置自己的限流器；不断换键最多耗尽溢出限流器，已准入的键不受影响，
+ * 溢出限流器按哈希分区，单个未准入的高频键只会耗尽自己所在的分区，不会连累其它分区的未准入键
+ * 只有加入新键时才对所在段加锁，限流器在准入之后才创建，未准入的键不创建限流器
+ */
+public class RateLimiterStore {
+
+    private static final int MAX_SEGMENT_NUM = 16;
+
+    /**
+     * 淘汰时最多跳过的最近访问过的限流器个数
+     */
+    private static final int MAX_SCAN = 8;
+
+    /**
+     * 溢出限流器的分区数，取2的幂
+     */
+    private static final int OVERFLOW_PARTITION_NUM = 16;
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final FrequencySketch sketch;
+
+    /**
+     * 未准入的键按哈希分区使用的溢出限流器，首次需要时创建
+     */
+    private final AtomicReferenceArray<RateLimiter> overflows = new AtomicReferenceArray<>(OVERFLOW_PARTITION_NUM);
+
+    /**
+     * @param maxKeys 最多保存的限流器个数
+     */
+    public RateLimiterStore(int maxKeys) {
+        maxKeys = Math.max(1, maxKeys);
+        // 段数取2的幂，且不超过最大键数，保证每段至少能存一个限流器，总数不超过 maxKeys
+        int segmentNum = Math.min(MAX_SEGMENT_NUM, Integer.highestOneBit(maxKeys));
+        this.segments = new Segment[segmentNum];
+        for (int i = 0; i < segmentNum; i++) {
+            segments[i] = new Segment(maxKeys / segmentNum);
+        }
+        this.segmentMask = segmentNum - 1;
+        this.sketch = new FrequencySketch(maxKeys);
+    }
+
+    /**
+     * 获取限流键对应的限流器，不存在时创建
+     *
+     * @param key     限流键
+     * @param factory 限流器创建方法，只在键被准入（或首次使用溢出分区）时调用
+     * @return 限流器，键未被准入时返回所在分区的溢出限流器
+     */
+    public RateLimiter get(String key, Function<String, RateLimiter> factory) {
+        int hash = spread(key.hashCode());
+        sketch.increment(hash);
+        Segment segment = segments[hash & segmentMask];
+        Entry entry = segment.map.get(key);
+        if (entry != null) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.rateLimiter;
+        }
+        RateLimiter admitted = segment.admit(key, hash, factory, sketch);
+        return admitted != null ? admitted : overflow(hash, factory);
+    }
+
+    /**
+     * 当前保存的限流器个数，不含溢出限流器
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    /**
+     * 未准入的键所在分区的溢出限流器，分区取哈希的高16位中的低位，与选段用的低位相互独立
+     */
+    private RateLimiter overflow(int hash, Function<String, RateLimiter> factory) {
+        int partition = (hash >>> 16) & (OVERFLOW_PARTITION_NUM - 1);
+        RateLimiter rateLimiter = overflows.get(partition);
+        if (rateLimiter == null) {
+            RateLimiter created = factory.apply("");
+            rateLimiter = overflows.compareAndSet(partition, null, created) ? created : overflows.get(partition);
+        }
+        return rateLimiter;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 保存的限流器
+     */
+    private static class Entry {
+
+        private final String key;
+
+        private final int hash;
+
+        private final RateLimiter rateLimiter;
+
+        /**
+         * 上次被 CLOCK 扫描后是否被访问过，并发读写只影响淘汰顺序
+         */
+        private volatile boolean referenced;
+
+        Entry(String key, int hash, RateLimiter rateLimiter) {
+            this.key = key;
+            this.hash = hash;
+            this.rateLimiter = rateLimiter;
+        }
+    }
+
+    /**
+     * 定长分段，读取不加锁，加入新键时加锁
+     */
+    private static class Segment {
+
+        private final Map<String, Entry> map = new ConcurrentHashMap<>();
+
+        /**
+         * CLOCK 环，按槽位保存段内的限流器
+         */
+        private final Entry[] slots;
+
+        private int count;
+
+        private int hand;
+
+        Segment(int capacity) {
+            this.slots = new Entry[capacity];
+        }
+
+        /**
+         * 加入新键，段已满时淘汰候选或拒绝准入，准入后才创建限流器
+         *
+         * @return 键对应的限流器，未准入时返回null
+         */
+        private synchronized RateLimiter admit(String key, int hash, Function<String, RateLimiter> factory, FrequencySketch sketch) {
+            Entry existing = map.get(key);
+            if (existing != null) {
+                return existing.rateLimiter;
+            }
+            if (count < slots.length) {
+                Entry entry = new Entry(key, hash, factory.apply(key));
+                slots[count++] = entry;
+                map.put(key, entry);
+                return entry.rateLimiter;
+            }
+            // 跳过最近访问过的限流器并清除其访问标记（第二次机会）
+            for (int i = 0; i < MAX_SCAN && slots[hand].referenced; i++) {
+                slots[hand].referenced = false;
+                hand = (hand + 1) % slots.length;
+            }
+            Entry victim = slots[hand];
+            if (sketch.frequency(hash) <= sketch.frequency(victim.hash)) {
+                return null;
+            }
+            Entry entry = new Entry(key, hash, factory.apply(key));
+            map.remove(victim.key);
+            slots[hand] = entry;
+            map.put(key, entry);
+            hand = (hand + 1) % slots.length;
+            return entry.rateLimiter;
+        }
+    }
+
+    /**
+     * TinyLFU 频率草图：4行的 Count-Min Sketch，计数上限15，累计增加到样本数后所有计数减半，让旧的访问逐渐失效
+     * 计数不加锁，并发下个别增加可能丢失，只影响频率估计的精度
+     */
+    private static class FrequencySketch {
+
+        private static final int[] SEEDS = {0x97CB3127, 0xB7A8B1E5, 0xC2B2AE35, 0x85EBCA6B};
+
+        private static final int MAX_COUNT = 15;
+
+        private final int[] table;
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private int additions;
+
+        FrequencySketch(int maxKeys) {
+            int size = Integer.highestOneBit(Math.max(16, Math.min(maxKeys, 1 << 24)) * 4 - 1) << 1;
+            this.table = new int[size];
+            this.mask = size - 1;
+            this.sampleSize = Math.max(160, maxKeys * 10);
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(hash, i);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, table[index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private synchronized void reset() {
+            if (additions < sampleSize) {
+                return;
+            }
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>>= 1;
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int i) {
+            int h = hash * SEEDS[i];
+            return (h ^ (h >>> 15)) & mask;
+        }
+    }
+
+}
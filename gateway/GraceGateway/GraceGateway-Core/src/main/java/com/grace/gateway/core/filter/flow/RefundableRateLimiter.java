@@ -0,0 +1,24 @@
+package com.grace.gateway.core.filter.flow;
+
+import com.grace.gateway.core.context.GatewayContext;
+
+/**
+ * 能够归还额度的限流器（令牌桶、滑动窗口、GCRA）
+ * 用于分层限流：先在每一层占用额度，某一层拒绝时归还其它层已占用的额度，全部通过后才继续执行过滤链
+ */
+public interface RefundableRateLimiter extends RateLimiter {
+
+    /**
+     * 占用一个额度，不继续执行过滤链
+     * @param context 网关请求上下文
+     * @return 额度凭证，归还时原样传回，用于定位占用的额度（如滑动窗口占用时所在的子窗口）
+     * @throws com.grace.gateway.common.exception.LimitedException 超过限流阈值时抛出
+     */
+    long tryAcquire(GatewayContext context);
+
+    /**
+     * 归还 tryAcquire 占用的一个额度
+     * @param permit tryAcquire 返回的额度凭证
+     */
+    void refund(long permit);
+}
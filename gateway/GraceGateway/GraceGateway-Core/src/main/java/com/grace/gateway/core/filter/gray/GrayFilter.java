@@ -1,17 +1,14 @@
 package com.grace.gateway.core.filter.gray;
 
-import cn.hutool.json.JSONUtil;
 import com.grace.gateway.config.manager.DynamicConfigManager;
+import com.grace.gateway.config.manager.InstanceSnapshot;
 import com.grace.gateway.config.pojo.RouteDefinition;
-import com.grace.gateway.config.pojo.ServiceInstance;
 import com.grace.gateway.config.util.FilterUtil;
 import com.grace.gateway.core.context.GatewayContext;
 import com.grace.gateway.core.filter.Filter;
 import com.grace.gateway.core.filter.gray.strategy.GrayStrategy;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
-
 import static com.grace.gateway.common.constant.FilterConstant.GRAY_FILTER_NAME;
 import static com.grace.gateway.common.constant.FilterConstant.GRAY_FILTER_ORDER;
 
@@ -31,28 +28,17 @@ public class GrayFilter implements Filter {
      */
     @Override
     public void doPreFilter(GatewayContext context) {
-        // 从路由定义中查找灰度过滤器的配置
-        RouteDefinition.FilterConfig filterConfig = FilterUtil.findFilterConfigByName(
-                context.getRoute().getFilterConfigs(), GRAY_FILTER_NAME);
-        // 如果没有配置，使用默认配置
-        if (filterConfig == null) {
-            filterConfig = FilterUtil.buildDefaultGrayFilterConfig();
-        }
-        // 如果灰度功能未启用，直接返回，不进行后续处理
-        if (!filterConfig.isEnable()) {
-            return;
-        }
-        // 从动态配置管理器中获取当前服务的所有实例（包括灰度和非灰度）
-        List<ServiceInstance> instances = DynamicConfigManager.getInstance()
-                .getInstancesByServiceName(context.getRequest().getServiceDefinition().getServiceName())
-                .values().stream().toList();
+        // 灰度过滤器未启用时不会出现在过滤器链中，这里直接取预先解析好的配置
+        RouteDefinition.GrayFilterConfig grayFilterConfig = context.getFilterChain().getFilterConfig(GRAY_FILTER_NAME);
+        // 从动态配置管理器中获取当前服务的实例快照（包括灰度和非灰度）
+        InstanceSnapshot snapshot = DynamicConfigManager.getInstance()
+                .getInstanceSnapshot(context.getRequest().getServiceDefinition().getServiceName());
         // 检查是否存在可用的灰度实例
-        if (instances.stream().anyMatch(instance -> instance.isEnabled() && instance.isGray())) {
+        if (snapshot != null && snapshot.hasGrayInstances()) {
             // 存在灰度实例，根据配置选择对应的灰度策略
-            GrayStrategy strategy = selectGrayStrategy(
-                    JSONUtil.toBean(filterConfig.getConfig(), RouteDefinition.GrayFilterConfig.class));
+            GrayStrategy strategy = selectGrayStrategy(grayFilterConfig);
             // 使用选定的策略判断当前请求是否应该路由到灰度实例，并设置到请求中
-            context.getRequest().setGray(strategy.shouldRoute2Gray(context, instances));
+            context.getRequest().setGray(strategy.shouldRoute2Gray(context, snapshot));
         } else {
             // 不存在可用的灰度实例，设置为不路由到灰度
             context.getRequest().setGray(false);
@@ -71,6 +57,13 @@ public class GrayFilter implements Filter {
         // 继续执行过滤链
         context.doFilter();
     }
+    /**
+     * 解析灰度过滤器配置，未配置时使用默认配置
+     */
+    @Override
+    public Object parseConfig(RouteDefinition.FilterConfig filterConfig) {
+        return FilterUtil.parseFilterConfig(filterConfig, RouteDefinition.GrayFilterConfig.class);
+    }
     /**
      * 获取当前过滤器的标识
      * 用于过滤器的注册和识别
@@ -22,6 +22,10 @@ public class GrayStrategyManager {
      * value: 对应的灰度策略实例
      */
     private static final Map<String, GrayStrategy> strategyMap = new HashMap<>();
+    /**
+     * 默认策略（基于阈值），全局共用一个实例
+     */
+    private static final GrayStrategy DEFAULT_STRATEGY = new ThresholdGrayStrategy();
     /**
      * 静态初始化块
      * 在类加载时自动加载所有实现了GrayStrategy接口的策略类
@@ -47,7 +51,7 @@ public class GrayStrategyManager {
         GrayStrategy strategy = strategyMap.get(name);
         // 如果策略不存在，使用基于阈值的策略作为默认策略
         if (strategy == null)
-            strategy = new ThresholdGrayStrategy();
+            strategy = DEFAULT_STRATEGY;
         return strategy;
     }
 }
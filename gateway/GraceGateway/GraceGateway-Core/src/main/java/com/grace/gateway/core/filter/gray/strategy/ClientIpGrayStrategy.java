@@ -1,12 +1,9 @@
 package com.grace.gateway.core.filter.gray.strategy;
 
+import com.grace.gateway.config.manager.InstanceSnapshot;
 import com.grace.gateway.config.pojo.RouteDefinition;
-import com.grace.gateway.config.pojo.ServiceInstance;
-import com.grace.gateway.config.util.FilterUtil;
 import com.grace.gateway.core.context.GatewayContext;
 
-import java.util.List;
-
 import static com.grace.gateway.common.constant.FilterConstant.GRAY_FILTER_NAME;
 import static com.grace.gateway.common.constant.GrayConstant.CLIENT_IP_GRAY_STRATEGY;
 
@@ -20,18 +17,17 @@ public class ClientIpGrayStrategy implements GrayStrategy {
      * 核心逻辑：基于客户端IP的哈希值与灰度阈值比较决定路由方向
      *
      * @param context  网关上下文对象，包含当前请求信息
-     * @param instances 服务的所有实例列表（包括灰度和非灰度）
+     * @param snapshot 服务的实例快照（包括灰度和非灰度）
      * @return true-路由到灰度实例，false-路由到正常实例
      */
     @Override
-    public boolean shouldRoute2Gray(GatewayContext context, List<ServiceInstance> instances) {
+    public boolean shouldRoute2Gray(GatewayContext context, InstanceSnapshot snapshot) {
         // 检查是否存在可用的非灰度实例
-        if (instances.stream().anyMatch(instance -> instance.isEnabled() && !instance.isGray())) {
-            // 获取灰度过滤器的配置
-            RouteDefinition.GrayFilterConfig grayFilterConfig = FilterUtil.findFilterConfigByClass(
-                    context.getRoute().getFilterConfigs(), GRAY_FILTER_NAME, RouteDefinition.GrayFilterConfig.class);
+        if (snapshot.hasNonGrayInstances()) {
+            // 从过滤器链中获取预先解析好的灰度过滤器配置
+            RouteDefinition.GrayFilterConfig grayFilterConfig = context.getFilterChain().getFilterConfig(GRAY_FILTER_NAME);
             // 计算所有实例的阈值总和作为基础灰度比例
-            double grayThreshold = instances.stream().mapToDouble(ServiceInstance::getThreshold).sum();
+            double grayThreshold = snapshot.getTotalThreshold();
             // 确保灰度比例不超过配置的最大阈值
             grayThreshold = Math.min(grayThreshold, grayFilterConfig.getMaxGrayThreshold());
             // 核心算法：
@@ -1,10 +1,8 @@
 package com.grace.gateway.core.filter.gray.strategy;
 
-import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.config.manager.InstanceSnapshot;
 import com.grace.gateway.core.context.GatewayContext;
 
-import java.util.List;
-
 /**
  * 灰度路由策略接口
  * 定义了所有灰度策略必须实现的方法，采用策略模式设计
@@ -16,10 +14,10 @@ public interface GrayStrategy {
      * 判断当前请求是否应该路由到灰度实例
      *
      * @param context  网关上下文对象，包含了当前请求的所有信息
-     * @param instances 服务的所有可用实例列表（包括灰度和非灰度实例）
+     * @param snapshot 服务的实例快照（包括灰度和非灰度实例）
      * @return true-应该路由到灰度实例，false-应该路由到正常实例
      */
-    boolean shouldRoute2Gray(GatewayContext context, List<ServiceInstance> instances);
+    boolean shouldRoute2Gray(GatewayContext context, InstanceSnapshot snapshot);
 
     /**
      * 获取当前策略的标识
@@ -1,12 +1,9 @@
 package com.grace.gateway.core.filter.gray.strategy;
 
+import com.grace.gateway.config.manager.InstanceSnapshot;
 import com.grace.gateway.config.pojo.RouteDefinition;
-import com.grace.gateway.config.pojo.ServiceInstance;
-import com.grace.gateway.config.util.FilterUtil;
 import com.grace.gateway.core.context.GatewayContext;
 
-import java.util.List;
-
 import static com.grace.gateway.common.constant.FilterConstant.GRAY_FILTER_NAME;
 import static com.grace.gateway.common.constant.GrayConstant.MAX_GRAY_THRESHOLD;
 import static com.grace.gateway.common.constant.GrayConstant.THRESHOLD_GRAY_STRATEGY;
@@ -23,22 +20,21 @@ public class ThresholdGrayStrategy implements GrayStrategy {
      * 核心逻辑：基于随机数和灰度阈值的比较决定路由方向，实现流量的比例分配
      *
      * @param context  网关上下文对象，包含当前请求的详细信息
-     * @param instances 服务的所有实例列表（包括灰度和非灰度实例）
+     * @param snapshot 服务的实例快照（包括灰度和非灰度实例）
      * @return true-路由到灰度实例，false-路由到正常实例
      */
     @Override
-    public boolean shouldRoute2Gray(GatewayContext context, List<ServiceInstance> instances) {
+    public boolean shouldRoute2Gray(GatewayContext context, InstanceSnapshot snapshot) {
         // 检查是否存在可用的非灰度实例（如果没有，则默认路由到灰度实例）
-        if (instances.stream().anyMatch(instance -> instance.isEnabled() && !instance.isGray())) {
-            // 从路由配置中获取灰度过滤器的详细配置
-            RouteDefinition.GrayFilterConfig grayFilterConfig = FilterUtil.findFilterConfigByClass(
-                    context.getRoute().getFilterConfigs(), GRAY_FILTER_NAME, RouteDefinition.GrayFilterConfig.class);
+        if (snapshot.hasNonGrayInstances()) {
+            // 从过滤器链中获取预先解析好的灰度过滤器配置
+            RouteDefinition.GrayFilterConfig grayFilterConfig = context.getFilterChain().getFilterConfig(GRAY_FILTER_NAME);
 
             // 确定最大灰度阈值：如果配置不存在则使用默认值，否则使用配置值
             double maxGrayThreshold = grayFilterConfig == null ? MAX_GRAY_THRESHOLD : grayFilterConfig.getMaxGrayThreshold();
 
             // 计算总灰度阈值：所有实例的阈值之和（单个实例阈值代表该实例可承担的灰度流量比例）
-            double grayThreshold = instances.stream().mapToDouble(ServiceInstance::getThreshold).sum();
+            double grayThreshold = snapshot.getTotalThreshold();
 
             // 确保总灰度阈值不超过最大限制（防止流量分配超过系统承载能力）
             grayThreshold = Math.min(grayThreshold, maxGrayThreshold);
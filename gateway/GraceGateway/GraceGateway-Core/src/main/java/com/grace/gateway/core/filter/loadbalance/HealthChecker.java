@@ -0,0 +1,308 @@
+package com.grace.gateway.core.filter.loadbalance;
+
+import com.grace.gateway.config.config.HealthCheckConfig;
+import com.grace.gateway.config.manager.DynamicConfigManager;
+import com.grace.gateway.config.manager.InstanceSnapshot;
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.config.LifeCycle;
+import com.grace.gateway.core.http.HttpClient;
+import com.grace.gateway.core.http.UpstreamResponse;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.grace.gateway.common.constant.HttpConstant.HTTP_PREFIX_SEPARATOR;
+
+/**
+ * 下游实例主动健康检查
+ * 注册中心按固定周期拉取实例状态，实例宕机后要十几秒才会被感知；主动健康检查定时向每个实例发送探测请求，
+ * 连续失败达到阈值的实例被标记为不健康，负载均衡时排除，连续成功达到阈值后恢复
+ * 探测在下游客户端的EventLoop上调度和执行，不占用额外线程；每个实例分到一个EventLoop，探测间隔带随机抖动，
+ * 大量实例的探测均匀分散，不会同时发出
+ * 单例，由网关容器初始化和启停
+ */
+@Slf4j
+public class HealthChecker implements LifeCycle {
+
+    private static final HealthChecker INSTANCE = new HealthChecker();
+
+    /**
+     * 同步注册中心实例变化的间隔（毫秒）
+     */
+    private static final long RECONCILE_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 服务名 -> 服务的健康状态
+     */
+    private final Map<String /* 服务名 */, ServiceHealth> serviceMap = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean start = new AtomicBoolean(false);
+
+    private HealthCheckConfig config;
+
+    /**
+     * 执行探测的事件循环组，与下游客户端共用
+     */
+    private EventLoopGroup eventLoopGroup;
+
+    private ScheduledFuture<?> reconcileFuture;
+
+    private HealthChecker() {
+    }
+
+    public static HealthChecker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 初始化健康检查
+     *
+     * @param config         健康检查配置
+     * @param eventLoopGroup 下游客户端的事件循环组
+     */
+    public void initialized(HealthCheckConfig config, EventLoopGroup eventLoopGroup) {
+        this.config = config;
+        this.eventLoopGroup = eventLoopGroup;
+    }
+
+    @Override
+    public void start() {
+        if (config == null || !config.isEnabled()) {
+            return;
+        }
+        if (!start.compareAndSet(false, true)) {
+            log.warn("HealthChecker has already started");
+            return;
+        }
+        reconcileFuture = eventLoopGroup.next().scheduleWithFixedDelay(this::reconcile,
+                0, RECONCILE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("HealthChecker started successfully");
+    }
+
+    @Override
+    public void shutdown() {
+        if (!start.compareAndSet(true, false)) {
+            return;
+        }
+        if (reconcileFuture != null) {
+            reconcileFuture.cancel(false);
+        }
+        for (ServiceHealth service : serviceMap.values()) {
+            service.hosts.values().forEach(host -> host.cancelled = true);
+        }
+        serviceMap.clear();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return start.get();
+    }
+
+    /**
+     * 从候选实例中去掉不健康的实例
+     *
+     * @param serviceName 服务名
+     * @param instances   候选实例列表
+     * @return 健康的实例列表，候选实例全部不健康时返回原列表
+     */
+    public List<ServiceInstance> filter(String serviceName, List<ServiceInstance> instances) {
+        ServiceHealth service = serviceMap.get(serviceName);
+        return service == null ? instances : service.exclusion.apply(instances);
+    }
+
+    /**
+     * 与注册中心的实例同步：新实例开始探测，已下线的实例停止探测
+     */
+    private void reconcile() {
+        try {
+            Map<String, InstanceSnapshot> snapshots = DynamicConfigManager.getInstance().getInstanceSnapshots();
+            snapshots.forEach((serviceName, snapshot) -> {
+                ServiceHealth service = serviceMap.computeIfAbsent(serviceName, ServiceHealth::new);
+                for (ServiceInstance instance : snapshot.getEnabledInstances()) {
+                    service.hosts.computeIfAbsent(instance.getInstanceId(), id -> {
+                        HostCheck host = new HostCheck(service, instance, eventLoopGroup.next());
+                        // 首次探测在一个探测间隔内随机开始，打散同时发现的大量实例
+                        host.schedule(ThreadLocalRandom.current().nextLong(Math.max(1, config.getIntervalMillis())));
+                        return host;
+                    });
+                }
+                boolean removed = service.hosts.values().removeIf(host -> {
+                    ServiceInstance current = snapshot.getInstanceMap().get(host.instanceId);
+                    if (current != null && current.isEnabled()) return false;
+                    host.cancelled = true;
+                    return true;
+                });
+                if (removed) {
+                    service.publish();
+                }
+            });
+            serviceMap.entrySet().removeIf(entry -> {
+                if (snapshots.containsKey(entry.getKey())) return false;
+                entry.getValue().hosts.values().forEach(host -> host.cancelled = true);
+                return true;
+            });
+        } catch (Throwable t) {
+            log.error("health check reconcile failed", t);
+        }
+    }
+
+    /**
+     * 下一次探测的延迟：探测间隔上下随机抖动
+     */
+    private long nextDelay() {
+        long interval = Math.max(1, config.getIntervalMillis());
+        long jitter = interval * Math.min(100, Math.max(0, config.getJitterPercent())) / 100;
+        return jitter == 0 ? interval : interval - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
+    /**
+     * 单个服务的健康状态
+     */
+    private static class ServiceHealth {
+
+        private final String serviceName;
+
+        /**
+         * 实例ID -> 实例的探测状态
+         */
+        private final Map<String /* 实例id */, HostCheck> hosts = new ConcurrentHashMap<>();
+
+        /**
+         * 不健康的实例
+         */
+        private final InstanceExclusion exclusion = new InstanceExclusion();
+
+        ServiceHealth(String serviceName) {
+            this.serviceName = serviceName;
+        }
+
+        /**
+         * 重新生成不健康的实例集合
+         */
+        private synchronized void publish() {
+            Set<String> ids = new HashSet<>();
+            hosts.forEach((id, host) -> {
+                if (!host.healthy) ids.add(id);
+            });
+            exclusion.update(ids);
+        }
+    }
+
+    /**
+     * 单个实例的探测任务，探测和结果处理都在分配给它的EventLoop上执行，计数无需加锁
+     */
+    private class HostCheck {
+
+        private final ServiceHealth service;
+
+        private final String instanceId;
+
+        private final String url;
+
+        private final EventLoop eventLoop;
+
+        /**
+         * 是否健康，新发现的实例以注册中心的状态为准，视为健康
+         */
+        private volatile boolean healthy = true;
+
+        private volatile boolean cancelled;
+
+        private int successes;
+
+        private int failures;
+
+        HostCheck(ServiceHealth service, ServiceInstance instance, EventLoop eventLoop) {
+            this.service = service;
+            this.instanceId = instance.getInstanceId();
+            String path = config.getPath().startsWith("/") ? config.getPath() : "/" + config.getPath();
+            this.url = HTTP_PREFIX_SEPARATOR + instance.getIp() + ":" + instance.getPort() + path;
+            this.eventLoop = eventLoop;
+        }
+
+        private void schedule(long delayMillis) {
+            if (!cancelled) {
+                eventLoop.schedule(this::probe, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * 发送一次探测请求，超时未响应视为失败
+         */
+        private void probe() {
+            if (cancelled) {
+                return;
+            }
+            AtomicBoolean finished = new AtomicBoolean(false);
+            CompletableFuture<UpstreamResponse> future;
+            try {
+                Request request = new RequestBuilder("GET")
+                        .setUrl(url)
+                        .setRequestTimeout((int) config.getTimeoutMillis())
+                        .build();
+                future = HttpClient.getInstance().executeRequest(request, eventLoop);
+            } catch (Throwable t) {
+                onResult(false, t.toString());
+                return;
+            }
+            ScheduledFuture<?> timeoutFuture = eventLoop.schedule(() -> {
+                if (finished.compareAndSet(false, true)) {
+                    onResult(false, "timeout");
+                }
+            }, config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((response, throwable) -> {
+                boolean success = throwable == null && response.getStatusCode() >= 200 && response.getStatusCode() < 300;
+                String reason = throwable != null ? throwable.toString() : "status " + response.getStatusCode();
+                if (response != null) {
+                    response.release();
+                }
+                if (finished.compareAndSet(false, true)) {
+                    timeoutFuture.cancel(false);
+                    // 响应可能在其它线程上完成，切回实例所属的EventLoop处理结果
+                    eventLoop.execute(() -> onResult(success, reason));
+                }
+            });
+        }
+
+        /**
+         * 处理探测结果，健康状态变化时更新服务的不健康实例集合，然后安排下一次探测
+         */
+        private void onResult(boolean success, String reason) {
+            if (cancelled) {
+                return;
+            }
+            if (success) {
+                failures = 0;
+                if (!healthy && ++successes >= Math.max(1, config.getHealthyThreshold())) {
+                    healthy = true;
+                    successes = 0;
+                    service.publish();
+                    log.info("instance {} of service {} is healthy again", instanceId, service.serviceName);
+                }
+            } else {
+                successes = 0;
+                if (healthy && ++failures >= Math.max(1, config.getUnhealthyThreshold())) {
+                    healthy = false;
+                    failures = 0;
+                    service.publish();
+                    log.warn("instance {} of service {} is unhealthy: {}", instanceId, service.serviceName, reason);
+                }
+            }
+            schedule(nextDelay());
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.grace.gateway.core.filter.loadbalance;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 被排除的实例集合
+ * 异常实例检测、主动健康检查等按服务维护一份，负载均衡前从候选实例中去掉被排除的实例
+ * 过滤结果按（候选列表, 排除集合）缓存，两者都不变时返回同一个列表对象，按列表缓存选择表的负载均衡策略无需重建
+ */
+public class InstanceExclusion {
+
+    /**
+     * 缓存的过滤结果个数（灰度、非灰度等不同候选列表）
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * 被排除的实例ID，不可变集合，变化时整体替换
+     */
+    private volatile Set<String> excludedIds = Set.of();
+
+    /**
+     * 过滤结果缓存
+     */
+    private volatile FilteredList[] cache = new FilteredList[0];
+
+    /**
+     * 替换被排除的实例集合
+     *
+     * @param instanceIds 被排除的实例ID
+     */
+    public void update(Set<String> instanceIds) {
+        excludedIds = Set.copyOf(instanceIds);
+        cache = new FilteredList[0];
+    }
+
+    /**
+     * 获取被排除的实例ID
+     */
+    public Set<String> getExcludedIds() {
+        return excludedIds;
+    }
+
+    /**
+     * 从候选实例中去掉被排除的实例
+     *
+     * @param instances 候选实例列表
+     * @return 未被排除的实例列表，没有实例被排除或候选实例全部被排除时返回原列表
+     */
+    public List<ServiceInstance> apply(List<ServiceInstance> instances) {
+        Set<String> ids = excludedIds;
+        if (ids.isEmpty()) {
+            return instances;
+        }
+        FilteredList[] current = cache;
+        for (FilteredList filtered : current) {
+            if (filtered.source == instances && filtered.excludedIds == ids) {
+                return filtered.result;
+            }
+        }
+        List<ServiceInstance> result = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            if (!ids.contains(instance.getInstanceId())) {
+                result.add(instance);
+            }
+        }
+        // 候选实例全部被排除时不再过滤，避免无实例可用
+        result = result.isEmpty() ? instances : List.copyOf(result);
+        // 并发时可能有个别缓存项丢失，下次重新过滤即可
+        List<FilteredList> newCache = new ArrayList<>(CACHE_SIZE);
+        newCache.add(new FilteredList(instances, ids, result));
+        for (FilteredList filtered : current) {
+            if (newCache.size() < CACHE_SIZE && filtered.excludedIds == ids) {
+                newCache.add(filtered);
+            }
+        }
+        cache = newCache.toArray(new FilteredList[0]);
+        return result;
+    }
+
+    /**
+     * 某个候选列表在某个排除集合下的过滤结果
+     */
+    private static class FilteredList {
+
+        private final List<ServiceInstance> source;
+
+        private final Set<String> excludedIds;
+
+        private final List<ServiceInstance> result;
+
+        FilteredList(List<ServiceInstance> source, Set<String> excludedIds, List<ServiceInstance> result) {
+            this.source = source;
+            this.excludedIds = excludedIds;
+            this.result = result;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.grace.gateway.core.filter.loadbalance;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 服务实例运行时统计
+ * 按实例ID（ip:port）保存，负载均衡过滤器选中实例时开始计数，请求结束时结束计数；路由时记录实例的响应延迟，
+ * 供负载均衡策略参考实例当前的负载
+ */
+public class InstanceStats {
+
+    /**
+     * 延迟平均值的衰减时间常数（纳秒），距离上次采样越久，旧的延迟对平均值的影响越小
+     */
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 实例ID -> 运行时统计
+     */
+    private static final Map<String /* 实例id */, InstanceStats> STATS_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 在途请求数
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * 响应延迟的峰值指数加权移动平均（纳秒），0 表示还没有采样
+     */
+    private volatile double latencyEwma;
+
+    /**
+     * 上次更新延迟平均值的时刻（纳秒）
+     */
+    private volatile long latencyStamp = System.nanoTime();
+
+    private InstanceStats() {
+    }
+
+    /**
+     * 获取实例的运行时统计，不存在时创建
+     *
+     * @param instance 服务实例
+     * @return 运行时统计
+     */
+    public static InstanceStats of(ServiceInstance instance) {
+        InstanceStats stats = STATS_MAP.get(instance.getInstanceId());
+        return stats != null ? stats : STATS_MAP.computeIfAbsent(instance.getInstanceId(), id -> new InstanceStats());
+    }
+
+    /**
+     * 请求发往该实例
+     */
+    public void onStart() {
+        inflight.incrementAndGet();
+    }
+
+    /**
+     * 发往该实例的请求结束
+     */
+    public void onComplete() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 记录一次请求的响应延迟（峰值EWMA）
+     * 延迟高于平均值时直接取该延迟，使变慢的实例立即被发现；低于平均值时按距上次采样的时间衰减融合，
+     * 失败的请求只会抬高平均值，避免快速失败（如连接被拒绝）的实例看起来更快
+     *
+     * @param latencyNanos 请求耗时（纳秒）
+     * @param success      请求是否成功
+     */
+    public synchronized void recordLatency(long latencyNanos, boolean success) {
+        long now = System.nanoTime();
+        double ewma = latencyEwma;
+        if (latencyNanos > ewma) {
+            latencyEwma = latencyNanos;
+        } else if (success) {
+            double weight = Math.exp(-Math.max(0, now - latencyStamp) / DECAY_NANOS);
+            latencyEwma = ewma * weight + latencyNanos * (1 - weight);
+        } else {
+            return;
+        }
+        latencyStamp = now;
+    }
+
+    /**
+     * 当前的延迟平均值（纳秒），长时间没有采样时向 0 衰减，让被冷落的实例有机会重新被选中
+     *
+     * @return 延迟平均值，0 表示还没有采样
+     */
+    public double getLatencyEwma() {
+        double ewma = latencyEwma;
+        if (ewma == 0) {
+            return 0;
+        }
+        return ewma * Math.exp(-Math.max(0, System.nanoTime() - latencyStamp) / DECAY_NANOS);
+    }
+
+}
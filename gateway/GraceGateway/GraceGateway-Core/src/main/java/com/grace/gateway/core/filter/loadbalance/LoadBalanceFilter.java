@@ -1,9 +1,9 @@
 package com.grace.gateway.core.filter.loadbalance;
 
-import cn.hutool.json.JSONUtil;
 import com.grace.gateway.common.enums.ResponseCode;
 import com.grace.gateway.common.exception.NotFoundException;
 import com.grace.gateway.config.manager.DynamicConfigManager;
+import com.grace.gateway.config.manager.InstanceSnapshot;
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.pojo.ServiceInstance;
 import com.grace.gateway.config.util.FilterUtil;
@@ -13,7 +13,10 @@ import com.grace.gateway.core.filter.loadbalance.strategy.GrayLoadBalanceStrateg
 import com.grace.gateway.core.filter.loadbalance.strategy.LoadBalanceStrategy;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_NAME;
 import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_ORDER;
@@ -25,6 +28,17 @@ import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILT
  */
 @Slf4j
 public class LoadBalanceFilter implements Filter {
+
+    /**
+     * 灰度负载均衡策略，无状态，全局共用一个实例
+     */
+    private static final LoadBalanceStrategy GRAY_LOAD_BALANCE_STRATEGY = new GrayLoadBalanceStrategy();
+
+    /**
+     * 重新选择实例时按策略选择的最多次数
+     */
+    private static final int RESELECT_ATTEMPTS = 3;
+
     /**
      * 前置过滤方法，在请求路由前执行负载均衡逻辑
      * 核心职责：根据请求类型（灰度/非灰度）选择对应的负载均衡策略，筛选可用实例并完成实例选择
@@ -33,30 +47,14 @@ public class LoadBalanceFilter implements Filter {
      */
     @Override
     public void doPreFilter(GatewayContext context) {
-        // 从路由配置中查找负载均衡过滤器的配置
-        RouteDefinition.FilterConfig filterConfig = FilterUtil.findFilterConfigByName(
-                context.getRoute().getFilterConfigs(), LOAD_BALANCE_FILTER_NAME);
-        // 如果没有配置，使用默认的负载均衡配置
-        if (filterConfig == null) {
-            filterConfig = FilterUtil.buildDefaultLoadBalanceFilterConfig();
-        }
-        // 从动态配置管理器中获取当前服务的所有实例
-        List<ServiceInstance> instances = DynamicConfigManager.getInstance()
-                .getInstancesByServiceName(context.getRequest().getServiceDefinition().getServiceName())
-                .values().stream().toList();
-        LoadBalanceStrategy strategy; // 负载均衡策略实例
-        if (context.getRequest().isGray()) {
-            // 灰度请求：使用灰度专用负载均衡策略
-            strategy = new GrayLoadBalanceStrategy();
-            // 筛选可用的灰度实例（必须启用且标记为灰度）
-            instances = instances.stream()
-                    .filter(instance -> instance.isEnabled() && instance.isGray())
-                    .toList();
-        } else {
-            // 非灰度请求：根据配置选择对应的负载均衡策略
-            strategy = selectLoadBalanceStrategy(
-                    JSONUtil.toBean(filterConfig.getConfig(), RouteDefinition.LoadBalanceFilterConfig.class));
-        }
+        // 取过滤器链中预先解析好的负载均衡配置（未配置时为默认配置）
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig =
+                context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        // 灰度请求使用灰度专用负载均衡策略，非灰度请求根据配置选择对应的负载均衡策略
+        LoadBalanceStrategy strategy = context.getRequest().isGray()
+                ? GRAY_LOAD_BALANCE_STRATEGY : selectLoadBalanceStrategy(loadBalanceFilterConfig);
+        List<ServiceInstance> instances = candidateInstances(context, serviceName);
         // 如果没有可用实例，抛出服务实例未找到异常
         if (instances.isEmpty()) {
             throw new NotFoundException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
@@ -69,9 +67,68 @@ public class LoadBalanceFilter implements Filter {
         }
         // 将选中的实例地址（IP:端口）设置到请求中，用于后续路由
         context.getRequest().setModifyHost(serviceInstance.getIp() + ":" + serviceInstance.getPort());
+        context.setServiceInstance(serviceInstance);
         // 继续执行过滤链
         context.doFilter();
     }
+    /**
+     * 在已选择过实例的请求上重新选择一个实例，用于对冲请求、重试等需要换一个实例再次转发的场景
+     * 优先按负载均衡策略选择，策略多次选中排除的实例时（如一致性哈希），从其余候选实例中随机选择
+     *
+     * @param context             网关上下文对象
+     * @param excludedInstanceIds 需要排除的实例ID，通常是已经转发过的实例
+     * @return 新选中的实例，没有其它可用实例时返回null
+     */
+    public static ServiceInstance reselect(GatewayContext context, Set<String> excludedInstanceIds) {
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig =
+                context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        LoadBalanceStrategy strategy = context.getRequest().isGray()
+                ? GRAY_LOAD_BALANCE_STRATEGY : selectLoadBalanceStrategy(loadBalanceFilterConfig);
+        List<ServiceInstance> instances = candidateInstances(context, serviceName);
+        ServiceInstance serviceInstance = null;
+        // 直接在候选列表上选择，不生成排除后的新列表，避免按列表缓存的策略重建权重表
+        for (int i = 0; i < RESELECT_ATTEMPTS && serviceInstance == null && !instances.isEmpty(); i++) {
+            ServiceInstance selected = strategy.selectInstance(context, instances);
+            if (selected != null && !excludedInstanceIds.contains(selected.getInstanceId())) {
+                serviceInstance = selected;
+            }
+        }
+        if (serviceInstance == null && !instances.isEmpty()) {
+            int size = instances.size();
+            int offset = ThreadLocalRandom.current().nextInt(size);
+            for (int i = 0; i < size; i++) {
+                ServiceInstance candidate = instances.get((offset + i) % size);
+                if (!excludedInstanceIds.contains(candidate.getInstanceId())) {
+                    serviceInstance = candidate;
+                    break;
+                }
+            }
+        }
+        return serviceInstance;
+    }
+
+    /**
+     * 获取请求的候选实例：灰度请求为启用的灰度实例；非灰度请求为启用的非灰度实例，没有非灰度实例时为全部启用实例
+     * 去掉主动健康检查判定为不健康的实例，以及被异常实例检测暂时驱逐的实例；服务不存在时返回空列表
+     */
+    private static List<ServiceInstance> candidateInstances(GatewayContext context, String serviceName) {
+        // 从动态配置管理器中获取当前服务的实例快照
+        InstanceSnapshot snapshot = DynamicConfigManager.getInstance().getInstanceSnapshot(serviceName);
+        if (snapshot == null) {
+            return Collections.emptyList();
+        }
+        // 候选实例直接使用快照中预先分好组的列表
+        List<ServiceInstance> instances;
+        if (context.getRequest().isGray()) {
+            instances = snapshot.getGrayInstances();
+        } else {
+            instances = snapshot.hasNonGrayInstances() ? snapshot.getNonGrayInstances() : snapshot.getEnabledInstances();
+        }
+        instances = HealthChecker.getInstance().filter(serviceName, instances);
+        return OutlierDetector.getInstance().filter(serviceName, instances);
+    }
+
     /**
      * 后置过滤方法，在请求处理完成后执行
      * 负载均衡主要在路由前决策，因此后置处理仅继续过滤链
@@ -82,6 +139,20 @@ public class LoadBalanceFilter implements Filter {
     public void doPostFilter(GatewayContext context) {
         context.doFilter();
     }
+    /**
+     * 解析负载均衡过滤器配置，未配置时使用默认配置
+     */
+    @Override
+    public Object parseConfig(RouteDefinition.FilterConfig filterConfig) {
+        return FilterUtil.parseFilterConfig(filterConfig, RouteDefinition.LoadBalanceFilterConfig.class);
+    }
+    /**
+     * 负载均衡是转发的前提，始终启用
+     */
+    @Override
+    public boolean isEnabled(RouteDefinition.FilterConfig filterConfig, Object config) {
+        return true;
+    }
     /**
      * 获取当前过滤器的标识
      * 用于过滤器的注册和识别
@@ -109,7 +180,7 @@ public class LoadBalanceFilter implements Filter {
      * @param loadBalanceFilterConfig 负载均衡过滤器的详细配置
      * @return 选中的负载均衡策略实例
      */
-    private LoadBalanceStrategy selectLoadBalanceStrategy(RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig) {
+    private static LoadBalanceStrategy selectLoadBalanceStrategy(RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig) {
         return LoadBalanceStrategyManager.getStrategy(loadBalanceFilterConfig.getStrategyName());
     }
 }
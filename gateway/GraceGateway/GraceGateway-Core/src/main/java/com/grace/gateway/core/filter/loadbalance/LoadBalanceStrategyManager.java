@@ -22,6 +22,11 @@ public class LoadBalanceStrategyManager {
      */
     private static final Map<String, LoadBalanceStrategy> strategyMap = new HashMap<>();
 
+    /**
+     * 默认策略（轮询），全局共用一个实例，保证轮询计数在请求间连续
+     */
+    private static final LoadBalanceStrategy DEFAULT_STRATEGY = new RoundRobinLoadBalanceStrategy();
+
     static {
         // 使用Java的ServiceLoader机制加载所有实现了LoadBalanceStrategy接口的服务
         // 这是一种服务发现机制，实现了解耦，无需硬编码实例化具体策略类
@@ -45,7 +50,7 @@ public class LoadBalanceStrategyManager {
         LoadBalanceStrategy strategy = strategyMap.get(name);
         // 如果未找到对应策略，则使用轮询策略作为默认策略
         if (strategy == null)
-            strategy = new RoundRobinLoadBalanceStrategy();
+            strategy = DEFAULT_STRATEGY;
         return strategy;
     }
 
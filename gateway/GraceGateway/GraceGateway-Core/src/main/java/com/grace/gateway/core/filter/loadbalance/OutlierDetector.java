@@ -0,0 +1,334 @@
+package com.grace.gateway.core.filter.loadbalance;
+
+import com.grace.gateway.config.manager.DynamicConfigManager;
+import com.grace.gateway.config.manager.InstanceSnapshot;
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.config.LifeCycle;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 被动异常实例检测器
+ * 根据路由转发的实际结果发现持续出错的实例，不等注册中心感知，直接将其暂时移出负载均衡候选列表：
+ * 1. 连续返回5xx或连续连接失败达到阈值时立即驱逐
+ * 2. 每个检测周期统计各实例成功率，明显低于服务中位数的实例被驱逐
+ * 驱逐时长随驱逐次数指数增长，到期后自动恢复；同一服务同时被驱逐的实例数受最大驱逐比例限制
+ * 单例，检测结果只在开启了异常实例检测的路由上生效；定时检查在下游客户端的EventLoop上执行，随网关容器启动、关闭
+ */
+@Slf4j
+public class OutlierDetector implements LifeCycle {
+
+    private static final OutlierDetector INSTANCE = new OutlierDetector();
+
+    /**
+     * 检查驱逐到期、统计成功率的间隔（毫秒）
+     */
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 服务名 -> 服务的异常检测状态
+     */
+    private final Map<String /* 服务名 */, ServiceOutliers> serviceMap = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean start = new AtomicBoolean(false);
+
+    /**
+     * 执行定时检查的事件循环组，与下游客户端共用
+     */
+    private EventLoopGroup eventLoopGroup;
+
+    private ScheduledFuture<?> sweepFuture;
+
+    private OutlierDetector() {
+    }
+
+    public static OutlierDetector getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 初始化异常实例检测
+     *
+     * @param eventLoopGroup 下游客户端的事件循环组
+     */
+    public void initialized(EventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+    }
+
+    @Override
+    public void start() {
+        if (!start.compareAndSet(false, true)) {
+            log.warn("OutlierDetector has already started");
+            return;
+        }
+        sweepFuture = eventLoopGroup.next().scheduleWithFixedDelay(() -> {
+            try {
+                sweep();
+            } catch (Throwable t) {
+                log.error("outlier detection sweep failed", t);
+            }
+        }, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("OutlierDetector started successfully");
+    }
+
+    @Override
+    public void shutdown() {
+        if (!start.compareAndSet(true, false)) {
+            return;
+        }
+        if (sweepFuture != null) {
+            sweepFuture.cancel(false);
+        }
+        serviceMap.clear();
+    }
+
+    @Override
+    public boolean isStarted() {
+        return start.get();
+    }
+
+    /**
+     * 记录一次转发结果
+     *
+     * @param serviceName 服务名
+     * @param instance    转发的目标实例
+     * @param config      异常实例检测配置
+     * @param statusCode  响应状态码，转发失败时忽略
+     * @param throwable   转发异常（连接失败、超时等），成功收到响应时为null
+     */
+    public void record(String serviceName, ServiceInstance instance, RouteDefinition.OutlierDetectionConfig config,
+                       int statusCode, Throwable throwable) {
+        if (config == null || !config.isEnabled()) {
+            return;
+        }
+        ServiceOutliers service = serviceMap.computeIfAbsent(serviceName, name -> new ServiceOutliers(name, config));
+        service.config = config;
+        HostState host = service.host(instance.getInstanceId());
+        host.total.incrementAndGet();
+        if (throwable != null) {
+            host.consecutive5xx.set(0);
+            if (config.getConsecutiveConnectFailure() > 0
+                    && host.consecutiveConnectFailure.incrementAndGet() >= config.getConsecutiveConnectFailure()) {
+                eject(service, instance.getInstanceId(), host, "consecutive connect failure");
+            }
+        } else if (statusCode >= 500) {
+            host.consecutiveConnectFailure.set(0);
+            if (config.getConsecutive5xx() > 0
+                    && host.consecutive5xx.incrementAndGet() >= config.getConsecutive5xx()) {
+                eject(service, instance.getInstanceId(), host, "consecutive 5xx");
+            }
+        } else {
+            host.success.incrementAndGet();
+            host.consecutive5xx.set(0);
+            host.consecutiveConnectFailure.set(0);
+        }
+    }
+
+    /**
+     * 从候选实例中去掉被驱逐的实例
+     *
+     * @param serviceName 服务名
+     * @param instances   候选实例列表
+     * @return 未被驱逐的实例列表，候选实例全部被驱逐时返回原列表
+     */
+    public List<ServiceInstance> filter(String serviceName, List<ServiceInstance> instances) {
+        ServiceOutliers service = serviceMap.get(serviceName);
+        return service == null ? instances : service.exclusion.apply(instances);
+    }
+
+    /**
+     * 定时检查：恢复驱逐到期的实例，清理已下线实例的状态，按周期统计成功率
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        for (ServiceOutliers service : serviceMap.values()) {
+            RouteDefinition.OutlierDetectionConfig config = service.config;
+            InstanceSnapshot snapshot = DynamicConfigManager.getInstance().getInstanceSnapshot(service.serviceName);
+            synchronized (service) {
+                boolean changed = false;
+                Iterator<Map.Entry<String, HostState>> iterator = service.hosts.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, HostState> entry = iterator.next();
+                    HostState host = entry.getValue();
+                    // 实例已从注册中心下线，清理状态
+                    if (snapshot == null || !snapshot.getInstanceMap().containsKey(entry.getKey())) {
+                        iterator.remove();
+                        changed |= host.ejected;
+                        continue;
+                    }
+                    if (host.ejected) {
+                        if (now >= host.ejectedUntil) {
+                            host.ejected = false;
+                            host.lastDecayTime = now;
+                            changed = true;
+                            log.info("outlier instance {} of service {} is restored", entry.getKey(), service.serviceName);
+                        }
+                    } else if (host.ejectionCount > 0 && now - host.lastDecayTime >= config.getBaseEjectionMillis()) {
+                        // 恢复后每稳定一个基础驱逐时长，驱逐次数减一，驱逐时长逐步回落
+                        host.ejectionCount--;
+                        host.lastDecayTime = now;
+                    }
+                }
+                if (changed) {
+                    service.publish();
+                }
+            }
+            if (now - service.lastEvaluateTime >= config.getIntervalMillis()) {
+                service.lastEvaluateTime = now;
+                evaluateSuccessRate(service, config);
+            }
+        }
+    }
+
+    /**
+     * 统计一个检测周期内各实例的成功率，驱逐成功率明显低于服务中位数的实例
+     */
+    private void evaluateSuccessRate(ServiceOutliers service, RouteDefinition.OutlierDetectionConfig config) {
+        List<String> ids = new ArrayList<>();
+        List<Double> rates = new ArrayList<>();
+        for (Map.Entry<String, HostState> entry : service.hosts.entrySet()) {
+            HostState host = entry.getValue();
+            long total = host.total.getAndSet(0);
+            long success = host.success.getAndSet(0);
+            if (!host.ejected && total > 0 && total >= config.getSuccessRateRequestVolume()) {
+                ids.add(entry.getKey());
+                rates.add((double) success / total);
+            }
+        }
+        if (config.getSuccessRateRatio() <= 0 || ids.size() < Math.max(1, config.getSuccessRateMinimumHosts())) {
+            return;
+        }
+        double[] sorted = rates.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int middle = sorted.length / 2;
+        double median = sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+        double threshold = median * config.getSuccessRateRatio();
+        for (int i = 0; i < ids.size(); i++) {
+            if (rates.get(i) < threshold) {
+                HostState host = service.hosts.get(ids.get(i));
+                if (host != null) {
+                    eject(service, ids.get(i), host, String.format("success rate %.3f below %.3f", rates.get(i), threshold));
+                }
+            }
+        }
+    }
+
+    /**
+     * 驱逐实例，驱逐时长 = 基础驱逐时长 × 2^(驱逐次数 - 1)，不超过最大驱逐时长
+     */
+    private void eject(ServiceOutliers service, String instanceId, HostState host, String reason) {
+        RouteDefinition.OutlierDetectionConfig config = service.config;
+        InstanceSnapshot snapshot = DynamicConfigManager.getInstance().getInstanceSnapshot(service.serviceName);
+        int total = snapshot == null ? service.hosts.size() : snapshot.getEnabledInstances().size();
+        synchronized (service) {
+            if (host.ejected) {
+                return;
+            }
+            int ejected = service.exclusion.getExcludedIds().size();
+            int maxEjected = Math.max(1, total * config.getMaxEjectionPercent() / 100);
+            if (ejected >= maxEjected || ejected + 1 >= total) {
+                log.warn("outlier instance {} of service {} is not ejected ({}), max ejection reached",
+                        instanceId, service.serviceName, reason);
+                return;
+            }
+            host.ejectionCount++;
+            long ejectionMillis = config.getBaseEjectionMillis() << Math.min(host.ejectionCount - 1, 20);
+            host.ejectedUntil = System.currentTimeMillis() + Math.min(Math.max(0, ejectionMillis), config.getMaxEjectionMillis());
+            host.ejected = true;
+            host.consecutive5xx.set(0);
+            host.consecutiveConnectFailure.set(0);
+            service.publish();
+            log.warn("outlier instance {} of service {} is ejected ({}), times: {}, until: {}",
+                    instanceId, service.serviceName, reason, host.ejectionCount, host.ejectedUntil);
+        }
+    }
+
+    /**
+     * 单个服务的异常检测状态
+     */
+    private static class ServiceOutliers {
+
+        private final String serviceName;
+
+        /**
+         * 实例ID -> 实例的异常检测状态
+         */
+        private final Map<String /* 实例id */, HostState> hosts = new ConcurrentHashMap<>();
+
+        /**
+         * 最近一次使用的检测配置
+         */
+        private volatile RouteDefinition.OutlierDetectionConfig config;
+
+        /**
+         * 被驱逐的实例
+         */
+        private final InstanceExclusion exclusion = new InstanceExclusion();
+
+        /**
+         * 上次统计成功率的时间（毫秒）
+         */
+        private long lastEvaluateTime = System.currentTimeMillis();
+
+        ServiceOutliers(String serviceName, RouteDefinition.OutlierDetectionConfig config) {
+            this.serviceName = serviceName;
+            this.config = config;
+        }
+
+        private HostState host(String instanceId) {
+            HostState host = hosts.get(instanceId);
+            return host != null ? host : hosts.computeIfAbsent(instanceId, id -> new HostState());
+        }
+
+        /**
+         * 重新生成被驱逐的实例集合，需持有锁
+         */
+        private void publish() {
+            Set<String> ids = new HashSet<>();
+            hosts.forEach((id, host) -> {
+                if (host.ejected) ids.add(id);
+            });
+            exclusion.update(ids);
+        }
+    }
+
+    /**
+     * 单个实例的异常检测状态
+     */
+    private static class HostState {
+
+        private final AtomicInteger consecutive5xx = new AtomicInteger();
+
+        private final AtomicInteger consecutiveConnectFailure = new AtomicInteger();
+
+        /**
+         * 当前检测周期内的请求数
+         */
+        private final AtomicLong total = new AtomicLong();
+
+        /**
+         * 当前检测周期内的成功请求数
+         */
+        private final AtomicLong success = new AtomicLong();
+
+        /**
+         * 以下字段在服务状态的锁内修改
+         */
+        private volatile boolean ejected;
+
+        private volatile long ejectedUntil;
+
+        private int ejectionCount;
+
+        private long lastDecayTime;
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.grace.gateway.core.filter.loadbalance;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
+
+import java.util.List;
+
+/**
+ * 慢启动工具类
+ * 新发现的实例JIT未完成编译、缓存未预热，直接分配全额流量会造成延迟尖刺；
+ * 慢启动期间实例的有效权重从最小比例开始，随上线时长线性增加，慢启动结束后恢复为配置的权重
+ * 按权重预先构建选择表的策略在慢启动期间按固定步长重建选择表，慢启动结束后不再重建
+ */
+public class SlowStart {
+
+    /**
+     * 慢启动期间权重变化的步数，选择表每 慢启动时长/步数 重建一次
+     */
+    private static final int STEPS = 20;
+
+    /**
+     * 选择表重建的最小间隔（毫秒）
+     */
+    private static final long MIN_REFRESH_INTERVAL = 100;
+
+    /**
+     * 计算实例当前的权重系数
+     *
+     * @param instance 服务实例
+     * @param config   负载均衡配置
+     * @param now      当前时间（毫秒）
+     * @return 权重系数，范围 [最小权重比例, 1]
+     */
+    public static double weightFactor(ServiceInstance instance, RouteDefinition.LoadBalanceFilterConfig config, long now) {
+        long window = config.getSlowStartMillis();
+        // 未开启慢启动，或网关启动时就已存在的实例，不需要预热
+        if (window <= 0 || instance.getFirstSeenTime() <= 0) {
+            return 1;
+        }
+        long elapsed = now - instance.getFirstSeenTime();
+        if (elapsed >= window) {
+            return 1;
+        }
+        double minFactor = Math.min(100, Math.max(0, config.getSlowStartMinWeightPercent())) / 100.0;
+        return Math.max(minFactor, Math.max(0, elapsed) / (double) window);
+    }
+
+    /**
+     * 计算实例的有效权重
+     *
+     * @param instance 服务实例
+     * @param config   负载均衡配置
+     * @param now      当前时间（毫秒）
+     * @return 有效权重
+     */
+    public static double effectiveWeight(ServiceInstance instance, RouteDefinition.LoadBalanceFilterConfig config, long now) {
+        return instance.getWeight() * weightFactor(instance, config, now);
+    }
+
+    /**
+     * 计算按当前有效权重构建的选择表需要重建的时间
+     *
+     * @param instances 服务实例列表
+     * @param config    负载均衡配置
+     * @param now       当前时间（毫秒）
+     * @return 重建时间（毫秒），没有实例处于慢启动时返回 Long.MAX_VALUE
+     */
+    public static long refreshTime(List<ServiceInstance> instances, RouteDefinition.LoadBalanceFilterConfig config, long now) {
+        long window = config.getSlowStartMillis();
+        if (window <= 0) {
+            return Long.MAX_VALUE;
+        }
+        for (ServiceInstance instance : instances) {
+            if (weightFactor(instance, config, now) < 1) {
+                return now + Math.max(MIN_REFRESH_INTERVAL, window / STEPS);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+}
@@ -2,11 +2,12 @@ package com.grace.gateway.core.filter.loadbalance.strategy;
 
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.pojo.ServiceInstance;
-import com.grace.gateway.config.util.FilterUtil;
 import com.grace.gateway.core.algorithm.ConsistentHashing;
 import com.grace.gateway.core.context.GatewayContext;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_NAME;
 import static com.grace.gateway.common.constant.LoadBalanceConstant.CLIENT_IP_CONSISTENT_HASH_LOAD_BALANCE_STRATEGY;
@@ -17,6 +18,12 @@ import static com.grace.gateway.common.constant.LoadBalanceConstant.CLIENT_IP_CO
  * 适用于对会话一致性要求高的场景（如带状态服务），同时在实例扩缩容时减少流量抖动
  */
 public class ClientIpConsistentHashLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    /**
+     * 服务名 -> 哈希环
+     */
+    private final Map<String /* 服务名 */, HashRing> ringMap = new ConcurrentHashMap<>();
+
     /**
      * 从服务实例列表中选择目标实例
      * 核心逻辑：基于客户端IP的哈希值和一致性哈希算法实现稳定路由
@@ -27,32 +34,26 @@ public class ClientIpConsistentHashLoadBalanceStrategy implements LoadBalanceStr
      */
     @Override
     public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
-        // 从路由配置中获取负载均衡过滤器的详细配置
-        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = FilterUtil.findFilterConfigByClass(
-                context.getRoute().getFilterConfigs(), LOAD_BALANCE_FILTER_NAME, RouteDefinition.LoadBalanceFilterConfig.class);
+        // 从过滤器链中获取预先解析好的负载均衡过滤器配置
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
         // 配置虚拟节点数量（默认为1，配置有效时使用配置值）
         // 虚拟节点用于优化一致性哈希的负载均衡效果，避免实例分布不均
         int virtualNodeNum = 1;
         if (loadBalanceFilterConfig != null && loadBalanceFilterConfig.getVirtualNodeNum() > 0) {
             virtualNodeNum = loadBalanceFilterConfig.getVirtualNodeNum();
         }
-        // 提取所有实例的唯一标识（instanceId）作为哈希环上的物理节点
-        List<String> nodes = instances.stream()
-                .map(ServiceInstance::getInstanceId)
-                .toList();
-        // 初始化一致性哈希算法实例，传入物理节点和虚拟节点数量
-        ConsistentHashing consistentHashing = new ConsistentHashing(nodes, virtualNodeNum);
-        // 基于客户端IP的哈希值作为键，从哈希环上获取对应的节点（instanceId）
-        // 客户端IP哈希值确保同一IP的请求映射到同一键，进而路由到同一实例
-        String selectedNode = consistentHashing.getNode(String.valueOf(context.getRequest().getHost().hashCode()));
-        // 遍历实例列表，找到与选中节点（instanceId）匹配的服务实例
-        for (ServiceInstance instance : instances) {
-            if (instance.getInstanceId().equals(selectedNode)) {
-                return instance;
-            }
+        // 按服务缓存哈希环，实例列表来自不可变的实例快照，列表对象不变即实例集合不变，无需重建
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        HashRing ring = ringMap.get(serviceName);
+        if (ring == null || !ring.matches(instances, virtualNodeNum)) {
+            int nodeNum = virtualNodeNum;
+            ring = ringMap.compute(serviceName, (key, current) ->
+                    current != null && current.matches(instances, nodeNum) ? current : new HashRing(instances, nodeNum));
         }
-        // 若未找到匹配实例（理论上不会发生，除非实例列表在计算过程中变化），返回第一个实例作为降级方案
-        return instances.get(0);
+        // 以客户端IP作为键，从哈希环上获取对应实例的下标，确保同一IP的请求路由到同一实例
+        int index = ring.consistentHashing.getNodeIndex(context.getRequest().getClientIp());
+        // 哈希环为空时（理论上不会发生，实例列表为空时不会走到负载均衡策略），返回第一个实例作为降级方案
+        return index < 0 ? instances.get(0) : instances.get(index);
     }
     /**
      * 获取当前负载均衡策略的标识
@@ -64,4 +65,28 @@ public class ClientIpConsistentHashLoadBalanceStrategy implements LoadBalanceStr
     public String mark() {
         return CLIENT_IP_CONSISTENT_HASH_LOAD_BALANCE_STRATEGY;
     }
+
+    /**
+     * 哈希环及其对应的实例列表
+     */
+    private static class HashRing {
+
+        private final List<ServiceInstance> instances;
+
+        private final int virtualNodeNum;
+
+        private final ConsistentHashing consistentHashing;
+
+        HashRing(List<ServiceInstance> instances, int virtualNodeNum) {
+            this.instances = instances;
+            this.virtualNodeNum = virtualNodeNum;
+            this.consistentHashing = new ConsistentHashing(
+                    instances.stream().map(ServiceInstance::getInstanceId).toList(), virtualNodeNum);
+        }
+
+        private boolean matches(List<ServiceInstance> instances, int virtualNodeNum) {
+            return this.instances == instances && this.virtualNodeNum == virtualNodeNum;
+        }
+    }
+
 }
@@ -1,9 +1,12 @@
 package com.grace.gateway.core.filter.loadbalance.strategy;
 
 import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.algorithm.AliasTable;
 import com.grace.gateway.core.context.GatewayContext;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.grace.gateway.common.constant.LoadBalanceConstant.GRAY_LOAD_BALANCE_STRATEGY;
 
@@ -11,8 +14,15 @@ import static com.grace.gateway.common.constant.LoadBalanceConstant.GRAY_LOAD_BA
  * 灰度负载均衡策略
  * 专门用于灰度实例的负载均衡选择，结合实例阈值（权重）和客户端IP哈希实现流量分配
  * 确保同一客户端IP的请求始终路由到同一灰度实例，同时按阈值比例分配流量
+ * 灰度实例集合变化时按阈值预先构建别名表，选择时间 O(1)
  */
 public class GrayLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    /**
+     * 服务名 -> 别名表
+     */
+    private final Map<String /* 服务名 */, ThresholdTable> tableMap = new ConcurrentHashMap<>();
+
     /**
      * 从灰度实例列表中选择目标实例
      * 核心逻辑：基于客户端IP哈希和实例阈值（权重）实现带权重的一致性路由
@@ -23,27 +33,17 @@ public class GrayLoadBalanceStrategy implements LoadBalanceStrategy {
      */
     @Override
     public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
-        // 计算所有灰度实例的总阈值（转换为整数，放大100倍避免浮点精度问题）
-        // 总阈值代表所有灰度实例可承载的总流量比例
-        int totalThreshold = (int) (instances.stream().mapToDouble(ServiceInstance::getThreshold).sum() * 100);
-        // 若总阈值为0，说明没有可用的灰度实例（或阈值配置无效），返回null
-        if (totalThreshold <= 0) return null;
-        // 基于客户端IP的哈希值计算"流量落点"：
-        // 1. 获取客户端IP的哈希值并取绝对值，确保为正数
-        // 2. 对总阈值取模，得到0~totalThreshold-1之间的数值，作为流量分配的基准
-        int randomThreshold = Math.abs(context.getRequest().getHost().hashCode()) % totalThreshold;
-        // 遍历灰度实例，根据实例阈值分配流量：
-        // 每个实例的阈值对应一个"流量区间"，当randomThreshold落入某个区间时，选择该实例
-        // 例如：实例A阈值0.3（30）、实例B阈值0.2（20），总阈值50
-        // 若randomThreshold=25，落入A的区间（0~29），则选择A
-        for (ServiceInstance instance : instances) {
-            // 将当前实例的阈值（放大100倍）从随机阈值中减去
-            randomThreshold -= instance.getThreshold() * 100;
-            // 当随机阈值小于0时，说明当前实例是"流量落点"，返回该实例
-            if (randomThreshold < 0) return instance;
+        // 按服务缓存以灰度比例为权重的别名表，实例列表来自不可变的实例快照，列表对象不变即实例集合不变，无需重建
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        ThresholdTable table = tableMap.get(serviceName);
+        if (table == null || table.instances != instances) {
+            table = tableMap.compute(serviceName, (key, current) ->
+                    current != null && current.instances == instances ? current : new ThresholdTable(instances));
         }
-        // 若遍历完所有实例仍未找到（理论上不会发生，除非计算错误），返回null
-        return null;
+        // 基于客户端哈希值按灰度比例选择实例：相同的哈希值总是落到同一实例，不同客户端按比例分布
+        // 总阈值为0时（没有可用的灰度实例或阈值配置无效）返回null
+        int index = table.aliasTable.select(context.getRequest().getHost().hashCode());
+        return index < 0 ? null : instances.get(index);
     }
     /**
      * 获取当前策略的唯一标识
@@ -55,4 +55,23 @@ public class GrayLoadBalanceStrategy implements LoadBalanceStrategy {
     public String mark() {
         return GRAY_LOAD_BALANCE_STRATEGY;
     }
+
+    /**
+     * 以灰度比例为权重的别名表及其对应的实例列表
+     */
+    private static class ThresholdTable {
+
+        private final List<ServiceInstance> instances;
+
+        private final AliasTable aliasTable;
+
+        ThresholdTable(List<ServiceInstance> instances) {
+            this.instances = instances;
+            double[] thresholds = new double[instances.size()];
+            for (int i = 0; i < thresholds.length; i++) {
+                thresholds[i] = instances.get(i).getThreshold();
+            }
+            this.aliasTable = new AliasTable(thresholds);
+        }
+    }
 }
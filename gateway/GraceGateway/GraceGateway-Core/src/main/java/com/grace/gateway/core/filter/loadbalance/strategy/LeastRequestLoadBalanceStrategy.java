@@ -0,0 +1,51 @@
+package com.grace.gateway.core.filter.loadbalance.strategy;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.InstanceStats;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.grace.gateway.common.constant.LoadBalanceConstant.LEAST_REQUEST_LOAD_BALANCE_STRATEGY;
+
+/**
+ * 最少在途请求负载均衡策略
+ * 随机挑选两个实例，选择其中在途请求数较少的一个（两次随机选择，Power of Two Choices）
+ * 响应慢或GC停顿的实例在途请求会堆积，自然分到更少的新请求；只比较两个实例，选择开销与实例数无关
+ */
+public class LeastRequestLoadBalanceStrategy implements LoadBalanceStrategy {
+    /**
+     * 从实例列表中选择在途请求较少的实例
+     *
+     * @param context   网关上下文对象（本策略无需使用上下文信息）
+     * @param instances 可用的服务实例列表
+     * @return 选中的服务实例
+     */
+    @Override
+    public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 随机选出两个不同的实例
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return InstanceStats.of(b).getInflight() < InstanceStats.of(a).getInflight() ? b : a;
+    }
+    /**
+     * 获取当前负载均衡策略的标识
+     *
+     * @return 策略标识，固定为LEAST_REQUEST_LOAD_BALANCE_STRATEGY
+     */
+    @Override
+    public String mark() {
+        return LEAST_REQUEST_LOAD_BALANCE_STRATEGY;
+    }
+}
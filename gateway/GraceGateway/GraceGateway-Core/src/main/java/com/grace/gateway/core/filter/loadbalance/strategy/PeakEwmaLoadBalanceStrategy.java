@@ -0,0 +1,70 @@
+package com.grace.gateway.core.filter.loadbalance.strategy;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.InstanceStats;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.grace.gateway.common.constant.LoadBalanceConstant.PEAK_EWMA_LOAD_BALANCE_STRATEGY;
+
+/**
+ * 峰值EWMA负载均衡策略
+ * 每个实例的负载 = 响应延迟的峰值指数加权移动平均 ×（在途请求数 + 1），随机挑选两个实例，选择负载较小的一个
+ * 所在主机繁忙、响应变慢的实例负载立即升高而分到更少的请求，恢复后延迟平均值随时间衰减，流量逐渐回流
+ */
+public class PeakEwmaLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    /**
+     * 还没有延迟采样但已有在途请求的实例的负载，避免新实例在第一个请求返回前被压垮
+     */
+    private static final double PENALTY = Long.MAX_VALUE >> 16;
+
+    /**
+     * 从实例列表中选择负载较小的实例
+     *
+     * @param context   网关上下文对象（本策略无需使用上下文信息）
+     * @param instances 可用的服务实例列表
+     * @return 选中的服务实例
+     */
+    @Override
+    public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 随机选出两个不同的实例
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return cost(InstanceStats.of(b)) < cost(InstanceStats.of(a)) ? b : a;
+    }
+
+    /**
+     * 计算实例的负载
+     */
+    private double cost(InstanceStats stats) {
+        double latency = stats.getLatencyEwma();
+        int inflight = stats.getInflight();
+        if (latency == 0) {
+            return inflight == 0 ? 0 : PENALTY + inflight;
+        }
+        return latency * (inflight + 1);
+    }
+
+    /**
+     * 获取当前负载均衡策略的标识
+     *
+     * @return 策略标识，固定为PEAK_EWMA_LOAD_BALANCE_STRATEGY
+     */
+    @Override
+    public String mark() {
+        return PEAK_EWMA_LOAD_BALANCE_STRATEGY;
+    }
+}
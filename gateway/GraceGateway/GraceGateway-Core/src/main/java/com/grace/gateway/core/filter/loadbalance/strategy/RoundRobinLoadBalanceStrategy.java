@@ -2,7 +2,6 @@ package com.grace.gateway.core.filter.loadbalance.strategy;
 
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.pojo.ServiceInstance;
-import com.grace.gateway.config.util.FilterUtil;
 import com.grace.gateway.core.context.GatewayContext;
 
 import java.util.List;
@@ -48,9 +47,8 @@ public class RoundRobinLoadBalanceStrategy implements LoadBalanceStrategy {
     public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
         // 默认启用严格轮询（线程安全模式）
         boolean isStrictRoundRobin = true;
-        // 从路由配置中获取负载均衡过滤器的详细配置
-        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = FilterUtil.findFilterConfigByClass(
-                context.getRoute().getFilterConfigs(), LOAD_BALANCE_FILTER_NAME, RouteDefinition.LoadBalanceFilterConfig.class);
+        // 从过滤器链中获取预先解析好的负载均衡过滤器配置
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
 
         // 若配置存在，根据配置决定是否启用严格轮询
         if (loadBalanceFilterConfig != null) {
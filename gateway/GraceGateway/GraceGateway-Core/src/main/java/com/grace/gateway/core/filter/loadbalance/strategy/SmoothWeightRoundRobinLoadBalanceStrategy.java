@@ -0,0 +1,104 @@
+package com.grace.gateway.core.filter.loadbalance.strategy;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.algorithm.SmoothWeightedRoundRobin;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.SlowStart;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_NAME;
+import static com.grace.gateway.common.constant.LoadBalanceConstant.SMOOTH_WEIGHT_ROUND_ROBIN_LOAD_BALANCE_STRATEGY;
+
+/**
+ * 平滑加权轮询负载均衡策略
+ * 按实例权重比例轮流分配请求，高权重实例的请求均匀穿插在周期内，不会连续集中到同一实例
+ * 实例集合变化时预先算好一个周期的选择顺序，选择时间 O(1)
+ */
+public class SmoothWeightRoundRobinLoadBalanceStrategy implements LoadBalanceStrategy {
+
+    /**
+     * 服务名 -> 轮询顺序
+     */
+    private final Map<String /* 服务名 */, RoundRobinTable> tableMap = new ConcurrentHashMap<>();
+
+    /**
+     * 按平滑加权轮询选择实例
+     *
+     * @param context   网关上下文对象，包含当前请求的服务信息
+     * @param instances 可用的服务实例列表
+     * @return 选中的服务实例，若所有实例权重都为0则返回null
+     */
+    @Override
+    public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
+        // 按服务缓存轮询顺序，实例列表来自不可变的实例快照，列表对象不变即实例集合不变，无需重建
+        // 有实例处于慢启动时，按有效权重定期重建
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        RoundRobinTable table = tableMap.get(serviceName);
+        if (table == null || !table.matches(instances, loadBalanceFilterConfig)) {
+            table = tableMap.compute(serviceName, (key, current) ->
+                    current != null && current.matches(instances, loadBalanceFilterConfig) ? current : new RoundRobinTable(instances, loadBalanceFilterConfig));
+        }
+        int index = table.roundRobin.next();
+        return index < 0 ? null : instances.get(index);
+    }
+    /**
+     * 获取当前负载均衡策略的标识
+     *
+     * @return 策略标识，固定为SMOOTH_WEIGHT_ROUND_ROBIN_LOAD_BALANCE_STRATEGY
+     */
+    @Override
+    public String mark() {
+        return SMOOTH_WEIGHT_ROUND_ROBIN_LOAD_BALANCE_STRATEGY;
+    }
+
+    /**
+     * 轮询顺序及其对应的实例列表
+     */
+    private static class RoundRobinTable {
+
+        /**
+         * 有效权重放大倍数，慢启动期间的小数权重按 0.1 的精度取整，约去最大公约数后不影响周期长度
+         */
+        private static final int WEIGHT_SCALE = 10;
+
+        private final List<ServiceInstance> instances;
+
+        private final long slowStartMillis;
+
+        private final int slowStartMinWeightPercent;
+
+        /**
+         * 需要按新的有效权重重建的时间（毫秒），没有实例处于慢启动时为 Long.MAX_VALUE
+         */
+        private final long refreshTime;
+
+        private final SmoothWeightedRoundRobin roundRobin;
+
+        RoundRobinTable(List<ServiceInstance> instances, RouteDefinition.LoadBalanceFilterConfig config) {
+            long now = System.currentTimeMillis();
+            this.instances = instances;
+            this.slowStartMillis = config.getSlowStartMillis();
+            this.slowStartMinWeightPercent = config.getSlowStartMinWeightPercent();
+            this.refreshTime = SlowStart.refreshTime(instances, config, now);
+            int[] weights = new int[instances.size()];
+            for (int i = 0; i < weights.length; i++) {
+                // 权重为正的实例取整后至少保留1，避免慢启动初期完全分不到流量
+                int weight = (int) Math.round(SlowStart.effectiveWeight(instances.get(i), config, now) * WEIGHT_SCALE);
+                weights[i] = instances.get(i).getWeight() > 0 ? Math.max(1, weight) : 0;
+            }
+            this.roundRobin = new SmoothWeightedRoundRobin(weights);
+        }
+
+        private boolean matches(List<ServiceInstance> instances, RouteDefinition.LoadBalanceFilterConfig config) {
+            return this.instances == instances
+                    && slowStartMillis == config.getSlowStartMillis()
+                    && slowStartMinWeightPercent == config.getSlowStartMinWeightPercent()
+                    && (refreshTime == Long.MAX_VALUE || System.currentTimeMillis() < refreshTime);
+        }
+    }
+}
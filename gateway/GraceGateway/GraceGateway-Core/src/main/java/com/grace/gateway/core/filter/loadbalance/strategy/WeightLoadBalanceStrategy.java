@@ -1,16 +1,27 @@
 package com.grace.gateway.core.filter.loadbalance.strategy;
+import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.algorithm.AliasTable;
 import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.SlowStart;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_NAME;
 import static com.grace.gateway.common.constant.LoadBalanceConstant.WEIGHT_LOAD_BALANCE_STRATEGY;
 
 /**
  * 权重负载均衡策略实现类
  * 基于服务实例的权重分配请求，权重越高的实例被选中的概率越大
+ * 实例集合变化时按权重预先构建别名表，选择时间 O(1)，与实例数无关
  */
 public class WeightLoadBalanceStrategy implements LoadBalanceStrategy {
 
+    /**
+     * 服务名 -> 别名表
+     */
+    private final Map<String /* 服务名 */, WeightTable> tableMap = new ConcurrentHashMap<>();
+
     /**
      * 根据权重选择合适的服务实例
      * @param context 网关上下文对象，包含当前请求的相关信息
@@ -19,23 +30,18 @@ public class WeightLoadBalanceStrategy implements LoadBalanceStrategy {
      */
     @Override
     public ServiceInstance selectInstance(GatewayContext context, List<ServiceInstance> instances) {
-        // 计算所有服务实例的权重总和
-        // 使用stream流将每个实例的权重转换为int并求和
-        int totalWeight = instances.stream().mapToInt(ServiceInstance::getWeight).sum();
-        // 如果总权重小于等于0，说明没有可用的有效实例，返回null
-        if (totalWeight <= 0) return null;
-        // 生成一个0到总权重之间的随机数
-        // 使用ThreadLocalRandom确保线程安全，避免多线程环境下的竞争问题
-        int randomWeight = ThreadLocalRandom.current().nextInt(totalWeight);
-
-        // 遍历服务实例，用随机数减去每个实例的权重
-        // 当随机数小于0时，返回当前实例，实现按权重比例的随机选择
-        for (ServiceInstance instance : instances) {
-            randomWeight -= instance.getWeight();
-            if (randomWeight < 0) return instance;
+        // 按服务缓存别名表，实例列表来自不可变的实例快照，列表对象不变即实例集合不变，无需重建
+        // 有实例处于慢启动时，按有效权重定期重建
+        RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig = context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
+        String serviceName = context.getRequest().getServiceDefinition().getServiceName();
+        WeightTable table = tableMap.get(serviceName);
+        if (table == null || !table.matches(instances, loadBalanceFilterConfig)) {
+            table = tableMap.compute(serviceName, (key, current) ->
+                    current != null && current.matches(instances, loadBalanceFilterConfig) ? current : new WeightTable(instances, loadBalanceFilterConfig));
         }
-        // 理论上不会执行到这里，作为安全兜底返回null
-        return null;
+        // 按权重随机选择实例下标，权重总和不大于0时没有可用的有效实例，返回null
+        int index = table.aliasTable.next();
+        return index < 0 ? null : instances.get(index);
     }
     /**
      * 返回当前负载均衡策略的标识
@@ -45,4 +51,43 @@ public class WeightLoadBalanceStrategy implements LoadBalanceStrategy {
     public String mark() {
         return WEIGHT_LOAD_BALANCE_STRATEGY;
     }
+
+    /**
+     * 别名表及其对应的实例列表
+     */
+    private static class WeightTable {
+
+        private final List<ServiceInstance> instances;
+
+        private final long slowStartMillis;
+
+        private final int slowStartMinWeightPercent;
+
+        /**
+         * 需要按新的有效权重重建的时间（毫秒），没有实例处于慢启动时为 Long.MAX_VALUE
+         */
+        private final long refreshTime;
+
+        private final AliasTable aliasTable;
+
+        WeightTable(List<ServiceInstance> instances, RouteDefinition.LoadBalanceFilterConfig config) {
+            long now = System.currentTimeMillis();
+            this.instances = instances;
+            this.slowStartMillis = config.getSlowStartMillis();
+            this.slowStartMinWeightPercent = config.getSlowStartMinWeightPercent();
+            this.refreshTime = SlowStart.refreshTime(instances, config, now);
+            double[] weights = new double[instances.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = SlowStart.effectiveWeight(instances.get(i), config, now);
+            }
+            this.aliasTable = new AliasTable(weights);
+        }
+
+        private boolean matches(List<ServiceInstance> instances, RouteDefinition.LoadBalanceFilterConfig config) {
+            return this.instances == instances
+                    && slowStartMillis == config.getSlowStartMillis()
+                    && slowStartMinWeightPercent == config.getSlowStartMinWeightPercent()
+                    && (refreshTime == Long.MAX_VALUE || System.currentTimeMillis() < refreshTime);
+        }
+    }
 }
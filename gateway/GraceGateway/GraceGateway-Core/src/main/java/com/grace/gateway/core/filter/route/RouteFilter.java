@@ -7,7 +7,7 @@ import com.grace.gateway.core.filter.Filter;
 import com.grace.gateway.core.helper.ContextHelper;
 import com.grace.gateway.core.helper.ResponseHelper;
 import com.grace.gateway.core.resilience.Resilience;
-import org.asynchttpclient.Response;
+import com.grace.gateway.core.http.UpstreamResponse;
 
 import java.util.concurrent.CompletableFuture;
 
@@ -28,6 +28,11 @@ public class RouteFilter implements Filter {
      */
     @Override
     public void doPreFilter(GatewayContext context) {
+        // 流式请求：请求体无法重放，不经过重试、熔断等弹性策略，直接以流式方式转发
+        if (context.getRequest().isStreaming()) {
+            RouteUtil.routeStreaming(context);
+            return;
+        }
         // 从路由定义中获取弹性配置（如熔断、限流等）
         RouteDefinition.ResilienceConfig resilience = context.getRoute().getResilience();
         if (resilience.isEnabled()) { // 如果开启了弹性配置
@@ -38,7 +43,7 @@ public class RouteFilter implements Filter {
             // RouteUtil.buildRouteSupplier(context)创建请求供应商
             // get()获取异步HTTP请求
             // toCompletableFuture()转换为CompletableFuture以便异步处理
-            CompletableFuture<Response> future = RouteUtil.buildRouteSupplier(context).get().toCompletableFuture();
+            CompletableFuture<UpstreamResponse> future = RouteUtil.buildRouteSupplier(context).get().toCompletableFuture();
             // 处理请求异常情况
             future.exceptionally(throwable -> {
                 // 构建HTTP响应错误的网关响应
@@ -59,6 +64,13 @@ public class RouteFilter implements Filter {
         // 继续执行过滤器链中的下一个过滤器
         context.doFilter();
     }
+    /**
+     * 路由转发过滤器始终启用
+     */
+    @Override
+    public boolean isEnabled(RouteDefinition.FilterConfig filterConfig, Object config) {
+        return true;
+    }
     /**
      * 获取当前过滤器的标识
      * @return 路由过滤器的名称常量
@@ -1,15 +1,22 @@
 package com.grace.gateway.core.filter.route;
 
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
 import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.InstanceStats;
+import com.grace.gateway.core.filter.loadbalance.OutlierDetector;
 import com.grace.gateway.core.helper.ResponseHelper;
 import com.grace.gateway.core.http.HttpClient;
+import com.grace.gateway.core.response.StreamingResponseWriter;
+import com.grace.gateway.core.http.UpstreamResponse;
 import org.asynchttpclient.Request;
-import org.asynchttpclient.Response;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.Supplier;
 
+import static com.grace.gateway.common.constant.FilterConstant.LOAD_BALANCE_FILTER_NAME;
+
 /**
  * 路由工具类
  * 提供构建路由请求供应器的功能，封装了请求发送和响应处理的逻辑
@@ -22,31 +29,105 @@ public class RouteUtil {
      * @param context 网关上下文对象，包含请求信息和处理状态
      * @return 返回一个供应器，其提供的CompletionStage会在请求完成后触发
      */
-    public static Supplier<CompletionStage<Response>> buildRouteSupplier(GatewayContext context) {
+    public static Supplier<CompletionStage<UpstreamResponse>> buildRouteSupplier(GatewayContext context) {
         // 返回一个Supplier函数式接口的实现
         return () -> {
-            // 1. 从上下文获取请求对象并构建异步HTTP客户端需要的Request对象
-            Request request = context.getRequest().build();
-            // 2. 使用HttpClient单例发送请求，获取异步结果CompletableFuture
-            CompletableFuture<Response> future = HttpClient.getInstance().executeRequest(request);
-            // 3. 注册请求完成后的回调函数
-            future.whenComplete(((response, throwable) -> {
-                // 3.1 如果发生异常
-                if (throwable != null) {
-                    // 将异常存储到上下文
-                    context.setThrowable(throwable);
-                    // 抛出运行时异常，会被上层的exceptionally()捕获
-                    throw new RuntimeException(throwable);
-                }
-                // 3.2 如果请求成功，处理响应
-                // 将HTTP响应转换为网关统一响应格式并存储到上下文
-                context.setResponse(ResponseHelper.buildGatewayResponse(response));
-                // 继续执行过滤器链的下一个过滤器
-                context.doFilter();
-            }));
+            // 1. 向负载均衡选中的实例发送请求，获取异步结果CompletableFuture
+            CompletableFuture<UpstreamResponse> future = sendRequest(context, context.getServiceInstance());
+            // 2. 注册请求完成后的回调函数
+            future.whenComplete((response, throwable) -> handleResponse(context, response, throwable));
             // 返回异步结果对象
             return future;
         };
     }
 
+    /**
+     * 向指定实例发送一次请求，统计实例的耗时和转发结果，不处理响应
+     *
+     * @param context  网关上下文对象
+     * @param instance 目标实例，为null时使用请求中已设置的地址
+     * @return 下游响应的异步结果，可以取消
+     */
+    public static CompletableFuture<UpstreamResponse> sendRequest(GatewayContext context, ServiceInstance instance) {
+        // 1. 从上下文获取请求对象并构建异步HTTP客户端需要的Request对象
+        if (instance != null) {
+            context.getRequest().setModifyHost(instance.getIp() + ":" + instance.getPort());
+        }
+        Request request = context.getRequest().build();
+        // 2. 使用HttpClient单例发送请求，获取异步结果CompletableFuture
+        // 每次发送单独统计发往实例的在途请求，重试、对冲请求各自计数，结束（包括被取消）时归还
+        InstanceStats instanceStats = instance == null ? null : InstanceStats.of(instance);
+        if (instanceStats != null) {
+            instanceStats.onStart();
+        }
+        long startNanos = System.nanoTime();
+        CompletableFuture<UpstreamResponse> future;
+        try {
+            future = HttpClient.getInstance().executeRequest(request, context.getNettyCtx().channel().eventLoop());
+        } catch (Throwable t) {
+            if (instanceStats != null) {
+                instanceStats.onComplete();
+            }
+            throw t;
+        }
+        // 3. 统计实例本次请求的耗时，供按延迟选择实例的负载均衡策略使用；被调用方取消的请求不计入
+        if (instanceStats != null) {
+            future.whenComplete((response, throwable) -> {
+                instanceStats.onComplete();
+                if (future.isCancelled()) {
+                    return;
+                }
+                instanceStats.recordLatency(System.nanoTime() - startNanos, throwable == null);
+                // 转发结果交给异常实例检测，持续出错的实例会被暂时移出负载均衡
+                RouteDefinition.LoadBalanceFilterConfig loadBalanceFilterConfig =
+                        context.getFilterChain().getFilterConfig(LOAD_BALANCE_FILTER_NAME);
+                OutlierDetector.getInstance().record(context.getRequest().getServiceDefinition().getServiceName(),
+                        instance, loadBalanceFilterConfig.getOutlierDetection(),
+                        response == null ? 0 : response.getStatusCode(), throwable);
+            });
+        }
+        return future;
+    }
+
+    /**
+     * 处理转发结果：成功时转换响应并继续执行后置过滤器，失败时记录异常并抛出
+     *
+     * @param context   网关上下文对象
+     * @param response  下游响应，失败时为null
+     * @param throwable 转发异常，成功时为null
+     */
+    public static void handleResponse(GatewayContext context, UpstreamResponse response, Throwable throwable) {
+        // 1. 如果发生异常
+        if (throwable != null) {
+            // 将异常存储到上下文
+            context.setThrowable(throwable);
+            // 抛出运行时异常，会被上层的exceptionally()捕获
+            throw new RuntimeException(throwable);
+        }
+        // 2. 如果请求成功，处理响应
+        // 将HTTP响应转换为网关统一响应格式并存储到上下文
+        context.setResponse(ResponseHelper.buildGatewayResponse(response));
+        // 继续执行过滤器链的下一个过滤器
+        context.doFilter();
+    }
+
+    /**
+     * 以流式方式转发请求
+     * 请求体由流式请求体按需拉取，响应头到达后执行后置过滤器并写回，响应体分块直接写回客户端
+     *
+     * @param context 网关上下文对象
+     */
+    public static void routeStreaming(GatewayContext context) {
+        Request request = context.getRequest().build();
+        // 流式响应在响应体转发结束时才完成请求，在途请求统计到那时为止
+        ServiceInstance instance = context.getServiceInstance();
+        if (instance != null) {
+            InstanceStats instanceStats = InstanceStats.of(instance);
+            instanceStats.onStart();
+            context.addCompletionListener(instanceStats::onComplete);
+        }
+        HttpClient.getInstance().executeStreamingRequest(request, context.getNettyCtx().channel().eventLoop(),
+                new StreamingResponseWriter(context));
+    }
+
 }
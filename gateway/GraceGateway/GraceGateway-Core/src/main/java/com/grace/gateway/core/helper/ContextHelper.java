@@ -4,7 +4,9 @@ import com.grace.gateway.config.helper.RouteResolver;
 import com.grace.gateway.config.manager.DynamicConfigManager;
 import com.grace.gateway.config.pojo.RouteDefinition;
 import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.netty.handler.GatewayHttpObjectAggregator;
 import com.grace.gateway.core.request.GatewayRequest;
+import com.grace.gateway.core.request.StreamingRequestBody;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
@@ -27,13 +29,30 @@ public class ContextHelper {
      * @return 构建完成的网关上下文对象
      */
     public static GatewayContext buildGatewayContext(FullHttpRequest request, ChannelHandlerContext ctx) {
-        // 1. 根据请求URI匹配对应的路由规则（路由解析）
-        RouteDefinition route = RouteResolver.matchingRouteByUri(request.uri());
+        return buildGatewayContext(request, null, ctx);
+    }
+
+    /**
+     * 构建网关上下文对象，支持流式请求
+     *
+     * @param request       HTTP请求对象，非流式时为聚合后的完整请求，流式时只有请求头
+     * @param streamingBody 流式请求体，非流式请求传null
+     * @param ctx           Netty通道上下文（用于操作网络通道）
+     * @return 构建完成的网关上下文对象
+     */
+    public static GatewayContext buildGatewayContext(HttpRequest request, StreamingRequestBody streamingBody,
+                                                     ChannelHandlerContext ctx) {
+        // 1. 根据请求URI匹配对应的路由规则（路由解析），聚合器收到请求头时已解析过则直接复用
+        RouteDefinition route = ctx.channel().attr(GatewayHttpObjectAggregator.ROUTE_ATTRIBUTE_KEY).getAndSet(null);
+        if (route == null) {
+            route = RouteResolver.matchingRouteByUri(request.uri());
+        }
         // 2. 构建网关请求对象（封装服务信息、原始请求、通道等）
         // 从动态配置管理器中获取路由对应的服务信息，结合原始请求和通道构建GatewayRequest
         GatewayRequest gatewayRequest = RequestHelper.buildGatewayRequest(
                 DynamicConfigManager.getInstance().getServiceByName(route.getServiceName()),
                 request,
+                streamingBody,
                 ctx
         );
         // 3. 创建并返回网关上下文对象
@@ -52,6 +71,17 @@ public class ContextHelper {
      * @param context 网关上下文对象（包含响应数据和连接信息）
      */
     public static void writeBackResponse(GatewayContext context) {
+        // 流式响应只写回响应头，响应体由写回器分块转发，结束时再按长短连接处理并执行完成回调
+        if (context.getResponse().isStreaming()) {
+            HttpResponse head = ResponseHelper.buildHttpResponseHead(context.getResponse());
+            if (context.isKeepAlive()) {
+                head.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            context.getResponse().getStreamingWriter().writeHead(head);
+            return;
+        }
+        // 请求结束，执行完成回调（如归还并发额度）
+        context.complete();
         // 1. 根据上下文的响应数据构建HTTP响应对象
         FullHttpResponse httpResponse = ResponseHelper.buildHttpResponse(context.getResponse());
         // 2. 根据连接类型（长/短连接）处理响应
@@ -65,5 +95,7 @@ public class ContextHelper {
             // 写入并刷新响应（不关闭通道）
             context.getNettyCtx().writeAndFlush(httpResponse);
         }
+        // 3. 响应已产生，释放原始请求（请求体缓冲区），仍在写出的下游请求各自持有请求体引用，不受影响
+        context.getRequest().release();
     }
 }
@@ -3,6 +3,7 @@ package com.grace.gateway.core.helper;
 import com.alibaba.nacos.common.utils.StringUtils;
 import com.grace.gateway.config.pojo.ServiceDefinition;
 import com.grace.gateway.core.request.GatewayRequest;
+import com.grace.gateway.core.request.StreamingRequestBody;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.*;
 import org.asynchttpclient.Request;
@@ -37,25 +38,41 @@ public class RequestHelper {
     public static GatewayRequest buildGatewayRequest(ServiceDefinition serviceDefinition,
                                                      FullHttpRequest fullHttpRequest,
                                                      ChannelHandlerContext ctx) {
+        return buildGatewayRequest(serviceDefinition, fullHttpRequest, null, ctx);
+    }
+
+    /**
+     * 构建网关内部统一的请求对象，支持流式请求
+     *
+     * @param serviceDefinition 目标服务定义（包含服务地址、端口等元信息）
+     * @param httpRequest       Netty接收的HTTP请求，非流式时为聚合后的FullHttpRequest，流式时只有请求头
+     * @param streamingBody     流式请求体，非流式请求传null
+     * @param ctx               通道处理器上下文（用于获取客户端连接信息）
+     * @return 封装了完整请求信息的GatewayRequest对象
+     */
+    public static GatewayRequest buildGatewayRequest(ServiceDefinition serviceDefinition,
+                                                     HttpRequest httpRequest,
+                                                     StreamingRequestBody streamingBody,
+                                                     ChannelHandlerContext ctx) {
         // 获取HTTP请求头信息
-        HttpHeaders headers = fullHttpRequest.headers();
+        HttpHeaders headers = httpRequest.headers();
         // 从请求头中获取Host信息（如域名或IP:端口）
         String host = headers.get(HttpHeaderNames.HOST);
         // 获取HTTP请求方法（如GET、POST）
-        HttpMethod method = fullHttpRequest.method();
+        HttpMethod method = httpRequest.method();
         // 获取请求URI（包含路径和查询参数）
-        String uri = fullHttpRequest.uri();
+        String uri = httpRequest.uri();
         // 获取客户端真实IP地址
-        String clientIp = getClientIp(ctx, fullHttpRequest);
+        String clientIp = getClientIp(ctx, httpRequest);
         // 获取请求的MIME类型（如application/json、application/x-www-form-urlencoded）
-        String contentType = HttpUtil.getMimeType(fullHttpRequest) == null ? null :
-                HttpUtil.getMimeType(fullHttpRequest).toString();
+        String contentType = HttpUtil.getMimeType(httpRequest) == null ? null :
+                HttpUtil.getMimeType(httpRequest).toString();
         // 获取请求的字符集（默认UTF-8）
-        Charset charset = HttpUtil.getCharset(fullHttpRequest, StandardCharsets.UTF_8);
+        Charset charset = HttpUtil.getCharset(httpRequest, StandardCharsets.UTF_8);
 
         // 构建并返回网关内部请求对象
         return new GatewayRequest(serviceDefinition, charset, clientIp, host, uri, method,
-                contentType, headers, fullHttpRequest);
+                contentType, headers, httpRequest, streamingBody);
     }
 
     /**
@@ -78,7 +95,7 @@ public class RequestHelper {
      * @param request HTTP请求对象（用于获取转发头信息）
      * @return 客户端真实IP地址
      */
-    private static String getClientIp(ChannelHandlerContext ctx, FullHttpRequest request) {
+    private static String getClientIp(ChannelHandlerContext ctx, HttpRequest request) {
         // 从请求头中获取转发链信息（如X-Forwarded-For）
         String xForwardedValue = request.headers().get(HTTP_FORWARD_SEPARATOR);
 
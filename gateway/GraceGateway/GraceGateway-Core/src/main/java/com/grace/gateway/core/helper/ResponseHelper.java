@@ -3,15 +3,20 @@ package com.grace.gateway.core.helper;
 
 import cn.hutool.json.JSONUtil;
 import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.common.exception.GatewayException;
+import com.grace.gateway.common.exception.LimitedException;
 import com.grace.gateway.core.response.GatewayResponse;
+import com.grace.gateway.core.response.StreamingResponseWriter;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.*;
 import lombok.extern.slf4j.Slf4j;
-import org.asynchttpclient.Response;
+import com.grace.gateway.core.http.UpstreamResponse;
 
 import java.util.Objects;
 
+import static com.grace.gateway.common.constant.HttpConstant.RATE_LIMIT_SCOPE_HEADER;
+
 
 /**
  * 响应转换工具类
@@ -35,8 +40,8 @@ public class ResponseHelper {
         // 构建响应体内容（ByteBuf是Netty中用于网络传输的字节缓冲区）
         ByteBuf content;
         if (Objects.nonNull(gatewayResponse.getResponse())) {
-            // 情况1：存在后端服务响应，直接使用后端响应的字节缓冲区
-            content = Unpooled.wrappedBuffer(gatewayResponse.getResponse().getResponseBodyAsByteBuffer());
+            // 情况1：存在后端服务响应，直接转交后端响应的字节缓冲区（不拷贝，写出后由Netty释放）
+            content = gatewayResponse.getResponse().getContent();
         } else if (gatewayResponse.getContent() != null) {
             // 情况2：网关内部生成的响应内容（如错误信息），转换为字节缓冲区
             content = Unpooled.wrappedBuffer(gatewayResponse.getContent().getBytes());
@@ -72,6 +77,25 @@ public class ResponseHelper {
         return httpResponse;
     }
 
+    /**
+     * 构建流式响应的响应头（不含响应体）
+     * 下游未声明长度时改为分块编码，响应体由 StreamingResponseWriter 分块写回
+     *
+     * @param gatewayResponse 网关内部封装的流式响应对象
+     * @return Netty的HttpResponse对象，只包含响应行和响应头
+     */
+    public static HttpResponse buildHttpResponseHead(GatewayResponse gatewayResponse) {
+        DefaultHttpResponse httpResponse = new DefaultHttpResponse(
+                HttpVersion.HTTP_1_1,
+                gatewayResponse.getHttpResponseStatus()
+        );
+        httpResponse.headers().add(gatewayResponse.getResponseHeaders());
+        if (!HttpUtil.isContentLengthSet(httpResponse) && !HttpUtil.isTransferEncodingChunked(httpResponse)) {
+            HttpUtil.setTransferEncodingChunked(httpResponse, true);
+        }
+        return httpResponse;
+    }
+
     /**
      * 根据错误码构建标准HTTP响应
      * 用于网关在发生错误时（如路由不存在、权限拒绝）返回统一格式的错误响应
@@ -95,27 +119,68 @@ public class ResponseHelper {
     }
 
 
+    /**
+     * 根据网关异常构建标准HTTP响应
+     * 限流异常带有重试等待时间时，额外返回 Retry-After 响应头（单位秒，向上取整）；带有限流层级时返回 X-RateLimit-Scope 响应头
+     *
+     * @param e 网关异常
+     * @return 包含错误信息的Netty HTTP响应对象
+     */
+    public static FullHttpResponse buildHttpResponse(GatewayException e) {
+        FullHttpResponse httpResponse = buildHttpResponse(e.getCode());
+        if (e instanceof LimitedException limitedException) {
+            if (limitedException.getRetryAfterMillis() > 0) {
+                long retryAfterSeconds = (limitedException.getRetryAfterMillis() + 999) / 1000;
+                httpResponse.headers().set(HttpHeaderNames.RETRY_AFTER, retryAfterSeconds);
+            }
+            if (limitedException.getScope() != null) {
+                httpResponse.headers().set(RATE_LIMIT_SCOPE_HEADER, limitedException.getScope());
+            }
+        }
+        return httpResponse;
+    }
+
+
     /**
      * 将后端服务响应转换为网关内部响应对象
      * 用于将HTTP客户端接收到的后端服务响应封装为网关可处理的格式
      *
-     * @param response 异步HTTP客户端接收到的后端服务响应
+     * @param response HTTP客户端接收到的后端服务响应
      * @return 网关内部的GatewayResponse对象
      */
-    public static GatewayResponse buildGatewayResponse(Response response) {
+    public static GatewayResponse buildGatewayResponse(UpstreamResponse response) {
         GatewayResponse gatewayResponse = new GatewayResponse();
         // 保存后端服务响应头
         gatewayResponse.setResponseHeaders(response.getHeaders());
         // 转换HTTP状态码（如200、404）
         gatewayResponse.setHttpResponseStatus(HttpResponseStatus.valueOf(response.getStatusCode()));
-        // 保存响应体字符串
-        gatewayResponse.setContent(response.getResponseBody());
+        // 响应体不再预先解码为字符串，过滤器需要时再按需解码
         // 保存原始响应对象（便于后续提取更多信息）
         gatewayResponse.setResponse(response);
 
         return gatewayResponse;
     }
 
+    /**
+     * 根据下游响应头构建流式网关响应对象
+     * 只保存响应行和响应头，后置过滤器仍可修改响应头，响应体由写回器分块转发
+     *
+     * @param statusCode      下游响应状态码
+     * @param headers         下游响应头
+     * @param streamingWriter 流式响应写回器
+     * @return 网关内部的GatewayResponse对象
+     */
+    public static GatewayResponse buildGatewayResponse(int statusCode, HttpHeaders headers,
+                                                       StreamingResponseWriter streamingWriter) {
+        GatewayResponse gatewayResponse = new GatewayResponse();
+        // 复制一份响应头，避免后置过滤器修改下游客户端内部对象
+        gatewayResponse.setResponseHeaders(new DefaultHttpHeaders().add(headers));
+        gatewayResponse.setHttpResponseStatus(HttpResponseStatus.valueOf(statusCode));
+        gatewayResponse.setStreamingWriter(streamingWriter);
+
+        return gatewayResponse;
+    }
+
     /**
      * 根据错误码构建网关内部响应对象
      * 用于网关在处理过程中发生错误时，生成统一格式的内部响应
@@ -0,0 +1,75 @@
+package com.grace.gateway.core.http;
+
+import com.grace.gateway.core.request.ByteBufBodyGenerator;
+import io.netty.channel.EventLoop;
+import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.ListenableFuture;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 基于 AsyncHttpClient 的下游客户端
+ * 下游连接运行在 AsyncHttpClient 自己的 EventLoopGroup 上，忽略传入的 EventLoop
+ */
+public class AsyncHttpUpstreamClient implements UpstreamClient {
+
+    // AsyncHttpClient 核心实例，用于实际发送异步 HTTP 请求
+    private final AsyncHttpClient asyncHttpClient;
+
+    public AsyncHttpUpstreamClient(AsyncHttpClient asyncHttpClient) {
+        this.asyncHttpClient = asyncHttpClient;
+    }
+
+    @Override
+    public CompletableFuture<UpstreamResponse> execute(Request request, EventLoop eventLoop) {
+        // 客户端请求体：本次发送单独持有一份引用，发送结束时归还，不受客户端请求释放的影响
+        ByteBufBodyGenerator.Attempt attempt = request.getBodyGenerator() instanceof ByteBufBodyGenerator generator
+                ? generator.newAttempt() : null;
+        if (attempt != null) {
+            request = new RequestBuilder(request).setBody(attempt).build();
+        }
+        // 调用 AsyncHttpClient 执行请求，响应体以 ByteBuf 组合的形式聚合，返回其原生的 ListenableFuture
+        ListenableFuture<UpstreamResponse> future;
+        try {
+            future = asyncHttpClient.executeRequest(request, new BufferedAsyncHandler());
+        } catch (Throwable t) {
+            if (attempt != null) {
+                attempt.complete();
+            }
+            throw t;
+        }
+        if (attempt != null) {
+            future.addListener(attempt::complete, Runnable::run);
+        }
+        // 将 ListenableFuture 转换为 Java 标准的 CompletableFuture，方便与其他异步逻辑整合
+        // 不直接使用 toCompletableFuture：取消返回的 CompletableFuture 时需要中止下游请求，取消后才到达的响应需要释放
+        CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+        future.addListener(() -> {
+            try {
+                UpstreamResponse response = future.get();
+                if (!result.complete(response)) {
+                    response.release();
+                }
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, Runnable::run);
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> executeStreaming(Request request, EventLoop eventLoop, StreamingResponseListener listener) {
+        return asyncHttpClient.executeRequest(request, new StreamingAsyncHandler(listener)).toCompletableFuture();
+    }
+
+}
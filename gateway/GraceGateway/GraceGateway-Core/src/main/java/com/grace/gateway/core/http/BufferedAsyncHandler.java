@@ -0,0 +1,65 @@
+package com.grace.gateway.core.http;
+
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+
+/**
+ * AsyncHttpClient 聚合响应适配器
+ * 响应体分块直接包装为 ByteBuf 组合起来，不再拼接成数组或解码为字符串
+ */
+public class BufferedAsyncHandler implements AsyncHandler<UpstreamResponse> {
+
+    /**
+     * 响应体分块组合，只包装不拷贝
+     */
+    private final CompositeByteBuf content = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+
+    private int statusCode;
+
+    private HttpHeaders headers = new DefaultHttpHeaders();
+
+    /**
+     * 是否已收到响应头（分块编码的 trailer 也会触发 onHeadersReceived，只保留第一次）
+     */
+    private boolean headReceived;
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) {
+        this.statusCode = responseStatus.getStatusCode();
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders headers) {
+        if (!headReceived) {
+            headReceived = true;
+            this.headers = headers.getHeaders();
+        }
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+        if (bodyPart.length() > 0) {
+            content.addComponent(true, Unpooled.wrappedBuffer(bodyPart.getBodyByteBuffer()));
+        }
+        return State.CONTINUE;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        content.release();
+    }
+
+    @Override
+    public UpstreamResponse onCompleted() {
+        return new UpstreamResponse(statusCode, headers, content);
+    }
+
+}
@@ -1,23 +1,21 @@
 package com.grace.gateway.core.http;
 
 
+import io.netty.channel.EventLoop;
 import org.asynchttpclient.AsyncHttpClient;
-import org.asynchttpclient.ListenableFuture;
 import org.asynchttpclient.Request;
-import org.asynchttpclient.Response;
 
 import java.util.concurrent.CompletableFuture;
 /**
  * 网关 HTTP 客户端封装类
- * 基于 AsyncHttpClient 实现异步 HTTP 请求的发送，
  * 为网关转发请求到后端服务提供统一的 HTTP 调用能力，
+ * 实际发送由 UpstreamClient 完成，可以是 AsyncHttpClient，也可以是 Netty 原生客户端（由 HttpClientConfig.type 决定），
  * 内部采用单例模式保证全局唯一实例，方便统一管理和初始化
  */
 public class HttpClient {
 
-    // AsyncHttpClient 核心实例，用于实际发送异步 HTTP 请求
-    // AsyncHttpClient 是异步 HTTP 客户端框架的核心对象，负责管理连接、执行请求等   实际执行 HTTP 请求的核心对象
-    private AsyncHttpClient asyncHttpClient;
+    // 下游客户端实现，实际执行 HTTP 请求的核心对象
+    private UpstreamClient upstreamClient;
 
     // 私有构造方法，防止外部直接实例，防止外部直接实例化，确保单例模式
     private HttpClient() {
@@ -40,17 +38,44 @@ public class HttpClient {
      * @param asyncHttpClient 外部创建好的 AsyncHttpClient 实例
      */
     public void initialized(AsyncHttpClient asyncHttpClient) {
-        this.asyncHttpClient = asyncHttpClient;
+        initialized(new AsyncHttpUpstreamClient(asyncHttpClient));
     }
+
+    /**
+     * 初始化下游客户端实现
+     * @param upstreamClient 外部创建好的下游客户端
+     */
+    public void initialized(UpstreamClient upstreamClient) {
+        this.upstreamClient = upstreamClient;
+    }
+
     /**
      * 执行 HTTP 请求，返回 CompletableFuture 以便异步处理响应
      * @param request 构建好的 AsyncHttpClient 请求对象（包含 URL、方法、头信息等）
-     * @return CompletableFuture<Response> 异步结果，可通过 thenApply、whenComplete 等方法处理响应或异常
+     * @return CompletableFuture<UpstreamResponse> 异步结果，可通过 thenApply、whenComplete 等方法处理响应或异常
+     */
+    public CompletableFuture<UpstreamResponse> executeRequest(Request request) {
+        return executeRequest(request, null);
+    }
+
+    /**
+     * 执行 HTTP 请求，下游连接尽量与客户端连接绑定在同一个 EventLoop 上，避免线程切换
+     * @param request 构建好的 AsyncHttpClient 请求对象（包含 URL、方法、头信息等）
+     * @param eventLoop 客户端连接所在的 EventLoop
+     * @return CompletableFuture<UpstreamResponse> 异步结果
+     */
+    public CompletableFuture<UpstreamResponse> executeRequest(Request request, EventLoop eventLoop) {
+        return upstreamClient.execute(request, eventLoop);
+    }
+
+    /**
+     * 以流式方式执行 HTTP 请求，响应头和响应体分块到达时逐个回调，不聚合完整响应
+     * @param request 构建好的 AsyncHttpClient 请求对象，请求体可以是流式请求体
+     * @param eventLoop 客户端连接所在的 EventLoop
+     * @param listener 流式响应监听器
+     * @return CompletableFuture<Void> 响应全部接收完毕或失败时完成
      */
-    public CompletableFuture<Response> executeRequest(Request request) {
-        // 调用 AsyncHttpClient 执行请求，返回其原生的 ListenableFuture
-        ListenableFuture<Response> future = asyncHttpClient.executeRequest(request);
-        // 将 ListenableFuture 转换为 Java 标准的 CompletableFuture，方便与其他异步逻辑整合
-        return future.toCompletableFuture();
+    public CompletableFuture<Void> executeStreamingRequest(Request request, EventLoop eventLoop, StreamingResponseListener listener) {
+        return upstreamClient.executeStreaming(request, eventLoop, listener);
     }
 }
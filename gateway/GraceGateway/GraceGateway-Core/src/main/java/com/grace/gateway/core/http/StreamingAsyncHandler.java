@@ -0,0 +1,101 @@
+package com.grace.gateway.core.http;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.HttpResponseStatus;
+import org.asynchttpclient.handler.ExtendedAsyncHandler;
+
+import java.net.InetSocketAddress;
+
+/**
+ * AsyncHttpClient 流式响应适配器
+ * 将 AsyncHandler 的分段回调转换为 StreamingResponseListener 回调，响应体不做聚合
+ * 通过连接事件拿到下游连接交给监听器，监听器可以暂停读取；响应结束时恢复读取，避免连接以暂停状态回到连接池
+ */
+public class StreamingAsyncHandler extends ExtendedAsyncHandler<Void> {
+
+    private final StreamingResponseListener listener;
+
+    /**
+     * 响应状态码，收到响应头时一并回调
+     */
+    private int statusCode;
+
+    /**
+     * 是否已回调响应头（分块编码的 trailer 也会触发 onHeadersReceived，只处理第一次）
+     */
+    private boolean headReceived;
+
+    /**
+     * 当前请求使用的下游连接
+     */
+    private volatile Channel channel;
+
+    public StreamingAsyncHandler(StreamingResponseListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onTcpConnectSuccess(InetSocketAddress remoteAddress, Channel connection) {
+        onConnection(connection);
+    }
+
+    @Override
+    public void onConnectionPooled(Channel connection) {
+        onConnection(connection);
+    }
+
+    private void onConnection(Channel connection) {
+        this.channel = connection;
+        listener.onConnection(connection);
+    }
+
+    @Override
+    public State onStatusReceived(HttpResponseStatus responseStatus) {
+        this.statusCode = responseStatus.getStatusCode();
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onHeadersReceived(HttpResponseHeaders headers) {
+        if (!headReceived) {
+            headReceived = true;
+            listener.onHead(statusCode, headers.getHeaders());
+        }
+        return State.CONTINUE;
+    }
+
+    @Override
+    public State onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+        if (bodyPart.length() > 0) {
+            listener.onContent(Unpooled.wrappedBuffer(bodyPart.getBodyByteBuffer()));
+        }
+        return State.CONTINUE;
+    }
+
+    @Override
+    public void onThrowable(Throwable t) {
+        resumeRead();
+        listener.onError(t);
+    }
+
+    @Override
+    public Void onCompleted() {
+        resumeRead();
+        listener.onComplete();
+        return null;
+    }
+
+    /**
+     * 恢复下游连接的读取
+     */
+    private void resumeRead() {
+        Channel current = channel;
+        if (current != null && !current.config().isAutoRead()) {
+            current.config().setAutoRead(true);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.grace.gateway.core.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaders;
+
+/**
+ * 流式响应监听器
+ * 下游服务的响应头、响应体分块到达时逐个回调，不在内存中聚合完整响应
+ */
+public interface StreamingResponseListener {
+
+    /**
+     * 下游连接就绪（新建或从连接池取出），可能在任意线程回调
+     * 客户端写不过来时通过关闭下游连接的 autoRead 暂停读取下游响应，背压传递到下游服务
+     *
+     * @param upstreamChannel 下游连接
+     */
+    void onConnection(Channel upstreamChannel);
+
+    /**
+     * 收到响应行和响应头
+     *
+     * @param statusCode 响应状态码
+     * @param headers    响应头
+     */
+    void onHead(int statusCode, HttpHeaders headers);
+
+    /**
+     * 收到一块响应体，所有权转交给监听器，由监听器负责释放
+     *
+     * @param content 响应体分块
+     */
+    void onContent(ByteBuf content);
+
+    /**
+     * 响应体全部接收完毕
+     */
+    void onComplete();
+
+    /**
+     * 请求或响应过程中发生异常
+     *
+     * @param throwable 异常
+     */
+    void onError(Throwable throwable);
+
+}
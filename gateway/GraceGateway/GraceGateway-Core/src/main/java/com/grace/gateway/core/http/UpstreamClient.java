@@ -0,0 +1,33 @@
+package com.grace.gateway.core.http;
+
+import io.netty.channel.EventLoop;
+import org.asynchttpclient.Request;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 下游HTTP客户端实现
+ * 网关转发请求的实际执行者，可以是 AsyncHttpClient，也可以是基于 Netty Bootstrap 的原生客户端
+ */
+public interface UpstreamClient {
+
+    /**
+     * 执行请求，响应体聚合后返回
+     *
+     * @param request   下游请求
+     * @param eventLoop 客户端连接所在的EventLoop，实现可以将下游连接绑定在该EventLoop上，为null时由实现自行选择
+     * @return 下游响应
+     */
+    CompletableFuture<UpstreamResponse> execute(Request request, EventLoop eventLoop);
+
+    /**
+     * 以流式方式执行请求，响应头和响应体分块到达时逐个回调
+     *
+     * @param request   下游请求
+     * @param eventLoop 客户端连接所在的EventLoop
+     * @param listener  流式响应监听器
+     * @return 响应全部接收完毕或失败时完成
+     */
+    CompletableFuture<Void> executeStreaming(Request request, EventLoop eventLoop, StreamingResponseListener listener);
+
+}
@@ -0,0 +1,62 @@
+package com.grace.gateway.core.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpUtil;
+import lombok.Getter;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 下游服务响应
+ * 响应体以 ByteBuf 形式保存，写回客户端时直接交给 Netty，不经过字符串解码和数组拷贝
+ * 只有过滤器确实需要字符串形式的响应体时才按需解码
+ */
+@Getter
+public class UpstreamResponse {
+
+    /**
+     * 响应状态码
+     */
+    private final int statusCode;
+
+    /**
+     * 响应头
+     */
+    private final HttpHeaders headers;
+
+    /**
+     * 响应体，写回客户端后由 Netty 释放
+     */
+    private final ByteBuf content;
+
+    public UpstreamResponse(int statusCode, HttpHeaders headers, ByteBuf content) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.content = content;
+    }
+
+    /**
+     * 按响应头中的字符集解码响应体，默认UTF-8，不改变响应体的读写索引
+     *
+     * @return 字符串形式的响应体
+     */
+    public String getResponseBody() {
+        String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+        Charset charset = contentType == null ? StandardCharsets.UTF_8
+                : HttpUtil.getCharset(contentType, StandardCharsets.UTF_8);
+        return content.toString(charset);
+    }
+
+    /**
+     * 释放响应体，响应不再写回客户端时（如被丢弃）调用
+     */
+    public void release() {
+        if (content.refCnt() > 0) {
+            content.release();
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.grace.gateway.core.netty;
+
+import com.grace.gateway.config.config.Config;
+import com.grace.gateway.config.config.HttpClientConfig;
+import com.grace.gateway.core.config.LifeCycle;
+import com.grace.gateway.core.http.HttpClient;
+import com.grace.gateway.core.netty.client.NettyUpstreamClient;
+import io.netty.channel.EventLoopGroup;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于Netty Bootstrap的原生HTTP客户端
+ * 不单独创建EventLoop组，下游连接直接注册在服务器Worker线程组上，
+ * 请求转发到下游、下游响应写回客户端都在客户端连接所在的EventLoop上完成，避免跨线程切换
+ */
+@Slf4j
+public class NativeNettyHttpClient implements LifeCycle {
+
+    /** 网关全局配置对象，包含HTTP客户端相关配置 */
+    private final Config config;
+
+    /** 服务器Worker线程组，生命周期由 NettyHttpServer 管理 */
+    private final EventLoopGroup eventLoopGroupWorker;
+
+    /** 客户端启动状态标识 */
+    private final AtomicBoolean start = new AtomicBoolean(false);
+
+    /** 原生下游客户端 */
+    private NettyUpstreamClient upstreamClient;
+
+    public NativeNettyHttpClient(Config config, EventLoopGroup eventLoopGroupWorker) {
+        this.config = config;
+        this.eventLoopGroupWorker = eventLoopGroupWorker;
+    }
+
+    @Override
+    public void start() {
+        if (!start.compareAndSet(false, true)) {
+            log.warn("NativeNettyHttpClient has already started");
+            return;
+        }
+
+        HttpClientConfig httpClientConfig = config.getHttpClient();
+        // 连接池按EventLoop划分，每个地址的连接上限平摊到每个EventLoop
+        int maxConnectionsPerLoop = Math.max(1,
+                httpClientConfig.getHttpConnectionsPerHost() / Math.max(1, config.getNetty().getEventLoopGroupWorkerNum()));
+        this.upstreamClient = new NettyUpstreamClient(httpClientConfig, eventLoopGroupWorker, maxConnectionsPerLoop);
+
+        // 初始化全局HTTP客户端单例
+        HttpClient.getInstance().initialized(upstreamClient);
+
+        log.info("NativeNettyHttpClient started successfully");
+    }
+
+    @Override
+    public void shutdown() {
+        if (!start.get()) {
+            log.warn("NativeNettyHttpClient is not running");
+            return;
+        }
+        // 只关闭连接池，EventLoop组由 NettyHttpServer 负责关闭
+        if (upstreamClient != null) {
+            upstreamClient.close();
+            log.info("NativeNettyHttpClient closed successfully");
+        }
+    }
+
+    @Override
+    public boolean isStarted() {
+        return start.get();
+    }
+
+}
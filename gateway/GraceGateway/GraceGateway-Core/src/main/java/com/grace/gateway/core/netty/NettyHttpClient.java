@@ -125,6 +125,14 @@ public class NettyHttpClient implements LifeCycle {
             eventLoopGroupWorker.shutdownGracefully();
         }
     }
+    /**
+     * 获取客户端的事件循环组，下游连接的IO和主动健康检查都在该线程组上执行
+     *
+     * @return 事件循环组
+     */
+    public EventLoopGroup getEventLoopGroupWorker() {
+        return eventLoopGroupWorker;
+    }
     /**
      * 判断客户端是否已启动
      *
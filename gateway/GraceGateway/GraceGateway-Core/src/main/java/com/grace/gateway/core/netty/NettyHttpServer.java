@@ -3,6 +3,7 @@ package com.grace.gateway.core.netty;
 import com.grace.gateway.common.util.SystemUtil;
 import com.grace.gateway.config.config.Config;
 import com.grace.gateway.core.config.LifeCycle;
+import com.grace.gateway.core.netty.handler.GatewayHttpObjectAggregator;
 import com.grace.gateway.core.netty.handler.NettyHttpServerHandler;
 import com.grace.gateway.core.netty.processor.NettyProcessor;
 import io.netty.bootstrap.ServerBootstrap;
@@ -14,7 +15,6 @@ import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
 import io.netty.util.ResourceLeakDetector;
@@ -132,7 +132,7 @@ public class NettyHttpServer implements LifeCycle {
                         // 配置HTTP处理管道
                         ch.pipeline().addLast(
                                 new HttpServerCodec(),                         // HTTP编解码器（处理请求和响应的编码解码）
-                                new HttpObjectAggregator(config.getNetty().getMaxContentLength()),  // 聚合HTTP消息（将分片消息合并）
+                                new GatewayHttpObjectAggregator(config.getNetty().getMaxContentLength()),  // 聚合HTTP消息（将分片消息合并），流式路由直接透传分块
                                 new HttpServerExpectContinueHandler(),          // 处理HTTP 100 Continue请求
                                 new NettyHttpServerHandler(nettyProcessor)     // 自定义业务处理器
                         );
@@ -165,6 +165,15 @@ public class NettyHttpServer implements LifeCycle {
         }
         log.info("Gateway server shutdown successfully");
     }
+    /**
+     * 获取处理客户端IO操作的Worker线程组，原生下游客户端复用该线程组，使下游连接与客户端连接共用同一个EventLoop
+     *
+     * @return Worker线程组
+     */
+    public EventLoopGroup getEventLoopGroupWorker() {
+        return eventLoopGroupWorker;
+    }
+
     /**
      * 获取服务器启动状态
      *
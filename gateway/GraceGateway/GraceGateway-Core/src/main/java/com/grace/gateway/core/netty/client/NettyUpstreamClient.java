@@ -0,0 +1,348 @@
+package com.grace.gateway.core.netty.client;
+
+import com.grace.gateway.common.util.SystemUtil;
+import com.grace.gateway.config.config.HttpClientConfig;
+import com.grace.gateway.core.http.StreamingResponseListener;
+import com.grace.gateway.core.http.UpstreamClient;
+import com.grace.gateway.core.http.UpstreamResponse;
+import com.grace.gateway.core.request.ByteBufBodyGenerator;
+import com.grace.gateway.core.request.StreamingRequestBody;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.request.body.generator.ReactiveStreamsBodyGenerator;
+import org.asynchttpclient.uri.Uri;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.net.ssl.SSLException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 基于 Netty Bootstrap 的原生下游客户端
+ * 下游连接注册在客户端连接所在的EventLoop上，请求转发、响应回写都在同一个线程内完成，没有线程切换
+ * 连接池按 EventLoop + 下游地址划分，每个连接池只在自己的EventLoop上访问，无需加锁
+ * 支持 http 和 https（使用JDK默认信任库校验下游证书）
+ * 连接全部关闭（空闲超时或下游断开）后的连接池定期清理，已下线实例的连接池不会一直保留
+ * 限制：不做响应解压（响应体原样透传给客户端），不跟随重定向
+ */
+@Slf4j
+public class NettyUpstreamClient implements UpstreamClient {
+
+    private final HttpClientConfig config;
+
+    /**
+     * 未指定EventLoop时使用的EventLoop组
+     */
+    private final EventLoopGroup fallbackGroup;
+
+    /**
+     * 每个EventLoop到同一下游地址的最大连接数
+     */
+    private final int maxConnectionsPerLoop;
+
+    /**
+     * EventLoop -> (scheme://host:port -> 连接池)，内层Map只在对应的EventLoop上读写
+     */
+    private final Map<EventLoop, Map<String, UpstreamChannelPool>> pools = new ConcurrentHashMap<>();
+
+    /**
+     * https 下游连接使用的 SSL 上下文
+     */
+    private final SslContext sslContext;
+
+    public NettyUpstreamClient(HttpClientConfig config, EventLoopGroup fallbackGroup, int maxConnectionsPerLoop) {
+        this.config = config;
+        this.fallbackGroup = fallbackGroup;
+        this.maxConnectionsPerLoop = maxConnectionsPerLoop;
+        try {
+            this.sslContext = SslContextBuilder.forClient().build();
+        } catch (SSLException e) {
+            throw new IllegalStateException("init upstream ssl context failed", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<UpstreamResponse> execute(Request request, EventLoop eventLoop) {
+        UpstreamExchange.Buffered exchange = new UpstreamExchange.Buffered();
+        EventLoop loop = dispatch(request, eventLoop, exchange);
+        // 调用方取消请求（如对冲请求中落败的一方）时，回到连接所在的EventLoop结束交换并关闭连接
+        exchange.future.whenComplete((response, throwable) -> {
+            if (exchange.future.isCancelled()) {
+                loop.execute(() -> exchange.fail(throwable));
+            }
+        });
+        return exchange.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> executeStreaming(Request request, EventLoop eventLoop, StreamingResponseListener listener) {
+        UpstreamExchange.Streaming exchange = new UpstreamExchange.Streaming(listener);
+        dispatch(request, eventLoop, exchange);
+        return exchange.future;
+    }
+
+    /**
+     * 关闭所有连接池，已经在关闭的EventLoop上的连接随EventLoop一起关闭
+     */
+    public void close() {
+        pools.forEach((loop, loopPools) -> {
+            if (!loop.isShuttingDown()) {
+                loop.execute(() -> loopPools.values().forEach(UpstreamChannelPool::close));
+            }
+        });
+    }
+
+    private EventLoop dispatch(Request request, EventLoop eventLoop, UpstreamExchange exchange) {
+        EventLoop loop = eventLoop != null ? eventLoop : fallbackGroup.next();
+        if (request.getBodyGenerator() instanceof ByteBufBodyGenerator generator) {
+            // 在调用方线程上立即持有请求体引用，客户端请求随后释放也不影响本次写出
+            exchange.holdBody(generator.retainedContent());
+        }
+        if (loop.inEventLoop()) {
+            doExecute(request, loop, exchange);
+        } else {
+            loop.execute(() -> doExecute(request, loop, exchange));
+        }
+        return loop;
+    }
+
+    /**
+     * 在目标EventLoop上获取连接并写出请求
+     */
+    private void doExecute(Request request, EventLoop loop, UpstreamExchange exchange) {
+        Uri uri = request.getUri();
+        boolean ssl = "https".equalsIgnoreCase(uri.getScheme());
+        if (!ssl && !"http".equalsIgnoreCase(uri.getScheme())) {
+            exchange.fail(new UnsupportedOperationException("netty upstream client only supports http and https, but was " + uri.getScheme()));
+            return;
+        }
+        String host = uri.getHost();
+        int defaultPort = ssl ? 443 : 80;
+        int port = uri.getPort() == -1 ? defaultPort : uri.getPort();
+        UpstreamChannelPool pool = pools.computeIfAbsent(loop, this::newLoopPools)
+                .computeIfAbsent((ssl ? "https://" : "http://") + host + ":" + port, key -> newPool(loop, host, port, ssl));
+
+        exchange.startTimeout(loop, config.getHttpRequestTimeout());
+        pool.acquire().addListener((Future<Channel> f) -> {
+            if (!f.isSuccess()) {
+                exchange.fail(f.cause());
+                return;
+            }
+            Channel channel = f.getNow();
+            if (exchange.isDone()) {
+                // 获取连接期间已超时，连接原样归还
+                pool.release(channel);
+                return;
+            }
+            channel.pipeline().get(UpstreamChannelHandler.class).bind(exchange);
+            exchange.bind(channel);
+            try {
+                writeRequest(channel, request, port == defaultPort ? host : host + ":" + port, exchange);
+            } catch (Throwable t) {
+                exchange.fail(t);
+            }
+        });
+    }
+
+    /**
+     * 创建EventLoop的连接池表，并在该EventLoop上定期清理已经没有连接的连接池
+     * 连接空闲超时后关闭，下线实例的连接池在连接全部关闭后被清理
+     */
+    private Map<String, UpstreamChannelPool> newLoopPools(EventLoop loop) {
+        Map<String, UpstreamChannelPool> loopPools = new HashMap<>();
+        long interval = Math.max(1000, config.getHttpPooledConnectionIdleTimeout());
+        loop.scheduleWithFixedDelay(() -> loopPools.values().removeIf(pool -> {
+            if (!pool.isEmpty()) {
+                return false;
+            }
+            pool.close();
+            return true;
+        }), interval, interval, TimeUnit.MILLISECONDS);
+        return loopPools;
+    }
+
+    private UpstreamChannelPool newPool(EventLoop loop, String host, int port, boolean ssl) {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(loop)
+                .channel(SystemUtil.useEpoll() ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getHttpConnectTimeout())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .remoteAddress(host, port);
+        UpstreamChannelPool pool = new UpstreamChannelPool(loop, bootstrap, maxConnectionsPerLoop);
+        bootstrap.handler(new ChannelInitializer<>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                if (ssl) {
+                    ch.pipeline().addLast(sslContext.newHandler(ch.alloc(), host, port));
+                }
+                ch.pipeline().addLast(
+                        new HttpClientCodec(),
+                        new IdleStateHandler(0, 0, config.getHttpPooledConnectionIdleTimeout(), TimeUnit.MILLISECONDS), // 空闲连接超时关闭
+                        new UpstreamChannelHandler(pool)
+                );
+            }
+        });
+        return pool;
+    }
+
+    /**
+     * 写出请求，聚合请求体直接使用客户端请求体的 ByteBuf 不拷贝，流式请求体按下游写出进度逐块拉取
+     */
+    private void writeRequest(Channel channel, Request request, String hostHeader, UpstreamExchange exchange) {
+        HttpHeaders headers = new DefaultHttpHeaders().add(request.getHeaders());
+        if (!headers.contains(HttpHeaderNames.HOST)) {
+            headers.set(HttpHeaderNames.HOST, hostHeader);
+        }
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        String relativeUri = relativeUri(request.getUri());
+
+        if (request.getBodyGenerator() instanceof ReactiveStreamsBodyGenerator generator) {
+            if (!headers.contains(HttpHeaderNames.CONTENT_LENGTH)) {
+                headers.set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+            }
+            channel.write(new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, relativeUri, headers));
+            if (generator.getPublisher() instanceof StreamingRequestBody streamingBody) {
+                // 网关的流式请求体直接转交客户端请求体的 ByteBuf，不拷贝
+                streamingBody.subscribeBuffers(new BodyWriter<ByteBuf>(channel, exchange, Function.identity()));
+            } else {
+                generator.getPublisher().subscribe(new BodyWriter<ByteBuffer>(channel, exchange, Unpooled::wrappedBuffer));
+            }
+            return;
+        }
+
+        ByteBuf body;
+        if (request.getBodyGenerator() instanceof ByteBufBodyGenerator) {
+            // 本次交换持有的请求体引用，转交后随请求写出（成功或失败）由编码器释放
+            body = exchange.takeBody();
+        } else if (request.getByteBufferData() != null) {
+            body = Unpooled.wrappedBuffer(request.getByteBufferData());
+        } else if (request.getByteData() != null) {
+            body = Unpooled.wrappedBuffer(request.getByteData());
+        } else {
+            body = Unpooled.EMPTY_BUFFER;
+        }
+        if (!headers.contains(HttpHeaderNames.CONTENT_LENGTH) && !headers.contains(HttpHeaderNames.TRANSFER_ENCODING)) {
+            headers.set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+        }
+        channel.writeAndFlush(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, relativeUri, body, headers, EmptyHttpHeaders.INSTANCE))
+                .addListener(f -> {
+                    if (f.isSuccess()) {
+                        exchange.requestWritten();
+                    } else {
+                        exchange.fail(f.cause());
+                    }
+                });
+    }
+
+    private static String relativeUri(Uri uri) {
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        return uri.getQuery() == null || uri.getQuery().isEmpty() ? path : path + "?" + uri.getQuery();
+    }
+
+    /**
+     * 流式请求体写出器
+     * 每块数据写出完成后再拉取下一块，下游连接写不动时自然停止拉取，背压传递回客户端连接
+     * 所有回调切换到下游连接的EventLoop上执行
+     */
+    private static class BodyWriter<T> implements Subscriber<T> {
+
+        private final Channel channel;
+
+        private final UpstreamExchange exchange;
+
+        /**
+         * 将数据块转换为 ByteBuf，转换后的 ByteBuf 随写出释放
+         */
+        private final Function<T, ByteBuf> converter;
+
+        private Subscription subscription;
+
+        BodyWriter(Channel channel, UpstreamExchange exchange, Function<T, ByteBuf> converter) {
+            this.channel = channel;
+            this.exchange = exchange;
+            this.converter = converter;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            runOnLoop(() -> {
+                subscription = s;
+                s.request(1);
+            });
+        }
+
+        @Override
+        public void onNext(T data) {
+            ByteBuf content = converter.apply(data);
+            runOnLoop(() -> {
+                if (exchange.isDone()) {
+                    content.release();
+                    subscription.cancel();
+                    return;
+                }
+                channel.writeAndFlush(new DefaultHttpContent(content)).addListener(f -> {
+                    if (f.isSuccess()) {
+                        subscription.request(1);
+                    } else {
+                        subscription.cancel();
+                        exchange.fail(f.cause());
+                    }
+                });
+            });
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            runOnLoop(() -> exchange.fail(t));
+        }
+
+        @Override
+        public void onComplete() {
+            runOnLoop(() -> {
+                if (exchange.isDone()) {
+                    return;
+                }
+                channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT).addListener(f -> {
+                    if (f.isSuccess()) {
+                        exchange.requestWritten();
+                    } else {
+                        exchange.fail(f.cause());
+                    }
+                });
+            });
+        }
+
+        private void runOnLoop(Runnable task) {
+            if (channel.eventLoop().inEventLoop()) {
+                task.run();
+            } else {
+                channel.eventLoop().execute(task);
+            }
+        }
+    }
+
+}
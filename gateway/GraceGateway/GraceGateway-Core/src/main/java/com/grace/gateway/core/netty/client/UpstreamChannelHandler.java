@@ -0,0 +1,127 @@
+package com.grace.gateway.core.netty.client;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * 下游连接处理器
+ * 每个下游连接同一时刻只服务一个交换，响应结束后根据 keep-alive 归还连接池或关闭
+ */
+public class UpstreamChannelHandler extends ChannelInboundHandlerAdapter {
+
+    private final UpstreamChannelPool pool;
+
+    /**
+     * 当前正在进行的交换
+     */
+    private UpstreamExchange exchange;
+
+    /**
+     * 当前交换的响应头，用于判断是否可以复用连接
+     */
+    private HttpResponse response;
+
+    /**
+     * 是否正在跳过 1xx 临时响应
+     */
+    private boolean skippingInformational;
+
+    public UpstreamChannelHandler(UpstreamChannelPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 绑定新的交换，在连接所在EventLoop上调用
+     */
+    void bind(UpstreamExchange exchange) {
+        this.exchange = exchange;
+        this.response = null;
+        this.skippingInformational = false;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        UpstreamExchange current = exchange;
+        if (current == null) {
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        if (msg instanceof HttpObject && ((HttpObject) msg).decoderResult().isFailure()) {
+            ReferenceCountUtil.release(msg);
+            exchange = null;
+            current.fail(((HttpObject) msg).decoderResult().cause());
+            ctx.close();
+            return;
+        }
+        if (msg instanceof HttpResponse) {
+            HttpResponse httpResponse = (HttpResponse) msg;
+            // 100-continue 等临时响应不转发，等待最终响应
+            if (httpResponse.status().codeClass() == HttpStatusClass.INFORMATIONAL
+                    && !HttpResponseStatus.SWITCHING_PROTOCOLS.equals(httpResponse.status())) {
+                skippingInformational = true;
+            } else {
+                response = httpResponse;
+                current.onHead(httpResponse);
+            }
+        }
+        if (msg instanceof HttpContent) {
+            HttpContent content = (HttpContent) msg;
+            if (skippingInformational) {
+                content.release();
+                if (content instanceof LastHttpContent) {
+                    skippingInformational = false;
+                }
+                return;
+            }
+            current.onContent(content);
+            if (content instanceof LastHttpContent) {
+                exchange = null;
+                // 先归还连接，排队的请求可以立刻复用，再通知交换完成
+                if (response != null && HttpUtil.isKeepAlive(response) && current.isRequestWritten()) {
+                    // 流式响应可能暂停了读取，归还前恢复
+                    ctx.channel().config().setAutoRead(true);
+                    pool.release(ctx.channel());
+                } else {
+                    ctx.close();
+                }
+                current.complete();
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        UpstreamExchange current = exchange;
+        if (current != null) {
+            exchange = null;
+            current.fail(new ClosedChannelException());
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        UpstreamExchange current = exchange;
+        exchange = null;
+        if (current != null) {
+            current.fail(cause);
+        }
+        ctx.close();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        // 空闲连接超时后关闭，连接池在连接关闭时回收名额
+        if (evt instanceof IdleStateEvent && exchange == null) {
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+}
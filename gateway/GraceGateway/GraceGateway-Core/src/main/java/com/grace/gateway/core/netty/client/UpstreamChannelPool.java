@@ -0,0 +1,146 @@
+package com.grace.gateway.core.netty.client;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.util.ArrayDeque;
+
+/**
+ * 单个EventLoop上、单个下游地址的连接池
+ * 池内连接都注册在同一个EventLoop上，所有操作也只在该EventLoop上执行，因此无需加锁
+ * 空闲连接后进先出复用，超过连接上限的获取请求排队等待归还
+ */
+public class UpstreamChannelPool {
+
+    private final EventLoop eventLoop;
+
+    /**
+     * 已绑定EventLoop和下游地址的引导类
+     */
+    private final Bootstrap bootstrap;
+
+    /**
+     * 当前EventLoop上到该地址的最大连接数
+     */
+    private final int maxConnections;
+
+    /**
+     * 空闲连接
+     */
+    private final ArrayDeque<Channel> idle = new ArrayDeque<>();
+
+    /**
+     * 等待连接归还的获取请求
+     */
+    private final ArrayDeque<Promise<Channel>> waiters = new ArrayDeque<>();
+
+    /**
+     * 已建立和正在建立的连接数
+     */
+    private int connections;
+
+    /**
+     * 连接池是否已关闭
+     */
+    private boolean closed;
+
+    public UpstreamChannelPool(EventLoop eventLoop, Bootstrap bootstrap, int maxConnections) {
+        this.eventLoop = eventLoop;
+        this.bootstrap = bootstrap;
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * 获取连接，必须在 eventLoop 上调用
+     */
+    public Future<Channel> acquire() {
+        Promise<Channel> promise = eventLoop.newPromise();
+        if (closed) {
+            return promise.setFailure(new IllegalStateException("upstream channel pool closed"));
+        }
+        Channel channel;
+        while ((channel = idle.pollLast()) != null) {
+            if (channel.isActive()) {
+                return promise.setSuccess(channel);
+            }
+        }
+        if (connections < maxConnections) {
+            connect(promise);
+        } else {
+            waiters.add(promise);
+        }
+        return promise;
+    }
+
+    /**
+     * 归还可复用的连接，优先交给排队的获取请求，必须在 eventLoop 上调用
+     */
+    public void release(Channel channel) {
+        if (!channel.isActive()) {
+            return;
+        }
+        if (closed) {
+            channel.close();
+            return;
+        }
+        Promise<Channel> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.trySuccess(channel)) {
+                return;
+            }
+        }
+        idle.addLast(channel);
+    }
+
+    /**
+     * 连接池是否已经没有连接（包括正在建立的连接）和排队的获取请求，必须在 eventLoop 上调用
+     */
+    public boolean isEmpty() {
+        return connections == 0 && waiters.isEmpty();
+    }
+
+    /**
+     * 关闭连接池及其所有连接
+     */
+    public void close() {
+        eventLoop.execute(() -> {
+            closed = true;
+            Channel channel;
+            while ((channel = idle.poll()) != null) {
+                channel.close();
+            }
+            Promise<Channel> waiter;
+            while ((waiter = waiters.poll()) != null) {
+                waiter.tryFailure(new IllegalStateException("upstream channel pool closed"));
+            }
+        });
+    }
+
+    private void connect(Promise<Channel> promise) {
+        connections++;
+        ChannelFuture connectFuture = bootstrap.connect();
+        Channel channel = connectFuture.channel();
+        // 连接关闭（空闲超时、下游断开、异常）后释放名额，并为排队的请求补建连接
+        channel.closeFuture().addListener(f -> {
+            connections--;
+            idle.remove(channel);
+            if (!waiters.isEmpty() && connections < maxConnections && !closed) {
+                connect(waiters.poll());
+            }
+        });
+        connectFuture.addListener(f -> {
+            if (f.isSuccess()) {
+                if (!promise.trySuccess(channel)) {
+                    release(channel);
+                }
+            } else {
+                promise.tryFailure(f.cause());
+            }
+        });
+    }
+
+}
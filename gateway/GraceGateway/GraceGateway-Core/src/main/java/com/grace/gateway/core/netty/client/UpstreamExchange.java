@@ -0,0 +1,248 @@
+package com.grace.gateway.core.netty.client;
+
+import com.grace.gateway.core.http.StreamingResponseListener;
+import com.grace.gateway.core.http.UpstreamResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一次下游请求/响应交换
+ * 只在下游连接所在的EventLoop上访问，由 UpstreamChannelHandler 回调驱动
+ */
+public abstract class UpstreamExchange {
+
+    /**
+     * 交换是否已结束（成功、失败或超时）
+     */
+    private boolean done;
+
+    /**
+     * 请求超时定时任务
+     */
+    private ScheduledFuture<?> timeoutFuture;
+
+    /**
+     * 当前绑定的下游连接，获取连接成功后设置
+     */
+    private Channel channel;
+
+    /**
+     * 请求是否已完整写出，未写完时即使响应结束也不能复用连接
+     */
+    private boolean requestWritten;
+
+    /**
+     * 本次交换持有的请求体引用，写出时转交编码器；未写出就结束（获取连接失败、超时、取消）时由交换释放
+     */
+    private ByteBuf body;
+
+    /**
+     * 启动请求超时计时，超时后交换失败并关闭下游连接
+     */
+    void startTimeout(EventLoop eventLoop, long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return;
+        }
+        timeoutFuture = eventLoop.schedule(() -> {
+            if (!done) {
+                fail(new TimeoutException("upstream request timeout after " + timeoutMillis + "ms"));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void cancelTimeout() {
+        if (timeoutFuture != null) {
+            timeoutFuture.cancel(false);
+            timeoutFuture = null;
+        }
+    }
+
+    void bind(Channel channel) {
+        this.channel = channel;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    void requestWritten() {
+        this.requestWritten = true;
+    }
+
+    boolean isRequestWritten() {
+        return requestWritten;
+    }
+
+    void holdBody(ByteBuf body) {
+        this.body = body;
+    }
+
+    ByteBuf takeBody() {
+        ByteBuf held = body;
+        body = null;
+        return held;
+    }
+
+    private void releaseBody() {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+    }
+
+    /**
+     * 收到响应头
+     */
+    abstract void onHead(HttpResponse response);
+
+    /**
+     * 收到响应体分块，所有权转交给交换
+     */
+    abstract void onContent(HttpContent content);
+
+    /**
+     * 响应接收完毕
+     */
+    void complete() {
+        if (done) {
+            return;
+        }
+        done = true;
+        cancelTimeout();
+        releaseBody();
+        doComplete();
+    }
+
+    /**
+     * 交换失败，关闭绑定的下游连接（连接状态已不可复用）
+     */
+    void fail(Throwable cause) {
+        if (done) {
+            return;
+        }
+        done = true;
+        cancelTimeout();
+        releaseBody();
+        Channel ch = channel;
+        channel = null;
+        if (ch != null) {
+            ch.close();
+        }
+        doFail(cause);
+    }
+
+    protected abstract void doComplete();
+
+    protected abstract void doFail(Throwable cause);
+
+    /**
+     * 聚合响应：响应体分块以组合缓冲区的形式保存，不拷贝
+     */
+    static class Buffered extends UpstreamExchange {
+
+        final CompletableFuture<UpstreamResponse> future = new CompletableFuture<>();
+
+        private CompositeByteBuf content;
+
+        private int statusCode;
+
+        private HttpHeaders headers;
+
+        @Override
+        void onHead(HttpResponse response) {
+            statusCode = response.status().code();
+            headers = response.headers();
+        }
+
+        @Override
+        void onContent(HttpContent httpContent) {
+            if (isDone() || !httpContent.content().isReadable()) {
+                httpContent.release();
+                return;
+            }
+            if (content == null) {
+                content = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+            }
+            content.addComponent(true, httpContent.content());
+        }
+
+        @Override
+        protected void doComplete() {
+            UpstreamResponse response = new UpstreamResponse(statusCode, headers,
+                    content == null ? Unpooled.EMPTY_BUFFER : content);
+            if (!future.complete(response)) {
+                // 请求已被调用方取消，响应无人接收
+                response.release();
+            }
+        }
+
+        @Override
+        protected void doFail(Throwable cause) {
+            if (content != null) {
+                content.release();
+                content = null;
+            }
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 流式响应：响应头、响应体分块直接回调给监听器
+     * 收到响应头后取消请求超时，避免长时间的下载、SSE被超时中断
+     */
+    static class Streaming extends UpstreamExchange {
+
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private final StreamingResponseListener listener;
+
+        Streaming(StreamingResponseListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        void bind(Channel channel) {
+            super.bind(channel);
+            listener.onConnection(channel);
+        }
+
+        @Override
+        void onHead(HttpResponse response) {
+            cancelTimeout();
+            listener.onHead(response.status().code(), response.headers());
+        }
+
+        @Override
+        void onContent(HttpContent httpContent) {
+            if (isDone() || !httpContent.content().isReadable()) {
+                httpContent.release();
+                return;
+            }
+            listener.onContent(httpContent.content());
+        }
+
+        @Override
+        protected void doComplete() {
+            listener.onComplete();
+            future.complete(null);
+        }
+
+        @Override
+        protected void doFail(Throwable cause) {
+            listener.onError(cause);
+            future.completeExceptionally(cause);
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.grace.gateway.core.netty.handler;
+
+import com.grace.gateway.common.exception.GatewayException;
+import com.grace.gateway.config.helper.RouteResolver;
+import com.grace.gateway.config.pojo.RouteDefinition;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AttributeKey;
+
+/**
+ * 按路由决定是否聚合的HTTP消息聚合器
+ * 在收到请求头时解析路由：
+ * 1. 普通路由：与HttpObjectAggregator行为一致，聚合为FullHttpRequest后再交给业务处理器
+ * 2. 流式路由：请求头和请求体分块直接透传给业务处理器，不受maxContentLength限制，也不会在内存中缓存整个请求体
+ * 解析出的路由会挂在channel属性上，供后续构建上下文时复用，避免重复匹配
+ */
+public class GatewayHttpObjectAggregator extends HttpObjectAggregator {
+
+    /**
+     * 当前请求匹配到的路由，构建网关上下文时取出
+     */
+    public static final AttributeKey<RouteDefinition> ROUTE_ATTRIBUTE_KEY = AttributeKey.valueOf("gateway.route");
+
+    /**
+     * 当前请求是否走流式代理，请求头决定，后续请求体分块沿用该状态
+     */
+    private boolean streaming;
+
+    /**
+     * 当前处理的channel上下文，在handlerAdded时绑定
+     */
+    private ChannelHandlerContext ctx;
+
+    public GatewayHttpObjectAggregator(int maxContentLength) {
+        super(maxContentLength);
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public boolean acceptInboundMessage(Object msg) throws Exception {
+        if (msg instanceof HttpRequest request) {
+            RouteDefinition route = resolveRoute(request);
+            ctx.channel().attr(ROUTE_ATTRIBUTE_KEY).set(route);
+            streaming = route != null && route.isStreaming();
+            if (streaming) {
+                return false;
+            }
+        } else if (streaming && msg instanceof HttpContent) {
+            // 流式请求的请求体分块不做聚合，直接往后传递
+            return false;
+        }
+        return super.acceptInboundMessage(msg);
+    }
+
+    /**
+     * 解析请求对应的路由，未匹配时返回null，交由后续流程按普通请求处理并返回404
+     */
+    private RouteDefinition resolveRoute(HttpRequest request) {
+        try {
+            return RouteResolver.matchingRouteByUri(request.uri());
+        } catch (GatewayException e) {
+            return null;
+        }
+    }
+
+}
@@ -1,20 +1,72 @@
 package com.grace.gateway.core.netty.handler;
 
 import com.grace.gateway.core.netty.processor.NettyProcessor;
+import com.grace.gateway.core.request.StreamingRequestBody;
+import com.grace.gateway.core.response.StreamingResponseWriter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.channels.ClosedChannelException;
 
 public class NettyHttpServerHandler extends ChannelInboundHandlerAdapter {
     private final NettyProcessor nettyProcessor;
 
+    /**
+     * 当前正在接收的流式请求体，流式路由的请求头到达时创建，请求体结束后置空
+     */
+    private StreamingRequestBody streamingBody;
+
     public NettyHttpServerHandler(NettyProcessor nettyProcessor) {
         this.nettyProcessor = nettyProcessor;
     }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
-        nettyProcessor.process(ctx, (FullHttpRequest) msg);
+        if (msg instanceof FullHttpRequest) {
+            nettyProcessor.process(ctx, (FullHttpRequest) msg);
+        } else if (msg instanceof HttpRequest) {
+            // 流式路由：聚合器只透传了请求头，请求体随后分块到达
+            streamingBody = new StreamingRequestBody(ctx.channel());
+            nettyProcessor.process(ctx, (HttpRequest) msg, streamingBody);
+        } else if (msg instanceof HttpContent) {
+            StreamingRequestBody body = streamingBody;
+            if (body == null) {
+                ReferenceCountUtil.release(msg);
+                return;
+            }
+            body.offer((HttpContent) msg);
+            if (msg instanceof LastHttpContent) {
+                body.complete();
+                streamingBody = null;
+            }
+        } else {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 客户端在请求体传输过程中断开，终止流式请求体
+        if (streamingBody != null) {
+            streamingBody.abort(new ClosedChannelException());
+            streamingBody = null;
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 流式响应写回中，客户端连接恢复可写后继续读取下游响应
+        StreamingResponseWriter writer = ctx.channel().attr(StreamingResponseWriter.WRITER_KEY).get();
+        if (writer != null) {
+            writer.onWritabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
     }
 
     @Override
@@ -23,4 +75,4 @@ public class NettyHttpServerHandler extends ChannelInboundHandlerAdapter {
         super.exceptionCaught(ctx, cause);
     }
 
-}
\ No newline at end of file
+}
@@ -7,10 +7,12 @@ import com.grace.gateway.core.context.GatewayContext;
 import com.grace.gateway.core.filter.FilterChainFactory;
 import com.grace.gateway.core.helper.ContextHelper;
 import com.grace.gateway.core.helper.ResponseHelper;
+import com.grace.gateway.core.request.StreamingRequestBody;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,9 +49,10 @@ public class NettyCoreProcessor implements NettyProcessor {
 //    请求体：通过 request.content() 获取请求体内容（如 POST 请求中的表单数据或 JSON 数据）。
     @Override
     public void process(ChannelHandlerContext ctx, FullHttpRequest request) {
+        GatewayContext gatewayContext = null;
         try {
             // 1. 构建网关上下文（封装请求、通道等信息，作为过滤器链的传递载体）
-            GatewayContext gatewayContext = ContextHelper.buildGatewayContext(request, ctx);
+            gatewayContext = ContextHelper.buildGatewayContext(request, ctx);
             // 2. 构建过滤器链（根据上下文初始化并编排需要执行的过滤器）
             FilterChainFactory.buildFilterChain(gatewayContext);
             // 3. 执行过滤器链（依次执行前置过滤器、目标服务调用、后置过滤器等）
@@ -58,31 +61,73 @@ public class NettyCoreProcessor implements NettyProcessor {
             // 处理已知网关异常（如路由不存在、权限不足等）
             log.error("处理错误 {} {}", e.getCode(), e.getCode().getMessage());
             // 构建异常响应（根据错误码生成对应的 HTTP 响应）
-            FullHttpResponse httpResponse = ResponseHelper.buildHttpResponse(e.getCode());
+            FullHttpResponse httpResponse = ResponseHelper.buildHttpResponse(e);
             // 写入响应并释放资源
-            doWriteAndRelease(ctx, request, httpResponse);
+            doWriteAndRelease(ctx, request, gatewayContext, httpResponse);
         } catch (Throwable t) {
             // 处理未知异常（如 NPE、IO 异常等）
             log.error("处理未知错误", t);
             // 构建默认的内部错误响应（500 状态码）
             FullHttpResponse httpResponse = ResponseHelper.buildHttpResponse(ResponseCode.INTERNAL_ERROR);
             // 写入响应并释放资源
-            doWriteAndRelease(ctx, request, httpResponse);
+            doWriteAndRelease(ctx, request, gatewayContext, httpResponse);
         }
     }
+
+    /**
+     * 处理流式路由的 HTTP 请求
+     * 请求头到达后立即执行过滤器链，请求体由 streamingBody 边读边转发给下游服务
+     * @param ctx 通道处理器上下文
+     * @param request 只包含请求行和请求头的 HTTP 请求对象
+     * @param streamingBody 流式请求体
+     */
+    @Override
+    public void process(ChannelHandlerContext ctx, HttpRequest request, StreamingRequestBody streamingBody) {
+        GatewayContext gatewayContext = null;
+        try {
+            gatewayContext = ContextHelper.buildGatewayContext(request, streamingBody, ctx);
+            FilterChainFactory.buildFilterChain(gatewayContext);
+            gatewayContext.doFilter();
+        } catch (GatewayException e) {
+            log.error("处理错误 {} {}", e.getCode(), e.getCode().getMessage());
+            if (gatewayContext != null) {
+                gatewayContext.complete();
+            }
+            streamingBody.abort(e);
+            ctx.writeAndFlush(ResponseHelper.buildHttpResponse(e))
+                    .addListener(ChannelFutureListener.CLOSE);
+        } catch (Throwable t) {
+            log.error("处理未知错误", t);
+            if (gatewayContext != null) {
+                gatewayContext.complete();
+            }
+            streamingBody.abort(t);
+            ctx.writeAndFlush(ResponseHelper.buildHttpResponse(ResponseCode.INTERNAL_ERROR))
+                    .addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
     /**
      * 写入 HTTP 响应到通道，并释放请求资源
      * @param ctx 通道处理器上下文
      * @param request 需要释放的 HTTP 请求对象
+     * @param gatewayContext 网关上下文，构建成功时请求已交由网关请求对象管理
      * @param httpResponse 需要发送的 HTTP 响应对象
      */
-    private void doWriteAndRelease(ChannelHandlerContext ctx, FullHttpRequest request, FullHttpResponse httpResponse) {
+    private void doWriteAndRelease(ChannelHandlerContext ctx, FullHttpRequest request,
+                                   GatewayContext gatewayContext, FullHttpResponse httpResponse) {
         // 1. 将响应写入通道并刷新（立即发送）
         // 2. 添加监听器：响应发送完成后关闭通道（避免通道资源泄漏）
         ctx.writeAndFlush(httpResponse)
                 .addListener(ChannelFutureListener.CLOSE);
         // 释放请求对象的资源（Netty 中基于引用计数管理内存，需手动释放避免内存泄漏）
-        ReferenceCountUtil.release(request);
+        // 上下文已构建时由网关请求对象释放，保证不会重复释放
+        if (gatewayContext != null) {
+            gatewayContext.complete();
+            gatewayContext.getRequest().release();
+        } else {
+            ReferenceCountUtil.release(request);
+        }
     }
 
 }
@@ -1,11 +1,18 @@
 package com.grace.gateway.core.netty.processor;
 
 
+import com.grace.gateway.core.request.StreamingRequestBody;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
 
 public interface NettyProcessor {
 
     void process(ChannelHandlerContext ctx, FullHttpRequest request);
 
+    /**
+     * 处理流式请求，请求头到达即开始处理，请求体通过 streamingBody 分块转发
+     */
+    void process(ChannelHandlerContext ctx, HttpRequest request, StreamingRequestBody streamingBody);
+
 }
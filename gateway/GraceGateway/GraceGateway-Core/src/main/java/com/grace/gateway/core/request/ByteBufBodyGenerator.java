@@ -0,0 +1,145 @@
+package com.grace.gateway.core.request;
+
+import io.netty.buffer.ByteBuf;
+import org.asynchttpclient.request.body.Body;
+import org.asynchttpclient.request.body.generator.BodyGenerator;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以客户端请求体 ByteBuf 作为下游请求体
+ * 客户端请求体在响应写回后就会释放，而此时下游请求可能仍在写出（下游提前返回、超时降级、重试或对冲时前一次请求仍在写），
+ * 因此每次发送都各自持有一份引用，由发送方写完后释放，不依赖原始缓冲区的生命周期：
+ * 原生下游客户端通过 retainedContent 直接写出 ByteBuf，不拷贝；
+ * AsyncHttpClient 通过 newAttempt 为每次发送生成独立的请求体生成器，分块读出写入自己的发送缓冲区
+ */
+public class ByteBufBodyGenerator implements BodyGenerator {
+
+    private final ByteBuf content;
+
+    public ByteBufBodyGenerator(ByteBuf content) {
+        this.content = content;
+    }
+
+    /**
+     * 获取一份共享内存的请求体引用，读写索引独立，由调用方写出后释放
+     */
+    public ByteBuf retainedContent() {
+        return content.retainedDuplicate();
+    }
+
+    /**
+     * 为一次 AsyncHttpClient 发送生成请求体生成器，持有一份请求体引用，发送结束时调用 Attempt.complete 归还
+     */
+    public Attempt newAttempt() {
+        return new Attempt(content.retainedDuplicate());
+    }
+
+    /**
+     * 未通过 newAttempt 直接发送时，请求体引用随请求体关闭释放
+     */
+    @Override
+    public Body createBody() {
+        return new ByteBufBody(content.retainedDuplicate());
+    }
+
+    /**
+     * 一次 AsyncHttpClient 发送的请求体生成器
+     * AsyncHttpClient 内部重发时会多次创建请求体，每个请求体各自持有一份引用，关闭时释放；
+     * 连接失败等情况下请求体可能从未写出、也不会被关闭，发送结束时释放这些未开始写出的请求体
+     */
+    public static class Attempt implements BodyGenerator {
+
+        private final ByteBuf content;
+
+        private final Queue<ByteBufBody> bodies = new ConcurrentLinkedQueue<>();
+
+        private boolean completed;
+
+        private Attempt(ByteBuf content) {
+            this.content = content;
+        }
+
+        @Override
+        public synchronized Body createBody() {
+            ByteBufBody body = new ByteBufBody(completed ? null : content.retainedDuplicate());
+            bodies.add(body);
+            return body;
+        }
+
+        /**
+         * 发送结束：释放未开始写出的请求体和本次发送持有的引用，正在写出的请求体由 AsyncHttpClient 关闭时释放
+         */
+        public void complete() {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+            }
+            ByteBufBody body;
+            while ((body = bodies.poll()) != null) {
+                body.releaseIfNotStarted();
+            }
+            content.release();
+        }
+    }
+
+    /**
+     * AsyncHttpClient 请求体，按发送缓冲区的剩余空间分块读出，持有一份请求体引用，关闭时释放
+     */
+    private static class ByteBufBody implements Body {
+
+        private static final int NEW = 0;
+
+        private static final int WRITING = 1;
+
+        private static final int RELEASED = 2;
+
+        private final ByteBuf content;
+
+        private final long contentLength;
+
+        private final AtomicInteger state;
+
+        ByteBufBody(ByteBuf content) {
+            this.content = content;
+            this.contentLength = content == null ? 0 : content.readableBytes();
+            this.state = new AtomicInteger(content == null ? RELEASED : NEW);
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public BodyState transferTo(ByteBuf target) {
+            if (state.get() == NEW) {
+                state.compareAndSet(NEW, WRITING);
+            }
+            // 已释放的请求体不再读取
+            if (state.get() == RELEASED || !content.isReadable()) {
+                return BodyState.STOP;
+            }
+            target.writeBytes(content, Math.min(target.writableBytes(), content.readableBytes()));
+            return BodyState.CONTINUE;
+        }
+
+        @Override
+        public void close() {
+            if (state.getAndSet(RELEASED) != RELEASED) {
+                content.release();
+            }
+        }
+
+        private void releaseIfNotStarted() {
+            if (state.compareAndSet(NEW, RELEASED)) {
+                content.release();
+            }
+        }
+    }
+
+}
@@ -14,6 +14,7 @@ import java.nio.charset.Charset;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.grace.gateway.common.constant.BasicConstant.DATE_DEFAULT_FORMATTER;
 
@@ -99,16 +100,27 @@ public class GatewayRequest {
 
     /**
      * Netty原始HTTP请求对象
-     * 保存底层原始请求数据
+     * 保存底层原始请求数据，流式请求时为null
      */
     private final FullHttpRequest fullHttpRequest;
 
+    /**
+     * 流式请求体
+     * 仅流式路由的请求存在，请求体分块边读边转发给下游
+     */
+    private final StreamingRequestBody streamingBody;
+
     /**
      * 下游请求构建器
      * 用于构建转发到后端服务的请求
      */
     private final RequestBuilder requestBuilder;
 
+    /**
+     * 原始请求是否已释放
+     */
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
     /**
      * 请求体
      * POST等方法的请求正文内容
@@ -161,9 +173,10 @@ public class GatewayRequest {
      * @param method HTTP方法
      * @param contentType 内容类型
      * @param headers 请求头
-     * @param fullHttpRequest Netty原始请求对象
+     * @param httpRequest Netty原始请求对象，非流式请求为聚合后的FullHttpRequest
+     * @param streamingBody 流式请求体，非流式请求为null
      */
-    public GatewayRequest(ServiceDefinition serviceDefinition, Charset charset, String clientIp, String host, String uri, HttpMethod method, String contentType, HttpHeaders headers, FullHttpRequest fullHttpRequest) {
+    public GatewayRequest(ServiceDefinition serviceDefinition, Charset charset, String clientIp, String host, String uri, HttpMethod method, String contentType, HttpHeaders headers, HttpRequest httpRequest, StreamingRequestBody streamingBody) {
         // 生成唯一请求ID：当前时间+UUID
         this.id = LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_DEFAULT_FORMATTER)) + "---" + UUID.randomUUID();
         this.serviceDefinition = serviceDefinition;
@@ -175,7 +188,8 @@ public class GatewayRequest {
         this.method = method;
         this.contentType = contentType;
         this.headers = headers;
-        this.fullHttpRequest = fullHttpRequest;
+        this.fullHttpRequest = httpRequest instanceof FullHttpRequest ? (FullHttpRequest) httpRequest : null;
+        this.streamingBody = streamingBody;
 
         // 初始化参数解析器，用于解析URI中的查询参数
         this.queryStringDecoder = new QueryStringDecoder(uri, charset);
@@ -193,13 +207,43 @@ public class GatewayRequest {
         this.requestBuilder.setQueryParams(queryStringDecoder.parameters());  // 设置查询参数
 
         // 处理请求体
+        if (Objects.nonNull(streamingBody)) {
+            this.requestBuilder.setBody(streamingBody);  // 流式请求体，下游按需拉取
+            return;
+        }
+        // 直接引用Netty缓冲区内存作为下游请求体，不做拷贝，每次发送在发起时各自持有一份引用，发送结束后释放
         ByteBuf contentBuffer = fullHttpRequest.content();
-        if (Objects.nonNull(contentBuffer)) {
-            this.requestBuilder.setBody(contentBuffer.nioBuffer());  // 设置请求体
-            contentBuffer.release();  // 释放Netty缓冲区
+        if (Objects.nonNull(contentBuffer) && contentBuffer.isReadable()) {
+            this.requestBuilder.setBody(new ByteBufBodyGenerator(contentBuffer));  // 设置请求体
+        }
+    }
+
+    /**
+     * 释放Netty原始请求（含请求体缓冲区），只会真正释放一次
+     * 重试、对冲请求会再次构建下游请求，原始缓冲区要保留到响应写回后才能释放；已发起的下游请求各自持有请求体引用，不受影响
+     */
+    public void release() {
+        if (fullHttpRequest != null && released.compareAndSet(false, true)) {
+            fullHttpRequest.release();
         }
     }
 
+    /**
+     * 是否流式请求
+     * @return 请求体按块转发时返回true
+     */
+    public boolean isStreaming() {
+        return streamingBody != null;
+    }
+
+    /**
+     * 是否带有请求体
+     * @return 流式请求，或聚合请求的请求体不为空时返回true
+     */
+    public boolean hasBody() {
+        return streamingBody != null || (fullHttpRequest != null && fullHttpRequest.content().isReadable());
+    }
+
     /**
      * 获取指定名称的Cookie
      * @param name Cookie名称
@@ -217,7 +261,7 @@ public class GatewayRequest {
             // 解码Cookie字符串为Cookie集合
             Set<io.netty.handler.codec.http.cookie.Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
             for (io.netty.handler.codec.http.cookie.Cookie cookie : cookies) {
-                cookieMap.put(name, cookie);  // 存入映射（注意：此处原代码可能有问题，应该使用cookie.getName()作为key）
+                cookieMap.put(cookie.name(), cookie);
             }
         }
         return cookieMap.get(name);
@@ -0,0 +1,256 @@
+package com.grace.gateway.core.request;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 流式请求体
+ * 客户端请求体分块到达时写入，下游HTTP客户端按需（request(n)）拉取，实现边读边转发
+ * 背压：缓存的数据超过高水位后暂停读取客户端连接，下游消费后再恢复读取
+ * 线程模型：所有状态只在客户端channel所在的EventLoop上读写，下游回调统一切回该EventLoop执行
+ * 原生下游客户端通过 subscribeBuffers 直接拿到客户端请求体的 ByteBuf，写出后由其释放，不做拷贝；
+ * AsyncHttpClient 只接受 ByteBuffer 且不通知何时写出，只能拷贝后立即释放
+ */
+public class StreamingRequestBody implements Publisher<ByteBuffer> {
+
+    /**
+     * 缓存数据高水位，超过后暂停读取客户端连接
+     */
+    private static final int HIGH_WATER_MARK = 64 * 1024;
+
+    /**
+     * 客户端连接
+     */
+    private final Channel channel;
+
+    /**
+     * 已到达但还未被下游消费的数据块
+     */
+    private final ArrayDeque<ByteBuf> pending = new ArrayDeque<>();
+
+    /**
+     * 缓存中的字节数
+     */
+    private int pendingBytes;
+
+    /**
+     * 下游尚未满足的需求数
+     */
+    private long demand;
+
+    /**
+     * 客户端请求体是否已全部到达
+     */
+    private boolean completed;
+
+    /**
+     * 读取客户端请求体过程中的异常
+     */
+    private Throwable error;
+
+    /**
+     * 是否已经通知下游结束（完成、异常或被取消）
+     */
+    private boolean terminated;
+
+    /**
+     * 下游订阅者，只允许订阅一次
+     */
+    private Subscriber<? super ByteBuf> subscriber;
+
+    public StreamingRequestBody(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 写入一块客户端请求体，在客户端channel的EventLoop上调用
+     */
+    public void offer(HttpContent content) {
+        ByteBuf buf = content.content();
+        if (terminated || !buf.isReadable()) {
+            ReferenceCountUtil.release(content);
+            return;
+        }
+        pending.add(buf);
+        pendingBytes += buf.readableBytes();
+        if (pendingBytes >= HIGH_WATER_MARK) {
+            channel.config().setAutoRead(false);
+        }
+        drain();
+    }
+
+    /**
+     * 客户端请求体已全部到达
+     */
+    public void complete() {
+        completed = true;
+        drain();
+    }
+
+    /**
+     * 客户端连接异常或提前关闭，终止请求体
+     */
+    public void abort(Throwable cause) {
+        if (error == null) {
+            error = cause;
+        }
+        drain();
+    }
+
+    /**
+     * 以 ByteBuffer 的形式订阅请求体，供 AsyncHttpClient 使用
+     * AsyncHttpClient 一次请求全部数据并在内部排队写出，无法得知数据何时写完，每块数据拷贝后立即释放
+     */
+    @Override
+    public void subscribe(Subscriber<? super ByteBuffer> s) {
+        subscribeBuffers(new CopyingSubscriber(s));
+    }
+
+    /**
+     * 以 ByteBuf 的形式订阅请求体，每块数据的所有权转交给订阅者，由订阅者写出后释放
+     */
+    public void subscribeBuffers(Subscriber<? super ByteBuf> s) {
+        channel.eventLoop().execute(() -> {
+            if (subscriber != null) {
+                s.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(long n) {
+                    }
+
+                    @Override
+                    public void cancel() {
+                    }
+                });
+                s.onError(new IllegalStateException("streaming request body can only be subscribed once"));
+                return;
+            }
+            subscriber = s;
+            s.onSubscribe(new BodySubscription());
+            drain();
+        });
+    }
+
+    /**
+     * 将缓存数据按下游需求推送出去，并根据缓存水位恢复客户端读取
+     */
+    private void drain() {
+        if (terminated) {
+            releasePending();
+            return;
+        }
+        if (subscriber == null) {
+            if (error != null) {
+                releasePending();
+            }
+            return;
+        }
+        if (error != null) {
+            terminated = true;
+            releasePending();
+            subscriber.onError(error);
+            return;
+        }
+        while (demand > 0 && !pending.isEmpty()) {
+            ByteBuf buf = pending.poll();
+            pendingBytes -= buf.readableBytes();
+            demand--;
+            subscriber.onNext(buf);
+        }
+        if (pending.isEmpty() && completed) {
+            terminated = true;
+            subscriber.onComplete();
+            return;
+        }
+        if (pendingBytes < HIGH_WATER_MARK && !channel.config().isAutoRead()) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * 释放所有缓存数据，并恢复客户端读取（剩余数据到达后直接丢弃）
+     */
+    private void releasePending() {
+        ByteBuf buf;
+        while ((buf = pending.poll()) != null) {
+            buf.release();
+        }
+        pendingBytes = 0;
+        if (!channel.config().isAutoRead()) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * 将 ByteBuf 拷贝为 ByteBuffer 转交给只接受 ByteBuffer 的订阅者
+     */
+    private static class CopyingSubscriber implements Subscriber<ByteBuf> {
+
+        private final Subscriber<? super ByteBuffer> delegate;
+
+        CopyingSubscriber(Subscriber<? super ByteBuffer> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            delegate.onSubscribe(s);
+        }
+
+        @Override
+        public void onNext(ByteBuf buf) {
+            ByteBuffer data;
+            try {
+                data = ByteBuffer.wrap(ByteBufUtil.getBytes(buf));
+            } finally {
+                buf.release();
+            }
+            delegate.onNext(data);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            delegate.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
+    /**
+     * 下游订阅关系，回调可能来自下游客户端线程，统一切回客户端EventLoop处理
+     */
+    private class BodySubscription implements Subscription {
+
+        @Override
+        public void request(long n) {
+            channel.eventLoop().execute(() -> {
+                if (n <= 0) {
+                    abort(new IllegalArgumentException("request(n) must be positive, but was " + n));
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                drain();
+            });
+        }
+
+        @Override
+        public void cancel() {
+            channel.eventLoop().execute(() -> {
+                terminated = true;
+                releasePending();
+            });
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.grace.gateway.core.resilience;
+
+import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.common.exception.LimitedException;
+import lombok.Getter;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 异步隔离舱
+ * 限制单个服务的在途请求数，超出的请求进入有界队列排队，队列满时直接拒绝；
+ * 请求结束时归还在途额度并启动队首的请求，整个过程不阻塞任何线程，一个下游变慢只会占满自己的额度，不会拖住其它连接
+ * 替代线程池隔离：线程池隔离需要在提交线程上等待结果，在EventLoop上执行时会阻塞同一线程上的所有连接
+ * 排队期间客户端已断开的请求在轮到时直接丢弃，不占用额度、不再转发
+ */
+public class AsyncBulkhead {
+
+    /**
+     * 最大在途请求数
+     */
+    @Getter
+    private final int maxConcurrentCalls;
+
+    /**
+     * 排队队列容量
+     */
+    @Getter
+    private final int queueCapacity;
+
+    /**
+     * 当前在途请求数
+     */
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    /**
+     * 当前排队请求数，与队列一起维护，用于限制队列长度
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+
+    public AsyncBulkhead(int maxConcurrentCalls, int queueCapacity) {
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.queueCapacity = Math.max(0, queueCapacity);
+    }
+
+    /**
+     * 在隔离舱内执行请求
+     *
+     * @param supplier 请求供应器
+     * @param executor 排队的请求获得额度后在该执行器上启动，通常是请求所属连接的EventLoop
+     * @param alive    请求是否仍需执行，通常是客户端连接是否仍然活跃；排队的请求轮到时不再需要则直接丢弃
+     * @return 请求的异步结果，队列已满时以限流异常结束，排队期间被丢弃时以 ClientClosedException 结束
+     */
+    public <T> CompletionStage<T> submit(Supplier<CompletionStage<T>> supplier, Executor executor, BooleanSupplier alive) {
+        if (tryAcquire()) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            run(supplier, result);
+            return result;
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new LimitedException(ResponseCode.TOO_MANY_REQUESTS));
+        }
+        Task<T> task = new Task<>(supplier, executor, alive);
+        queue.offer(task);
+        // 入队期间在途请求可能已经全部结束，重新检查一次，避免请求滞留在队列中
+        drain();
+        return task.result;
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * 当前排队请求数
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= maxConcurrentCalls) {
+                return false;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void release() {
+        inflight.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * 有空闲额度且队列不为空时，依次取出队首请求启动
+     */
+    private void drain() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            Task<?> task = queue.poll();
+            if (task == null) {
+                inflight.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            task.start();
+        }
+    }
+
+    /**
+     * 启动请求，请求结束时归还额度
+     */
+    private <T> void run(Supplier<CompletionStage<T>> supplier, CompletableFuture<T> result) {
+        CompletionStage<T> stage;
+        try {
+            stage = supplier.get();
+        } catch (Throwable t) {
+            release();
+            result.completeExceptionally(t);
+            return;
+        }
+        stage.whenComplete((value, throwable) -> {
+            release();
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private class Task<T> {
+
+        private final Supplier<CompletionStage<T>> supplier;
+
+        private final Executor executor;
+
+        private final BooleanSupplier alive;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(Supplier<CompletionStage<T>> supplier, Executor executor, BooleanSupplier alive) {
+            this.supplier = supplier;
+            this.executor = executor;
+            this.alive = alive;
+        }
+
+        /**
+         * 已持有额度，切到请求自己的执行器上启动，避免在其它请求的完成回调里嵌套执行
+         * 启动前客户端已断开时归还额度并丢弃请求，额度留给仍在等待的请求
+         */
+        private void start() {
+            try {
+                executor.execute(() -> {
+                    if (!alive.getAsBoolean()) {
+                        release();
+                        result.completeExceptionally(new ClientClosedException());
+                        return;
+                    }
+                    run(supplier, result);
+                });
+            } catch (Throwable t) {
+                release();
+                result.completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * 排队期间客户端已断开，请求被丢弃，重试遇到该异常不再重试
+     */
+    public static class ClientClosedException extends RuntimeException {
+
+        public ClientClosedException() {
+            super("client connection closed while queued in bulkhead");
+        }
+    }
+
+}
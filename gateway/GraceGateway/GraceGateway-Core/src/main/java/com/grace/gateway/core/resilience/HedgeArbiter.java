@@ -0,0 +1,121 @@
+package com.grace.gateway.core.resilience;
+
+import com.grace.gateway.core.http.UpstreamResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 对冲请求的结果裁决
+ * 第一个非5xx的响应胜出；5xx响应在还有其它请求未结束时视为该请求失败，暂存起来，等待其它请求的结果，
+ * 它是最后一个结束的请求，或之后的请求全部以异常结束时才作为结果；全部请求以异常结束时以最后一个异常结束
+ * 落败和被替换的响应直接释放
+ */
+public class HedgeArbiter {
+
+    /**
+     * 最终结果
+     */
+    private final CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+
+    /**
+     * 已发出且未结束的请求数
+     */
+    private int pending;
+
+    /**
+     * 是否已裁决出结果
+     */
+    private boolean decided;
+
+    /**
+     * 最近一个暂存的5xx响应，没有更好的结果时作为结果
+     */
+    private UpstreamResponse fallback;
+
+    public CompletableFuture<UpstreamResponse> getResult() {
+        return result;
+    }
+
+    /**
+     * 登记一个即将发出的请求
+     *
+     * @return 已有结果时返回false，不应再发出请求
+     */
+    public synchronized boolean register() {
+        if (decided || result.isDone()) {
+            return false;
+        }
+        pending++;
+        return true;
+    }
+
+    /**
+     * 一个请求收到响应
+     *
+     * @return 该响应是否成为最终结果，未成为结果的响应已释放或暂存
+     */
+    public boolean onResponse(UpstreamResponse response) {
+        UpstreamResponse discarded;
+        UpstreamResponse winner = null;
+        synchronized (this) {
+            pending--;
+            if (decided || result.isDone()) {
+                discarded = response;
+                releaseFallback();
+            } else if (response.getStatusCode() >= 500 && pending > 0) {
+                // 还有其它请求未结束，5xx视为该请求失败
+                discarded = fallback;
+                fallback = response;
+            } else {
+                decided = true;
+                discarded = fallback;
+                fallback = null;
+                winner = response;
+            }
+        }
+        if (discarded != null) {
+            discarded.release();
+        }
+        if (winner == null) {
+            return false;
+        }
+        if (!result.complete(winner)) {
+            // 结果已被外部结束（如超时取消）
+            winner.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 一个请求以异常结束，最后一个结束的请求以暂存的5xx响应或该异常作为结果
+     */
+    public void onFailure(Throwable throwable) {
+        UpstreamResponse response;
+        synchronized (this) {
+            pending--;
+            if (decided || pending > 0) {
+                return;
+            }
+            decided = true;
+            response = fallback;
+            fallback = null;
+        }
+        if (response == null) {
+            result.completeExceptionally(throwable);
+        } else if (!result.complete(response)) {
+            response.release();
+        }
+    }
+
+    /**
+     * 结果已被外部结束时，释放暂存的5xx响应
+     */
+    private void releaseFallback() {
+        if (fallback != null) {
+            fallback.release();
+            fallback = null;
+        }
+    }
+
+}
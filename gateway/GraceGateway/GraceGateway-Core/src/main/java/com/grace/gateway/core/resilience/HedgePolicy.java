@@ -0,0 +1,88 @@
+package com.grace.gateway.core.resilience;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个服务的对冲请求状态
+ * 保存对冲请求预算，以及最近请求耗时的样本，用于在未配置固定延迟时按p95决定何时发出对冲请求
+ */
+public class HedgePolicy {
+
+    /**
+     * 最多积攒的对冲请求数
+     */
+    private static final int MAX_BUDGET_TOKENS = 10;
+
+    /**
+     * 保留的耗时样本数，必须是2的幂
+     */
+    private static final int SAMPLE_SIZE = 256;
+
+    /**
+     * 计算p95所需的最少样本数，样本不足时不发出对冲请求
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    /**
+     * 重新计算p95的间隔（毫秒）
+     */
+    private static final long PERCENTILE_REFRESH_MILLIS = 1000;
+
+    /**
+     * 对冲请求预算
+     */
+    @Getter
+    private final RequestBudget budget;
+
+    /**
+     * 最近请求耗时的环形缓冲区（纳秒），并发写入时个别样本被覆盖不影响统计
+     */
+    private final long[] samples = new long[SAMPLE_SIZE];
+
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    /**
+     * 最近一次计算的p95耗时（纳秒），样本不足时为-1
+     */
+    private volatile long p95Nanos = -1;
+
+    private volatile long nextRefreshTime;
+
+    public HedgePolicy(int budgetPercent) {
+        this.budget = new RequestBudget(budgetPercent, MAX_BUDGET_TOKENS);
+    }
+
+    /**
+     * 记录一次成功请求的耗时
+     */
+    public void recordLatency(long nanos) {
+        samples[(int) (sampleCount.getAndIncrement() & (SAMPLE_SIZE - 1))] = nanos;
+    }
+
+    /**
+     * 获取最近请求耗时的p95，每隔一段时间重新计算一次
+     *
+     * @return p95耗时（纳秒），样本不足时返回-1
+     */
+    public long getP95Nanos() {
+        long now = System.currentTimeMillis();
+        if (now >= nextRefreshTime) {
+            synchronized (this) {
+                if (now >= nextRefreshTime) {
+                    nextRefreshTime = now + PERCENTILE_REFRESH_MILLIS;
+                    int n = (int) Math.min(sampleCount.get(), SAMPLE_SIZE);
+                    if (n >= MIN_SAMPLES) {
+                        long[] sorted = Arrays.copyOf(samples, n);
+                        Arrays.sort(sorted);
+                        p95Nanos = sorted[(int) Math.ceil(n * 0.95) - 1];
+                    }
+                }
+            }
+        }
+        return p95Nanos;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.grace.gateway.core.resilience;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.LoadBalanceFilter;
+import com.grace.gateway.core.filter.route.RouteUtil;
+import com.grace.gateway.core.http.UpstreamResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 对冲请求
+ * 下游个别实例偶发的长尾延迟会直接拉高网关的尾延迟；对冲请求在原请求发出一段时间（固定延迟，或该服务最近请求耗时的p95）后仍未返回时，
+ * 向另一个实例再发出一次相同的请求，采用先返回的非5xx响应，取消另一个请求（裁决规则见 HedgeArbiter）
+ * 只对没有请求体的GET、HEAD请求生效；对冲请求受服务级预算限制，额外流量不超过请求数的一定比例
+ */
+@Slf4j
+public class HedgedRequest {
+
+    private final GatewayContext context;
+
+    private final HedgePolicy policy;
+
+    /**
+     * 结果裁决，最终结果为第一个非5xx的响应，或全部请求失败时最后的5xx响应或异常
+     */
+    private final HedgeArbiter arbiter = new HedgeArbiter();
+
+    private final CompletableFuture<UpstreamResponse> result = arbiter.getResult();
+
+    /**
+     * 已发出的请求，在自身的锁内访问
+     */
+    private final List<CompletableFuture<UpstreamResponse>> attempts = new ArrayList<>(2);
+
+    private long startNanos;
+
+    private HedgedRequest(GatewayContext context, HedgePolicy policy) {
+        this.context = context;
+        this.policy = policy;
+    }
+
+    /**
+     * 请求是否可以对冲：只对冲幂等且没有请求体的GET、HEAD请求
+     */
+    public static boolean isHedgeable(GatewayContext context) {
+        HttpMethod method = context.getRequest().getMethod();
+        return (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) && !context.getRequest().hasBody();
+    }
+
+    /**
+     * 构建带对冲的请求供应器，替代 RouteUtil.buildRouteSupplier 作为弹性策略装饰的基础供应器
+     *
+     * @param context          网关上下文对象
+     * @param resilienceConfig 弹性策略配置
+     * @param policy           服务的对冲请求状态
+     * @return 请求供应器，每次调用（包括重试）都是一次独立的对冲请求
+     */
+    public static Supplier<CompletionStage<UpstreamResponse>> buildHedgeSupplier(GatewayContext context,
+                                                                               RouteDefinition.ResilienceConfig resilienceConfig,
+                                                                               HedgePolicy policy) {
+        return () -> {
+            CompletableFuture<UpstreamResponse> future = new HedgedRequest(context, policy).start(resilienceConfig.getHedgeDelay());
+            future.whenComplete((response, throwable) -> RouteUtil.handleResponse(context, response, throwable));
+            return future;
+        };
+    }
+
+    /**
+     * 向负载均衡选中的实例发出请求，并在延迟到达后发出对冲请求
+     *
+     * @param hedgeDelay 配置的对冲延迟（毫秒），不大于0时使用最近请求耗时的p95
+     */
+    private CompletableFuture<UpstreamResponse> start(int hedgeDelay) {
+        policy.getBudget().onRequest();
+        startNanos = System.nanoTime();
+        ServiceInstance primary = context.getServiceInstance();
+        launch(primary);
+        long delayNanos = hedgeDelay > 0 ? TimeUnit.MILLISECONDS.toNanos(hedgeDelay) : policy.getP95Nanos();
+        if (primary != null && delayNanos > 0 && !result.isDone()) {
+            ScheduledFuture<?> hedgeFuture = context.getNettyCtx().channel().eventLoop()
+                    .schedule(() -> hedge(primary), delayNanos, TimeUnit.NANOSECONDS);
+            result.whenComplete((response, throwable) -> hedgeFuture.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * 原请求仍未返回时，在预算允许的情况下向另一个实例发出对冲请求
+     */
+    private void hedge(ServiceInstance primary) {
+        if (result.isDone() || !policy.getBudget().tryAcquire()) {
+            return;
+        }
+        ServiceInstance instance = null;
+        try {
+            instance = LoadBalanceFilter.reselect(context, Collections.singleton(primary.getInstanceId()));
+        } catch (Throwable t) {
+            log.warn("select hedge instance failed", t);
+        }
+        if (instance == null) {
+            // 没有其它可用实例，归还预算
+            policy.getBudget().refund();
+            return;
+        }
+        launch(instance);
+    }
+
+    /**
+     * 向指定实例发出一次请求
+     */
+    private void launch(ServiceInstance instance) {
+        if (!arbiter.register()) {
+            return;
+        }
+        CompletableFuture<UpstreamResponse> attempt;
+        try {
+            attempt = RouteUtil.sendRequest(context, instance);
+        } catch (Throwable t) {
+            attempt = CompletableFuture.failedFuture(t);
+        }
+        synchronized (this) {
+            attempts.add(attempt);
+        }
+        CompletableFuture<UpstreamResponse> current = attempt;
+        attempt.whenComplete((response, throwable) -> onAttemptComplete(current, response, throwable));
+        if (result.isDone() && !attempt.isDone()) {
+            // 发出期间其它请求已经返回
+            attempt.cancel(true);
+        }
+    }
+
+    /**
+     * 由裁决决定结果，胜出的响应作为结果并取消其它请求
+     */
+    private void onAttemptComplete(CompletableFuture<UpstreamResponse> attempt, UpstreamResponse response, Throwable throwable) {
+        if (throwable != null) {
+            arbiter.onFailure(throwable);
+        } else if (arbiter.onResponse(response)) {
+            policy.recordLatency(System.nanoTime() - startNanos);
+            cancelOthers(attempt);
+        }
+    }
+
+    private void cancelOthers(CompletableFuture<UpstreamResponse> winner) {
+        List<CompletableFuture<UpstreamResponse>> others;
+        synchronized (this) {
+            others = new ArrayList<>(attempts);
+        }
+        for (CompletableFuture<UpstreamResponse> other : others) {
+            if (other != winner) {
+                other.cancel(true);
+            }
+        }
+    }
+
+}
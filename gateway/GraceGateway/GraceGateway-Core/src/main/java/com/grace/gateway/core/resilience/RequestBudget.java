@@ -0,0 +1,84 @@
+package com.grace.gateway.core.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 额外请求预算
+ * 对冲、重试等会在原请求之外额外发出请求，下游故障时额外请求会成倍放大流量；预算把额外请求限制在普通请求数的一定比例内
+ * 实现方式：令牌桶，每个普通请求存入 比例 个令牌，每个额外请求取出1个令牌，余额有上限，避免长时间空闲后积攒大量额度
+ */
+public class RequestBudget {
+
+    /**
+     * 令牌精度，余额以 1/UNIT 个令牌为单位保存
+     */
+    private static final long UNIT = 1000;
+
+    /**
+     * 每个普通请求存入的令牌数（×UNIT）
+     */
+    private final long deposit;
+
+    /**
+     * 余额上限（×UNIT）
+     */
+    private final long maxBalance;
+
+    /**
+     * 当前余额（×UNIT）
+     */
+    private final AtomicLong balance;
+
+    /**
+     * @param percent   额外请求数占普通请求数的最大百分比
+     * @param maxTokens 最多积攒的额外请求数，初始余额为满；百分比为0时不允许额外请求
+     */
+    public RequestBudget(int percent, int maxTokens) {
+        this.deposit = UNIT * Math.max(0, percent) / 100;
+        this.maxBalance = UNIT * Math.max(1, maxTokens);
+        this.balance = new AtomicLong(deposit == 0 ? 0 : maxBalance);
+    }
+
+    /**
+     * 记录一个普通请求，存入令牌
+     */
+    public void onRequest() {
+        if (deposit == 0) {
+            return;
+        }
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * 尝试为一个额外请求取出令牌
+     *
+     * @return 是否还有预算
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+
+    /**
+     * 归还取出但未使用的令牌
+     */
+    public void refund() {
+        if (deposit == 0) {
+            return;
+        }
+        balance.accumulateAndGet(UNIT, (current, delta) -> Math.min(maxBalance, current + delta));
+    }
+
+}
@@ -7,13 +7,13 @@ import com.grace.gateway.core.context.GatewayContext;
 import com.grace.gateway.core.filter.route.RouteUtil;
 import com.grace.gateway.core.helper.ContextHelper;
 import com.grace.gateway.core.helper.ResponseHelper;
+import com.grace.gateway.core.http.UpstreamResponse;
 import com.grace.gateway.core.resilience.fallback.FallbackHandler;
 import com.grace.gateway.core.resilience.fallback.FallbackHandlerManager;
 import io.github.resilience4j.bulkhead.Bulkhead;
-import io.github.resilience4j.bulkhead.ThreadPoolBulkhead;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.retry.Retry;
-import org.asynchttpclient.Response;
+import io.netty.channel.Channel;
 
 import java.util.concurrent.*;
 import java.util.function.Supplier;
@@ -55,7 +55,12 @@ public class Resilience {
 
         // 构建原始请求供应器（未加任何弹性策略的基础请求逻辑）
         // 由RouteUtil提供，负责实际发送HTTP请求
-        Supplier<CompletionStage<Response>> supplier = RouteUtil.buildRouteSupplier(gatewayContext);
+        Supplier<CompletionStage<UpstreamResponse>> supplier = RouteUtil.buildRouteSupplier(gatewayContext);
+        // 开启对冲请求时，没有请求体的GET、HEAD请求在原请求迟迟未返回时向另一个实例再发一次，取先返回的非5xx响应
+        HedgePolicy hedgePolicy = ResilienceFactory.buildHedgePolicy(resilienceConfig, serviceName);
+        if (hedgePolicy != null && HedgedRequest.isHedgeable(gatewayContext)) {
+            supplier = HedgedRequest.buildHedgeSupplier(gatewayContext, resilienceConfig, hedgePolicy);
+        }
 
         // 按照配置的策略顺序，依次为请求供应器添加弹性策略（装饰器模式）
         // resilienceConfig.getOrder()返回策略执行顺序列表（如先重试、再熔断、最后限流）
@@ -65,10 +70,14 @@ public class Resilience {
                 case RETRY -> {
                     // 通过工厂类创建重试实例（基于配置和服务名称）
                     Retry retry = ResilienceFactory.buildRetry(resilienceConfig, serviceName);
-                    if (retry != null) {
+                    // 只重试幂等请求，或路由明确允许重试的非幂等请求
+                    if (retry != null && RetryAttempts.isRetryable(gatewayContext, resilienceConfig)) {
+                        // 每次重试重新选择实例，排除已经转发过的实例，并受服务级重试预算限制
+                        RequestBudget retryBudget = ResilienceFactory.buildRetryBudget(resilienceConfig, serviceName);
                         // 用重试策略装饰原始请求供应器
                         // 装饰后，请求失败时会按配置自动重试
-                        supplier = Retry.decorateCompletionStage(retry, retryScheduler, supplier);
+                        supplier = Retry.decorateCompletionStage(retry, retryScheduler,
+                                RetryAttempts.decorate(gatewayContext, retryBudget, supplier));
                     }
                 }
                 // 降级策略：当请求失败时执行备选逻辑
@@ -76,7 +85,7 @@ public class Resilience {
                     // 检查是否启用了降级
                     if (resilienceConfig.isFallbackEnabled()) {
                         // 保存当前装饰链的供应器引用（避免lambda中变量引用问题）
-                        Supplier<CompletionStage<Response>> finalSupplier = supplier;
+                        Supplier<CompletionStage<UpstreamResponse>> finalSupplier = supplier;
                         // 装饰供应器：添加异常处理逻辑
                         supplier = () ->
                                 finalSupplier.get()
@@ -109,24 +118,15 @@ public class Resilience {
                         supplier = Bulkhead.decorateCompletionStage(bulkhead, supplier);
                     }
                 }
-                // 线程池隔离：用独立线程池执行请求，避免单个服务耗尽资源
+                // 线程池隔离：限制单个服务的在途请求数，超出的请求排队，避免单个服务耗尽资源
                 case THREADPOOLBULKHEAD -> {
-                    // 创建线程池隔离实例
-                    ThreadPoolBulkhead threadPoolBulkhead = ResilienceFactory.buildThreadPoolBulkhead(resilienceConfig, serviceName);
-                    if (threadPoolBulkhead != null) {
-                        Supplier<CompletionStage<Response>> finalSupplier = supplier;
-                        // 装饰供应器：将请求提交到隔离线程池执行
-                        supplier = () -> {
-                            // 将请求包装为线程池任务
-                            CompletionStage<CompletableFuture<Response>> future =
-                                    threadPoolBulkhead.executeSupplier(() -> finalSupplier.get().toCompletableFuture());
-                            try {
-                                // 等待线程池任务执行完成并返回结果
-                                return future.toCompletableFuture().get();
-                            } catch (InterruptedException | ExecutionException e) {
-                                throw new RuntimeException(e);
-                            }
-                        };
+                    // 创建线程池隔离实例，使用异步隔离舱实现，不阻塞EventLoop
+                    AsyncBulkhead asyncBulkhead = ResilienceFactory.buildThreadPoolBulkhead(resilienceConfig, serviceName);
+                    if (asyncBulkhead != null) {
+                        Supplier<CompletionStage<UpstreamResponse>> finalSupplier = supplier;
+                        Channel channel = gatewayContext.getNettyCtx().channel();
+                        // 装饰供应器：在途请求数未满时直接执行，否则排队，队列满时拒绝；排队期间客户端断开的请求直接丢弃
+                        supplier = () -> asyncBulkhead.submit(finalSupplier, channel.eventLoop(), channel::isActive);
                     }
                 }
             }
@@ -24,23 +24,34 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class ResilienceFactory {
 
+    // 每个服务最多积攒的重试次数，空闲一段时间后允许的突发重试数
+    private static final int MAX_RETRY_BUDGET_TOKENS = 10;
+
     // 存储重试策略实例的缓存，key为服务名称
     private static final Map<String, Retry> retryMap = new ConcurrentHashMap<>();
+    // 存储重试预算的缓存，key为服务名称
+    private static final Map<String, RequestBudget> retryBudgetMap = new ConcurrentHashMap<>();
     // 存储熔断策略实例的缓存，key为服务名称
     private static final Map<String, CircuitBreaker> circuitBreakerMap = new ConcurrentHashMap<>();
     // 存储信号量隔离策略实例的缓存，key为服务名称
     private static final Map<String, Bulkhead> bulkheadMap = new ConcurrentHashMap<>();
     // 存储线程池隔离策略实例的缓存，key为服务名称
-    private static final Map<String, ThreadPoolBulkhead> threadPoolBulkheadMap = new ConcurrentHashMap<>();
+    private static final Map<String, AsyncBulkhead> threadPoolBulkheadMap = new ConcurrentHashMap<>();
+    // 存储对冲请求状态的缓存，key为服务名称
+    private static final Map<String, HedgePolicy> hedgePolicyMap = new ConcurrentHashMap<>();
 
     // 记录已添加路由监听器的重试策略对应的服务名称，避免重复添加监听器
     private static final Set<String> retrySet = new ConcurrentHashSet<>();
+    // 记录已添加路由监听器的重试预算对应的服务名称
+    private static final Set<String> retryBudgetSet = new ConcurrentHashSet<>();
     // 记录已添加路由监听器的熔断策略对应的服务名称
     private static final Set<String> circuitBreakerSet = new ConcurrentHashSet<>();
     // 记录已添加路由监听器的信号量隔离策略对应的服务名称
     private static final Set<String> bulkheadSet = new ConcurrentHashSet<>();
     // 记录已添加路由监听器的线程池隔离策略对应的服务名称
     private static final Set<String> threadPoolBulkheadSet = new ConcurrentHashSet<>();
+    // 记录已添加路由监听器的对冲请求状态对应的服务名称
+    private static final Set<String> hedgePolicySet = new ConcurrentHashSet<>();
 
     /**
      * 构建重试策略实例
@@ -65,12 +76,33 @@ public class ResilienceFactory {
             RetryConfig config = RetryConfig.custom()
                     .maxAttempts(resilienceConfig.getMaxAttempts()) // 最大重试次数
                     .waitDuration(Duration.ofMillis(resilienceConfig.getWaitDuration())) // 重试间隔时间
+                    // 重试预算用完、客户端已断开时不再重试
+                    .ignoreExceptions(RetryAttempts.BudgetExhaustedException.class, AsyncBulkhead.ClientClosedException.class)
                     .build();
             // 创建并返回重试策略实例
             return RetryRegistry.of(config).retry(serviceName);
         });
     }
 
+    /**
+     * 构建重试预算
+     * @param resilienceConfig 弹性策略配置
+     * @param serviceName 服务名称
+     * @return 服务的重试预算，若未启用重试则返回null
+     */
+    public static RequestBudget buildRetryBudget(RouteDefinition.ResilienceConfig resilienceConfig, String serviceName) {
+        if (!resilienceConfig.isRetryEnabled()) {
+            return null;
+        }
+        return retryBudgetMap.computeIfAbsent(serviceName, name -> {
+            if (!retryBudgetSet.contains(serviceName)) {
+                DynamicConfigManager.getInstance().addRouteListener(serviceName, newRoute -> retryBudgetMap.remove(newRoute.getServiceName()));
+                retryBudgetSet.add(serviceName);
+            }
+            return new RequestBudget(resilienceConfig.getRetryBudgetPercent(), MAX_RETRY_BUDGET_TOKENS);
+        });
+    }
+
     /**
      * 构建熔断策略实例
      * @param resilienceConfig 弹性策略配置
@@ -132,11 +164,12 @@ public class ResilienceFactory {
 
     /**
      * 构建线程池隔离策略实例
+     * 使用异步隔离舱实现：最大线程数作为最大在途请求数，队列容量作为排队上限，不占用线程
      * @param resilienceConfig 弹性策略配置
      * @param serviceName 服务名称
-     * @return 线程池隔离实例，若未启用则返回null
+     * @return 异步隔离舱实例，若未启用则返回null
      */
-    public static ThreadPoolBulkhead buildThreadPoolBulkhead(RouteDefinition.ResilienceConfig resilienceConfig, String serviceName) {
+    public static AsyncBulkhead buildThreadPoolBulkhead(RouteDefinition.ResilienceConfig resilienceConfig, String serviceName) {
         if (!resilienceConfig.isThreadPoolBulkheadEnabled()) {
             return null;
         }
@@ -145,13 +178,29 @@ public class ResilienceFactory {
                 DynamicConfigManager.getInstance().addRouteListener(serviceName, newRoute -> threadPoolBulkheadMap.remove(newRoute.getServiceName()));
                 threadPoolBulkheadSet.add(serviceName);
             }
-            // 构建线程池隔离配置
-            ThreadPoolBulkheadConfig threadPoolBulkheadConfig = ThreadPoolBulkheadConfig.custom()
-                    .coreThreadPoolSize(resilienceConfig.getCoreThreadPoolSize()) // 核心线程数
-                    .maxThreadPoolSize(resilienceConfig.getMaxThreadPoolSize()) // 最大线程数
-                    .queueCapacity(resilienceConfig.getQueueCapacity()) // 队列容量
-                    .build();
-            return ThreadPoolBulkheadRegistry.of(threadPoolBulkheadConfig).bulkhead(serviceName);
+            return new AsyncBulkhead(
+                    resilienceConfig.getMaxThreadPoolSize(), // 最大在途请求数
+                    resilienceConfig.getQueueCapacity() // 排队队列容量
+            );
+        });
+    }
+
+    /**
+     * 构建对冲请求状态
+     * @param resilienceConfig 弹性策略配置
+     * @param serviceName 服务名称
+     * @return 对冲请求状态，若未启用则返回null
+     */
+    public static HedgePolicy buildHedgePolicy(RouteDefinition.ResilienceConfig resilienceConfig, String serviceName) {
+        if (!resilienceConfig.isHedgeEnabled()) {
+            return null;
+        }
+        return hedgePolicyMap.computeIfAbsent(serviceName, name -> {
+            if (!hedgePolicySet.contains(serviceName)) {
+                DynamicConfigManager.getInstance().addRouteListener(serviceName, newRoute -> hedgePolicyMap.remove(newRoute.getServiceName()));
+                hedgePolicySet.add(serviceName);
+            }
+            return new HedgePolicy(resilienceConfig.getHedgeBudgetPercent());
         });
     }
 
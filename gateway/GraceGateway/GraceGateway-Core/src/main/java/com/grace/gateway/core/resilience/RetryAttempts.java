@@ -0,0 +1,122 @@
+package com.grace.gateway.core.resilience;
+
+import com.grace.gateway.config.pojo.RouteDefinition;
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.loadbalance.LoadBalanceFilter;
+import com.grace.gateway.core.http.UpstreamResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * 单个请求的重试
+ * 每次重试重新执行负载均衡，排除已经转发过的实例，避免重试落到刚刚失败的实例上；
+ * 重试受服务级预算限制，预算用完后不再重试，防止下游故障时重试放大流量
+ * 由 Retry 装饰，重试的次数和间隔仍由 Retry 控制
+ */
+@Slf4j
+public class RetryAttempts {
+
+    /**
+     * 幂等的请求方法，可以安全地重试
+     */
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.TRACE, HttpMethod.PUT, HttpMethod.DELETE);
+
+    private final GatewayContext context;
+
+    private final RequestBudget budget;
+
+    private final Supplier<CompletionStage<UpstreamResponse>> supplier;
+
+    /**
+     * 已经转发过的实例ID，重试依次执行，不会并发访问
+     */
+    private final Set<String> triedInstanceIds = new HashSet<>();
+
+    /**
+     * 已执行的次数
+     */
+    private int attempts;
+
+    /**
+     * 最近一次失败的异常
+     */
+    private volatile Throwable lastFailure;
+
+    private RetryAttempts(GatewayContext context, RequestBudget budget, Supplier<CompletionStage<UpstreamResponse>> supplier) {
+        this.context = context;
+        this.budget = budget;
+        this.supplier = supplier;
+    }
+
+    /**
+     * 请求是否可以重试：幂等的请求方法，或路由明确允许重试非幂等请求
+     */
+    public static boolean isRetryable(GatewayContext context, RouteDefinition.ResilienceConfig resilienceConfig) {
+        return resilienceConfig.isRetryNonIdempotent() || IDEMPOTENT_METHODS.contains(context.getRequest().getMethod());
+    }
+
+    /**
+     * 装饰请求供应器，再交给 Retry 装饰
+     *
+     * @param context  网关上下文对象
+     * @param budget   服务的重试预算
+     * @param supplier 被重试的请求供应器，每次执行都转发到上下文中的实例
+     * @return 请求供应器，第一次执行转发到负载均衡选中的实例，之后每次执行都换一个实例
+     */
+    public static Supplier<CompletionStage<UpstreamResponse>> decorate(GatewayContext context, RequestBudget budget,
+                                                                      Supplier<CompletionStage<UpstreamResponse>> supplier) {
+        RetryAttempts retryAttempts = new RetryAttempts(context, budget, supplier);
+        return retryAttempts::next;
+    }
+
+    private CompletionStage<UpstreamResponse> next() {
+        ServiceInstance current = context.getServiceInstance();
+        if (attempts++ == 0) {
+            budget.onRequest();
+        } else {
+            if (!budget.tryAcquire()) {
+                return CompletableFuture.failedFuture(new BudgetExhaustedException(lastFailure));
+            }
+            ServiceInstance instance = null;
+            try {
+                instance = LoadBalanceFilter.reselect(context, triedInstanceIds);
+            } catch (Throwable t) {
+                log.warn("select retry instance failed", t);
+            }
+            // 没有其它可用实例时，仍在原实例上重试
+            if (instance != null) {
+                context.setServiceInstance(instance);
+                current = instance;
+            }
+        }
+        if (current != null) {
+            triedInstanceIds.add(current.getInstanceId());
+        }
+        CompletionStage<UpstreamResponse> stage = supplier.get();
+        stage.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                lastFailure = throwable;
+            }
+        });
+        return stage;
+    }
+
+    /**
+     * 重试预算已用完，Retry 遇到该异常不再重试，原因为最近一次失败的异常
+     */
+    public static class BudgetExhaustedException extends RuntimeException {
+
+        public BudgetExhaustedException(Throwable cause) {
+            super("retry budget exhausted", cause);
+        }
+    }
+
+}
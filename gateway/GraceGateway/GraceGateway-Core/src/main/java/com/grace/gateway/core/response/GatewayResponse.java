@@ -5,7 +5,7 @@ import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import lombok.Data;
-import org.asynchttpclient.Response;
+import com.grace.gateway.core.http.UpstreamResponse;
 
 
 
@@ -17,6 +17,7 @@ public class GatewayResponse {
     private HttpHeaders responseHeaders = new DefaultHttpHeaders();
     /**
      * 响应内容
+     * 下游服务的响应只在过滤器调用getContent()时才从响应体解码
      */
     private String content;
     /**
@@ -26,7 +27,11 @@ public class GatewayResponse {
     /**
      * 响应结果
      */
-    private Response response;
+    private UpstreamResponse response;
+    /**
+     * 流式响应写回器，非流式响应为null
+     */
+    private StreamingResponseWriter streamingWriter;
 
     /**
      * 设置响应头信息
@@ -35,4 +40,21 @@ public class GatewayResponse {
         responseHeaders.add(key, val);
     }
 
+    /**
+     * 获取字符串形式的响应内容，下游服务响应按需解码一次后缓存
+     */
+    public String getContent() {
+        if (content == null && response != null) {
+            content = response.getResponseBody();
+        }
+        return content;
+    }
+
+    /**
+     * 是否流式响应，流式响应只包含响应头，响应体由 streamingWriter 分块写回
+     */
+    public boolean isStreaming() {
+        return streamingWriter != null;
+    }
+
 }
@@ -0,0 +1,254 @@
+package com.grace.gateway.core.response;
+
+import com.grace.gateway.common.enums.ResponseCode;
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.helper.ContextHelper;
+import com.grace.gateway.core.helper.ResponseHelper;
+import com.grace.gateway.core.http.StreamingResponseListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.AttributeKey;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+
+/**
+ * 流式响应写回器
+ * 下游响应头到达后先走后置过滤器，再由 ContextHelper 写回响应头；响应体分块到达后直接写回客户端
+ * 所有回调都切换到客户端 channel 的 EventLoop 上执行，保证响应头、响应体的写出顺序
+ * 背压：客户端连接不可写时暂停读取下游连接，可写后恢复，慢客户端不会让整个响应堆积在发送缓冲区
+ * 响应体分块只写入不立即刷新，同一批到达的分块合并为一次刷新
+ * 请求在响应体转发结束或中断时才算结束，此时才执行上下文的完成回调（如归还并发额度）
+ */
+@Slf4j
+public class StreamingResponseWriter implements StreamingResponseListener {
+
+    /**
+     * 客户端连接上正在写回的流式响应，连接可写状态变化时通知
+     */
+    public static final AttributeKey<StreamingResponseWriter> WRITER_KEY = AttributeKey.valueOf("streamingResponseWriter");
+
+    private final GatewayContext context;
+
+    private final ChannelHandlerContext nettyCtx;
+
+    /**
+     * 响应头写出前到达的响应体分块
+     */
+    private final ArrayDeque<ByteBuf> pending = new ArrayDeque<>();
+
+    /**
+     * 响应头是否已写回客户端
+     */
+    private boolean headWritten;
+
+    /**
+     * 下游响应是否已接收完毕
+     */
+    private boolean upstreamCompleted;
+
+    /**
+     * 是否已中断（写回失败或下游异常），中断后到达的数据直接丢弃
+     */
+    private boolean aborted;
+
+    /**
+     * 下游连接，用于暂停、恢复读取下游响应
+     */
+    private volatile Channel upstreamChannel;
+
+    /**
+     * 是否因客户端连接不可写而暂停了读取下游响应
+     */
+    private boolean paused;
+
+    /**
+     * 是否已安排刷新
+     */
+    private boolean flushScheduled;
+
+    public StreamingResponseWriter(GatewayContext context) {
+        this.context = context;
+        this.nettyCtx = context.getNettyCtx();
+    }
+
+    @Override
+    public void onConnection(Channel upstreamChannel) {
+        this.upstreamChannel = upstreamChannel;
+        nettyCtx.executor().execute(() -> {
+            // 连接就绪前客户端已经不可写
+            if (paused) {
+                upstreamChannel.config().setAutoRead(false);
+            }
+        });
+    }
+
+    @Override
+    public void onHead(int statusCode, HttpHeaders headers) {
+        nettyCtx.executor().execute(() -> {
+            try {
+                context.setResponse(ResponseHelper.buildGatewayResponse(statusCode, headers, this));
+                // 执行后置过滤器，全部执行完后由 ContextHelper.writeBackResponse 回调 writeHead
+                context.doFilter();
+            } catch (Throwable t) {
+                log.error("流式响应后置处理异常", t);
+                abort();
+            }
+        });
+    }
+
+    @Override
+    public void onContent(ByteBuf content) {
+        nettyCtx.executor().execute(() -> {
+            if (aborted) {
+                content.release();
+            } else if (!headWritten) {
+                pending.add(content);
+            } else {
+                nettyCtx.write(new DefaultHttpContent(content));
+                scheduleFlush();
+                pauseIfUnwritable();
+            }
+        });
+    }
+
+    @Override
+    public void onComplete() {
+        nettyCtx.executor().execute(() -> {
+            upstreamCompleted = true;
+            if (headWritten && !aborted) {
+                finish();
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        nettyCtx.executor().execute(() -> {
+            context.setThrowable(throwable);
+            if (context.getResponse() == null) {
+                // 还未收到响应头，按普通请求返回错误响应
+                context.setResponse(ResponseHelper.buildGatewayResponse(ResponseCode.HTTP_RESPONSE_ERROR));
+                ContextHelper.writeBackResponse(context);
+            } else {
+                // 响应已经开始写回，只能断开连接让客户端感知
+                log.error("流式响应中断 {}", context.getRequest().getId(), throwable);
+                abort();
+            }
+        });
+    }
+
+    /**
+     * 写回响应头，并补写之前缓存的响应体分块，由 ContextHelper.writeBackResponse 调用
+     *
+     * @param head 响应头
+     */
+    public void writeHead(HttpResponse head) {
+        if (aborted) {
+            return;
+        }
+        headWritten = true;
+        nettyCtx.channel().attr(WRITER_KEY).set(this);
+        nettyCtx.write(head);
+        ByteBuf content;
+        while ((content = pending.poll()) != null) {
+            nettyCtx.write(new DefaultHttpContent(content));
+        }
+        if (upstreamCompleted) {
+            finish();
+        } else {
+            nettyCtx.flush();
+            pauseIfUnwritable();
+        }
+    }
+
+    /**
+     * 客户端连接可写状态变化，由客户端连接的处理器在 EventLoop 上调用
+     */
+    public void onWritabilityChanged() {
+        if (paused && nettyCtx.channel().isWritable()) {
+            resumeUpstream();
+        }
+    }
+
+    /**
+     * 客户端连接不可写时刷新已写入的数据并暂停读取下游响应
+     */
+    private void pauseIfUnwritable() {
+        if (paused || nettyCtx.channel().isWritable()) {
+            return;
+        }
+        paused = true;
+        nettyCtx.flush();
+        Channel channel = upstreamChannel;
+        if (channel != null) {
+            channel.config().setAutoRead(false);
+        }
+    }
+
+    private void resumeUpstream() {
+        paused = false;
+        Channel channel = upstreamChannel;
+        if (channel != null) {
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    /**
+     * 安排一次刷新，排在已到达的分块之后执行，同一批分块只刷新一次
+     */
+    private void scheduleFlush() {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        nettyCtx.executor().execute(() -> {
+            flushScheduled = false;
+            nettyCtx.flush();
+        });
+    }
+
+    /**
+     * 响应结束或中断，不再关注客户端连接的可写状态
+     */
+    private void detach() {
+        nettyCtx.channel().attr(WRITER_KEY).compareAndSet(this, null);
+        if (paused) {
+            resumeUpstream();
+        }
+    }
+
+    /**
+     * 写回响应结束标记，短连接在写完后关闭
+     */
+    private void finish() {
+        detach();
+        ChannelFuture future = nettyCtx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (!context.isKeepAlive()) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        context.complete();
+    }
+
+    /**
+     * 中断写回，释放缓存数据并关闭连接
+     */
+    private void abort() {
+        aborted = true;
+        detach();
+        ByteBuf content;
+        while ((content = pending.poll()) != null) {
+            content.release();
+        }
+        nettyCtx.close();
+        context.complete();
+    }
+
+}
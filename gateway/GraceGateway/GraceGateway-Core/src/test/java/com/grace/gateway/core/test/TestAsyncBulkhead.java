@@ -0,0 +1,177 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.common.exception.LimitedException;
+import com.grace.gateway.core.resilience.AsyncBulkhead;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestAsyncBulkhead {
+
+    @Test
+    public void testRejectWhenQueueFull() {
+        AsyncBulkhead bulkhead = new AsyncBulkhead(1, 1);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        CompletionStage<String> first = bulkhead.submit(() -> running, Runnable::run, () -> true);
+        CompletionStage<String> second = bulkhead.submit(() -> CompletableFuture.completedFuture("b"), Runnable::run, () -> true);
+        CompletionStage<String> third = bulkhead.submit(() -> CompletableFuture.completedFuture("c"), Runnable::run, () -> true);
+
+        assertEquals(1, bulkhead.getInflight());
+        assertEquals(1, bulkhead.getQueued());
+        assertFalse(first.toCompletableFuture().isDone());
+        assertFalse(second.toCompletableFuture().isDone());
+        assertTrue(cause(third) instanceof LimitedException);
+    }
+
+    @Test
+    public void testDrainOnRelease() throws Exception {
+        AsyncBulkhead bulkhead = new AsyncBulkhead(1, 2);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        CompletableFuture<String> queuedRunning = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        CompletionStage<String> first = bulkhead.submit(() -> running, Runnable::run, () -> true);
+        CompletionStage<String> second = bulkhead.submit(() -> {
+            started.incrementAndGet();
+            return queuedRunning;
+        }, Runnable::run, () -> true);
+        assertEquals(0, started.get());
+
+        // 第一个请求结束，归还额度后启动排队的请求
+        running.complete("a");
+        assertEquals("a", first.toCompletableFuture().get());
+        assertEquals(1, started.get());
+        assertEquals(1, bulkhead.getInflight());
+        assertEquals(0, bulkhead.getQueued());
+
+        queuedRunning.complete("b");
+        assertEquals("b", second.toCompletableFuture().get());
+        assertEquals(0, bulkhead.getInflight());
+    }
+
+    @Test
+    public void testThrowingSupplierReleasesPermit() {
+        AsyncBulkhead bulkhead = new AsyncBulkhead(1, 1);
+        CompletionStage<String> failed = bulkhead.submit(() -> {
+            throw new IllegalStateException("boom");
+        }, Runnable::run, () -> true);
+        assertTrue(cause(failed) instanceof IllegalStateException);
+        assertEquals(0, bulkhead.getInflight());
+
+        // 排队的请求抛出异常同样归还额度
+        CompletableFuture<String> running = new CompletableFuture<>();
+        bulkhead.submit(() -> running, Runnable::run, () -> true);
+        CompletionStage<String> queued = bulkhead.submit(() -> {
+            throw new IllegalStateException("boom");
+        }, Runnable::run, () -> true);
+        running.complete("a");
+        assertTrue(cause(queued) instanceof IllegalStateException);
+        assertEquals(0, bulkhead.getInflight());
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    @Test
+    public void testDropQueuedTaskOfClosedClient() {
+        AsyncBulkhead bulkhead = new AsyncBulkhead(1, 2);
+        CompletableFuture<String> running = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        bulkhead.submit(() -> running, Runnable::run, () -> true);
+        CompletionStage<String> closed = bulkhead.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("closed");
+        }, Runnable::run, () -> false);
+        CompletionStage<String> alive = bulkhead.submit(() -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("alive");
+        }, Runnable::run, () -> true);
+
+        running.complete("a");
+        // 客户端已断开的请求不执行，额度交给下一个排队的请求
+        assertTrue(cause(closed) instanceof AsyncBulkhead.ClientClosedException);
+        assertEquals("alive", alive.toCompletableFuture().join());
+        assertEquals(1, started.get());
+        assertEquals(0, bulkhead.getInflight());
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    @Test
+    public void testConcurrentSubmit() throws Exception {
+        int maxConcurrentCalls = 4;
+        int threads = 8;
+        int perThread = 200;
+        AsyncBulkhead bulkhead = new AsyncBulkhead(maxConcurrentCalls, threads * perThread);
+        ExecutorService submitters = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService completer = Executors.newScheduledThreadPool(4);
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger executed = new AtomicInteger();
+        Supplier<CompletionStage<Integer>> supplier = () -> {
+            int concurrent = current.incrementAndGet();
+            peak.accumulateAndGet(concurrent, Math::max);
+            executed.incrementAndGet();
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            completer.schedule(() -> {
+                current.decrementAndGet();
+                future.complete(concurrent);
+            }, 100, TimeUnit.MICROSECONDS);
+            return future;
+        };
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<List<CompletableFuture<Integer>>>> submitted = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                submitted.add(submitters.submit(() -> {
+                    ready.await();
+                    List<CompletableFuture<Integer>> own = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        own.add(bulkhead.submit(supplier, completer, () -> true).toCompletableFuture());
+                    }
+                    return own;
+                }));
+            }
+            ready.countDown();
+            for (Future<List<CompletableFuture<Integer>>> future : submitted) {
+                results.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        } finally {
+            submitters.shutdownNow();
+            completer.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, executed.get());
+        assertTrue("peak " + peak.get(), peak.get() <= maxConcurrentCalls);
+        assertEquals(0, bulkhead.getInflight());
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    private static Throwable cause(CompletionStage<?> stage) {
+        try {
+            stage.toCompletableFuture().get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (Exception e) {
+            fail("unexpected " + e);
+        }
+        fail("completed normally");
+        return null;
+    }
+
+}
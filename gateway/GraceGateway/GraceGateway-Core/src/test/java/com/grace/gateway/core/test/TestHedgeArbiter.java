@@ -0,0 +1,113 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.core.http.UpstreamResponse;
+import com.grace.gateway.core.resilience.HedgeArbiter;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestHedgeArbiter {
+
+    @Test
+    public void testFirstSuccessWins() {
+        HedgeArbiter arbiter = arbiter(2);
+        UpstreamResponse first = response(200);
+        UpstreamResponse second = response(200);
+        assertTrue(arbiter.onResponse(first));
+        assertFalse(arbiter.onResponse(second));
+        assertSame(first, arbiter.getResult().join());
+        // 落败的响应直接释放
+        assertEquals(0, second.getContent().refCnt());
+        assertFalse(arbiter.register());
+    }
+
+    @Test
+    public void testServerErrorLosesWhileOthersPending() {
+        HedgeArbiter arbiter = arbiter(2);
+        UpstreamResponse error = response(503);
+        UpstreamResponse success = response(200);
+        // 还有请求未结束，5xx不作为结果
+        assertFalse(arbiter.onResponse(error));
+        assertFalse(arbiter.getResult().isDone());
+        assertTrue(arbiter.onResponse(success));
+        assertSame(success, arbiter.getResult().join());
+        assertEquals(0, error.getContent().refCnt());
+    }
+
+    @Test
+    public void testLastServerErrorIsResult() {
+        HedgeArbiter arbiter = arbiter(2);
+        UpstreamResponse first = response(500);
+        UpstreamResponse last = response(502);
+        assertFalse(arbiter.onResponse(first));
+        assertTrue(arbiter.onResponse(last));
+        assertSame(last, arbiter.getResult().join());
+        assertEquals(0, first.getContent().refCnt());
+
+        // 只发出了一个请求时，5xx直接作为结果
+        HedgeArbiter single = arbiter(1);
+        UpstreamResponse only = response(500);
+        assertTrue(single.onResponse(only));
+        assertSame(only, single.getResult().join());
+    }
+
+    @Test
+    public void testServerErrorPreferredOverLaterFailure() {
+        HedgeArbiter arbiter = arbiter(2);
+        UpstreamResponse error = response(503);
+        assertFalse(arbiter.onResponse(error));
+        arbiter.onFailure(new TimeoutException());
+        assertSame(error, arbiter.getResult().join());
+        assertEquals(1, error.getContent().refCnt());
+    }
+
+    @Test
+    public void testAllFailed() throws InterruptedException {
+        HedgeArbiter arbiter = arbiter(2);
+        arbiter.onFailure(new IllegalStateException("first"));
+        assertFalse(arbiter.getResult().isDone());
+        TimeoutException last = new TimeoutException("last");
+        arbiter.onFailure(last);
+        try {
+            arbiter.getResult().get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertSame(last, e.getCause());
+        }
+    }
+
+    @Test
+    public void testResultCancelledExternally() {
+        HedgeArbiter arbiter = arbiter(2);
+        UpstreamResponse error = response(503);
+        UpstreamResponse late = response(200);
+        assertFalse(arbiter.onResponse(error));
+        arbiter.getResult().cancel(true);
+        // 结果已被取消，之后到达的响应和暂存的5xx响应都被释放
+        assertFalse(arbiter.onResponse(late));
+        assertEquals(0, late.getContent().refCnt());
+        assertEquals(0, error.getContent().refCnt());
+    }
+
+    private static HedgeArbiter arbiter(int attempts) {
+        HedgeArbiter arbiter = new HedgeArbiter();
+        for (int i = 0; i < attempts; i++) {
+            assertTrue(arbiter.register());
+        }
+        return arbiter;
+    }
+
+    private static UpstreamResponse response(int statusCode) {
+        return new UpstreamResponse(statusCode, new DefaultHttpHeaders(), Unpooled.buffer(8).writeInt(statusCode));
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.common.exception.LimitedException;
+import com.grace.gateway.core.algorithm.LeakyBucketRateLimiter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestLeakyBucket {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testLeakTimesBelow1000PerSecond() {
+        // 500个/s：出水时刻间隔 2ms
+        LeakyBucketRateLimiter limiter = new LeakyBucketRateLimiter(1000, 500, 10_000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(now + i * TimeUnit.MILLISECONDS.toNanos(2), limiter.reserve(now));
+        }
+    }
+
+    @Test
+    public void testAdmittedRate() {
+        // 低于和高于 1000个/s 时，模拟时间流逝，只放行无需等待的请求，一秒内放行数等于配置的速率
+        for (int rate : new int[]{200, 800, 5000, 50_000}) {
+            LeakyBucketRateLimiter limiter = new LeakyBucketRateLimiter(Integer.MAX_VALUE, rate, 0);
+            long start = System.nanoTime();
+            int admitted = 0;
+            for (long now = start; now - start < SECOND; now += 1000) {
+                try {
+                    if (limiter.reserve(now) <= now) {
+                        admitted++;
+                    }
+                } catch (LimitedException e) {
+                    // 桶已满
+                }
+            }
+            assertEquals("rate " + rate, rate, admitted, rate * 0.01 + 1);
+        }
+    }
+
+    @Test
+    public void testConcurrentLeakTimesAbove1000PerSecond() throws Exception {
+        int rate = 50_000;
+        int threads = 4;
+        int perThread = 1000;
+        long interval = SECOND / rate;
+        LeakyBucketRateLimiter limiter = new LeakyBucketRateLimiter(threads * perThread * 2, rate, 10_000);
+        long now = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Long> leakTimes = new ArrayList<>();
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> own = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        own.add(limiter.reserve(now));
+                    }
+                    return own;
+                }));
+            }
+            for (Future<List<Long>> future : futures) {
+                leakTimes.addAll(future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Collections.sort(leakTimes);
+        // 每个请求的出水时刻不同，相邻出水时刻至少间隔 1/速率，速率不会超过配置
+        for (int i = 1; i < leakTimes.size(); i++) {
+            assertTrue(leakTimes.get(i) - leakTimes.get(i - 1) >= interval);
+        }
+        // 每个线程最多浪费一批（约1ms）出水时刻，速率不会明显低于配置
+        long span = leakTimes.get(leakTimes.size() - 1) - now;
+        assertTrue("span " + span, span <= (threads * perThread + threads * (rate / 1000)) * interval);
+    }
+
+    @Test
+    public void testRejectWhenFullOrWaitTooLong() {
+        // 容量 10：第 11 个请求前面已排 10 个
+        LeakyBucketRateLimiter full = new LeakyBucketRateLimiter(10, 100, 10_000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            full.reserve(now);
+        }
+        assertRejected(full, now);
+
+        // 100个/s，最多等待 50ms：第 6 个请求需要等待 50ms 以上
+        LeakyBucketRateLimiter waiting = new LeakyBucketRateLimiter(1000, 100, 50);
+        now = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            waiting.reserve(now);
+        }
+        assertRejected(waiting, now);
+        // 时间推移后恢复
+        assertTrue(waiting.reserve(now + SECOND) <= now + SECOND);
+    }
+
+    private static void assertRejected(LeakyBucketRateLimiter limiter, long now) {
+        try {
+            limiter.reserve(now);
+            fail("expected rejection");
+        } catch (LimitedException e) {
+            assertTrue(e.getRetryAfterMillis() > 0);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.core.context.GatewayContext;
+import com.grace.gateway.core.filter.flow.RateLimiter;
+import com.grace.gateway.core.filter.flow.RateLimiterStore;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestRateLimiterStore {
+
+    @Test
+    public void testSizeBounded() {
+        RateLimiterStore store = new RateLimiterStore(100);
+        // 相同的键命中同一个限流器
+        RateLimiter rateLimiter = store.get("key", key -> new NoopRateLimiter());
+        assertSame(rateLimiter, store.get("key", key -> new NoopRateLimiter()));
+        for (int i = 0; i < 10_000; i++) {
+            store.get("key-" + i, key -> new NoopRateLimiter());
+            assertTrue(store.size() <= 100);
+        }
+    }
+
+    @Test
+    public void testFactoryOnlyCalledOnAdmission() {
+        RateLimiterStore store = new RateLimiterStore(64);
+        AtomicInteger created = new AtomicInteger();
+        Function<String, RateLimiter> factory = key -> {
+            created.incrementAndGet();
+            return new NoopRateLimiter();
+        };
+        Set<RateLimiter> returned = Collections.newSetFromMap(new IdentityHashMap<>());
+        // 常用键先占满存储，之后的一次性键大多不被准入
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 64; i++) {
+                returned.add(store.get("hot-" + i, factory));
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            returned.add(store.get("scan-" + i, factory));
+        }
+        // 创建的每个限流器都被保存或作为溢出限流器返回过，未准入的键不创建限流器
+        assertEquals(created.get(), returned.size());
+        assertTrue(created.get() < 10_000);
+    }
+
+    @Test
+    public void testHotKeysSurviveScan() {
+        RateLimiterStore store = new RateLimiterStore(128);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 64; i++) {
+                store.get("hot-" + i, key -> new NoopRateLimiter());
+            }
+        }
+        // 大量一次性键与常用键交替访问：一次性键很少被准入，常用键的限流器很少被替换（替换后再访问时重建）
+        AtomicInteger scanCreated = new AtomicInteger();
+        AtomicInteger hotCreated = new AtomicInteger();
+        int scans = 20_000;
+        for (int i = 0; i < scans; i++) {
+            store.get("scan-" + i, key -> {
+                scanCreated.incrementAndGet();
+                return new NoopRateLimiter();
+            });
+            store.get("hot-" + (i % 64), key -> {
+                hotCreated.incrementAndGet();
+                return new NoopRateLimiter();
+            });
+        }
+        assertTrue("scan created " + scanCreated.get(), scanCreated.get() < scans * 0.1);
+        assertTrue("hot created " + hotCreated.get(), hotCreated.get() < scans * 0.01);
+        assertTrue(store.size() <= 128);
+    }
+
+    @Test
+    public void testOverflowPartitioned() {
+        RateLimiterStore store = new RateLimiterStore(16);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 16; i++) {
+                store.get("hot-" + i, key -> new NoopRateLimiter());
+            }
+        }
+        // 未准入的一次性键分散到多个溢出限流器上共用，溢出限流器个数有上限
+        Map<RateLimiter, Integer> shared = new IdentityHashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            shared.merge(store.get("scan-" + i, key -> new NoopRateLimiter()), 1, Integer::sum);
+        }
+        shared.values().removeIf(keys -> keys == 1);
+        assertTrue("overflows " + shared.size(), shared.size() > 1 && shared.size() <= 16);
+        assertTrue(store.size() <= 16);
+    }
+
+    /**
+     * 每次创建都是不同实例的限流器，用于按对象身份区分
+     */
+    private static class NoopRateLimiter implements RateLimiter {
+
+        @Override
+        public void tryConsume(GatewayContext context) {
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.common.exception.LimitedException;
+import com.grace.gateway.core.algorithm.GcraRateLimiter;
+import com.grace.gateway.core.algorithm.SlidingWindowRateLimiter;
+import com.grace.gateway.core.algorithm.TokenBucketRateLimiter;
+import com.grace.gateway.core.filter.flow.RefundableRateLimiter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestRateLimiters {
+
+    @Test
+    public void testTokenBucketRefund() {
+        // 容量 2，初始令牌数 2
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 2);
+        long permit = limiter.tryAcquire(null);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+        limiter.refund(permit);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+    }
+
+    @Test
+    public void testGcraRefund() {
+        // 1个/s，突发 2：空闲时连续放行 2 个，第 3 个需要等待约 1s
+        GcraRateLimiter limiter = new GcraRateLimiter(1, 2);
+        long permit = limiter.tryAcquire(null);
+        limiter.tryAcquire(null);
+        LimitedException e = assertRejected(limiter);
+        assertTrue(e.getRetryAfterMillis() > 0);
+        limiter.refund(permit);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+    }
+
+    @Test
+    public void testSlidingWindowCapacityAndRefund() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, 10_000, 10);
+        long permit = limiter.tryAcquire(null);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+        limiter.refund(permit);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+    }
+
+    @Test
+    public void testSlidingWindowRefundAfterSubWindowSwitched() throws InterruptedException {
+        // 窗口 400ms、2 个子窗口：占用后过一个子窗口，占用所在的子窗口仍在窗口内
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(1, 400, 2);
+        long permit = limiter.tryAcquire(null);
+        Thread.sleep(200);
+        // 归还的是占用时所在子窗口的计数，而不是当前子窗口的
+        limiter.refund(permit);
+        limiter.tryAcquire(null);
+        assertRejected(limiter);
+    }
+
+    @Test
+    public void testSlidingWindowRefundAfterLeavingWindow() throws InterruptedException {
+        // 占用所在的子窗口已经滑出窗口，归还不影响复用同一槽位的新子窗口
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(1, 200, 2);
+        long stale = limiter.tryAcquire(null);
+        Thread.sleep(250);
+        limiter.tryAcquire(null);
+        limiter.refund(stale);
+        assertRejected(limiter);
+    }
+
+    private static LimitedException assertRejected(RefundableRateLimiter limiter) {
+        try {
+            limiter.tryAcquire(null);
+        } catch (LimitedException e) {
+            return e;
+        }
+        fail("expected rejection");
+        return null;
+    }
+
+}
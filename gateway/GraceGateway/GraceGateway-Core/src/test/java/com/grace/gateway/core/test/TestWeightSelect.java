@@ -0,0 +1,135 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.core.algorithm.AliasTable;
+import com.grace.gateway.core.algorithm.SmoothWeightedRoundRobin;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestWeightSelect {
+
+    private static final int SAMPLES = 400_000;
+
+    @Test
+    public void testSmoothWeightedRoundRobinOrder() {
+        // 与nginx一致：权重 {5, 1, 1} 的顺序为 a a b a c a a
+        SmoothWeightedRoundRobin roundRobin = new SmoothWeightedRoundRobin(new int[]{5, 1, 1});
+        int[] expected = {0, 0, 1, 0, 2, 0, 0};
+        for (int round = 0; round < 3; round++) {
+            assertArrayEquals(expected, next(roundRobin, expected.length));
+        }
+    }
+
+    @Test
+    public void testSmoothWeightedRoundRobinZeroAndNegativeWeights() {
+        SmoothWeightedRoundRobin roundRobin = new SmoothWeightedRoundRobin(new int[]{0, 3, -2});
+        assertFalse(roundRobin.isEmpty());
+        for (int index : next(roundRobin, 10)) {
+            assertEquals(1, index);
+        }
+
+        SmoothWeightedRoundRobin empty = new SmoothWeightedRoundRobin(new int[]{0, -1});
+        assertTrue(empty.isEmpty());
+        assertEquals(-1, empty.next());
+        assertEquals(-1, new SmoothWeightedRoundRobin(new int[0]).next());
+    }
+
+    @Test
+    public void testSmoothWeightedRoundRobinGcd() {
+        // 约去最大公约数后与 {5, 1, 1} 相同
+        SmoothWeightedRoundRobin roundRobin = new SmoothWeightedRoundRobin(new int[]{500, 100, 100});
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0, 0, 0, 1}, next(roundRobin, 10));
+
+        // 大权重约分后周期为2，严格交替
+        SmoothWeightedRoundRobin alternate = new SmoothWeightedRoundRobin(new int[]{70000, 70000});
+        assertArrayEquals(new int[]{0, 1, 0, 1}, next(alternate, 4));
+    }
+
+    @Test
+    public void testSmoothWeightedRoundRobinScaling() {
+        // 权重之和超过周期上限 65536 时按比例缩小，小权重至少保留1
+        SmoothWeightedRoundRobin roundRobin = new SmoothWeightedRoundRobin(new int[]{100000, 1});
+        int[] counts = new int[2];
+        for (int index : next(roundRobin, 1 << 16)) {
+            counts[index]++;
+        }
+        assertEquals(65535, counts[0]);
+        assertEquals(1, counts[1]);
+        // 缩小后周期为 65536，下一个周期重复同样的顺序
+        int[] firstCycle = next(roundRobin, 1 << 16);
+        assertArrayEquals(firstCycle, next(roundRobin, 1 << 16));
+    }
+
+    @Test
+    public void testAliasTableDistribution() {
+        double[] weights = {1, 2, 3, 4, 0};
+        AliasTable aliasTable = new AliasTable(weights);
+        int[] counts = new int[weights.length];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[aliasTable.next()]++;
+        }
+        assertDistribution(weights, counts);
+    }
+
+    @Test
+    public void testAliasTableZeroAndNegativeWeights() {
+        AliasTable aliasTable = new AliasTable(new double[]{0, -3, 2});
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(2, aliasTable.next());
+            assertEquals(2, aliasTable.select(i));
+        }
+
+        AliasTable empty = new AliasTable(new double[]{0, -1});
+        assertTrue(empty.isEmpty());
+        assertEquals(-1, empty.next());
+        assertEquals(-1, empty.select(1));
+        assertEquals(-1, new AliasTable(new double[0]).next());
+    }
+
+    @Test
+    public void testAliasTableStickySelect() {
+        double[] weights = {5, 1, 3, 1};
+        AliasTable aliasTable = new AliasTable(weights);
+        AliasTable rebuilt = new AliasTable(weights);
+        int[] counts = new int[weights.length];
+        for (int hash = 0; hash < SAMPLES; hash++) {
+            int index = aliasTable.select(hash);
+            // 相同的哈希值总是选中相同的元素，与别名表实例无关
+            assertEquals(index, aliasTable.select(hash));
+            assertEquals(index, rebuilt.select(hash));
+            counts[index]++;
+        }
+        // 连续的哈希值打散后仍按权重分布
+        assertDistribution(weights, counts);
+    }
+
+    private static int[] next(SmoothWeightedRoundRobin roundRobin, int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = roundRobin.next();
+        }
+        return indexes;
+    }
+
+    /**
+     * 各元素的选中次数与按权重的期望值相差不超过 2%（样本数的比例）
+     */
+    private static void assertDistribution(double[] weights, int[] counts) {
+        double total = 0;
+        for (double weight : weights) {
+            total += Math.max(0, weight);
+        }
+        int samples = 0;
+        for (int count : counts) {
+            samples += count;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            double expected = Math.max(0, weights[i]) / total;
+            assertEquals("index " + i, expected, counts[i] / (double) samples, 0.02);
+        }
+    }
+
+}
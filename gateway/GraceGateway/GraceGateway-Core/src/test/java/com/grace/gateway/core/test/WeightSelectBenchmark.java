@@ -0,0 +1,106 @@
+package com.grace.gateway.core.test;
+
+import com.grace.gateway.config.pojo.ServiceInstance;
+import com.grace.gateway.core.algorithm.AliasTable;
+import com.grace.gateway.core.algorithm.SmoothWeightedRoundRobin;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按权重选择实例的基准测试：原先每次遍历实例列表的实现 vs 别名表 / 平滑加权轮询
+ * 运行 main 方法即可
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeightSelectBenchmark {
+
+    @Param({"4", "16", "64"})
+    private int instanceNum;
+
+    private List<ServiceInstance> instances;
+
+    private AliasTable weightTable;
+
+    private AliasTable thresholdTable;
+
+    private SmoothWeightedRoundRobin roundRobin;
+
+    @Setup
+    public void setup() {
+        instances = new ArrayList<>(instanceNum);
+        int[] weights = new int[instanceNum];
+        double[] doubleWeights = new double[instanceNum];
+        double[] thresholds = new double[instanceNum];
+        for (int i = 0; i < instanceNum; i++) {
+            ServiceInstance instance = new ServiceInstance();
+            instance.setInstanceId("127.0.0.1:" + (8000 + i));
+            instance.setWeight(1 + i % 10);
+            instance.setThreshold(0.01 * (1 + i % 5));
+            instances.add(instance);
+            weights[i] = instance.getWeight();
+            doubleWeights[i] = instance.getWeight();
+            thresholds[i] = instance.getThreshold();
+        }
+        instances = List.copyOf(instances);
+        weightTable = new AliasTable(doubleWeights);
+        thresholdTable = new AliasTable(thresholds);
+        roundRobin = new SmoothWeightedRoundRobin(weights);
+    }
+
+    @Benchmark
+    public ServiceInstance legacyWeight() {
+        int totalWeight = instances.stream().mapToInt(ServiceInstance::getWeight).sum();
+        int randomWeight = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (ServiceInstance instance : instances) {
+            randomWeight -= instance.getWeight();
+            if (randomWeight < 0) return instance;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public ServiceInstance aliasWeight() {
+        return instances.get(weightTable.next());
+    }
+
+    @Benchmark
+    public ServiceInstance smoothWeightRoundRobin() {
+        return instances.get(roundRobin.next());
+    }
+
+    @Benchmark
+    public ServiceInstance legacyGray() {
+        int hash = ThreadLocalRandom.current().nextInt();
+        int totalThreshold = (int) (instances.stream().mapToDouble(ServiceInstance::getThreshold).sum() * 100);
+        int randomThreshold = Math.abs(hash) % totalThreshold;
+        for (ServiceInstance instance : instances) {
+            randomThreshold -= instance.getThreshold() * 100;
+            if (randomThreshold < 0) return instance;
+        }
+        return null;
+    }
+
+    @Benchmark
+    public ServiceInstance aliasGray() {
+        return instances.get(thresholdTable.select(ThreadLocalRandom.current().nextInt()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(WeightSelectBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}